@@ -0,0 +1,177 @@
+public final class Atmosphere {
+
+    public static final double SEA_LEVEL_PRESSURE = 101325.0;
+    public static final double SEA_LEVEL_DENSITY = 1.225;
+    public static final double TOP_ALTITUDE = 1_000_000;
+    // Выше сопротивление пренебрежимо: обломки с таким перигеем считаются орбитальными, ракета летит по коническому сечению
+    public static final double DRAG_FREE_ALTITUDE = 150_000;
+
+    private static final double G0 = 9.80665;
+    private static final double AIR_GAS_CONSTANT = 287.05287;
+    private static final double GAMMA = 1.4;
+    private static final double GEOPOTENTIAL_RADIUS = 6_356_766;
+
+    // Стандартная атмосфера США 1976, слои до 86 км (геопотенциальная высота, м; градиент, К/м)
+    private static final double[] LAYER_BASE = {0, 11_000, 20_000, 32_000, 47_000, 51_000, 71_000, 84_852};
+    private static final double[] LAYER_LAPSE = {-0.0065, 0, 0.001, 0.0028, 0, -0.0028, -0.002, 0};
+    private static final double[] LAYER_TEMPERATURE = new double[LAYER_BASE.length];
+    private static final double[] LAYER_PRESSURE = new double[LAYER_BASE.length];
+
+    // Табличные значения US76 выше 86 км (геометрическая высота, м), интерполяция в логарифмах
+    private static final double[] UPPER_ALTITUDE = {86_000, 100_000, 110_000, 120_000, 150_000, 200_000, 300_000, 400_000, 500_000, 600_000, 700_000, 800_000, 900_000, 1_000_000};
+    private static final double[] UPPER_DENSITY = {6.958e-6, 5.604e-7, 9.708e-8, 2.222e-8, 2.076e-9, 2.541e-10, 1.916e-11, 2.803e-12, 5.215e-13, 1.137e-13, 3.070e-14, 1.136e-14, 5.759e-15, 3.561e-15};
+    private static final double[] UPPER_PRESSURE = {3.734e-1, 3.201e-2, 7.104e-3, 2.538e-3, 4.542e-4, 8.474e-5, 8.770e-6, 1.452e-6, 3.024e-7, 8.210e-8, 3.190e-8, 1.700e-8, 1.080e-8, 7.510e-9};
+
+    public static final double TABLE_STEP = 250;
+    private static final int TABLE_SIZE = (int) (TOP_ALTITUDE / TABLE_STEP) + 1;
+    private static final double INV_TABLE_STEP = 1.0 / TABLE_STEP;
+
+    private static final double[] DENSITY_TABLE = new double[TABLE_SIZE];
+    private static final double[] PRESSURE_TABLE = new double[TABLE_SIZE];
+    private static final double[] SOUND_SPEED_TABLE = new double[TABLE_SIZE];
+
+    static {
+        LAYER_TEMPERATURE[0] = 288.15;
+        LAYER_PRESSURE[0] = SEA_LEVEL_PRESSURE;
+        for (int i = 1; i < LAYER_BASE.length; i++) {
+            double h = LAYER_BASE[i] - LAYER_BASE[i - 1];
+            LAYER_TEMPERATURE[i] = LAYER_TEMPERATURE[i - 1] + LAYER_LAPSE[i - 1] * h;
+            LAYER_PRESSURE[i] = layerPressure(i - 1, LAYER_BASE[i]);
+        }
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            double altitude = i * TABLE_STEP;
+            DENSITY_TABLE[i] = densityDirect(altitude);
+            PRESSURE_TABLE[i] = pressureDirect(altitude);
+            SOUND_SPEED_TABLE[i] = speedOfSoundDirect(altitude);
+        }
+    }
+
+    private Atmosphere() {
+    }
+
+    public static double density(double altitude) {
+        return lookupLinear(DENSITY_TABLE, altitude);
+    }
+
+    public static double pressure(double altitude) {
+        return lookupLinear(PRESSURE_TABLE, altitude);
+    }
+
+    public static double speedOfSound(double altitude) {
+        return lookupLinear(SOUND_SPEED_TABLE, altitude);
+    }
+
+    public static double densityCubic(double altitude) {
+        return lookupCubic(DENSITY_TABLE, altitude);
+    }
+
+    public static double pressureCubic(double altitude) {
+        return lookupCubic(PRESSURE_TABLE, altitude);
+    }
+
+    public static double speedOfSoundCubic(double altitude) {
+        return lookupCubic(SOUND_SPEED_TABLE, altitude);
+    }
+
+    // Производные табличных плотности и давления по высоте — наклон того же отрезка, по которому идёт интерполяция
+    public static double densitySlope(double altitude) {
+        return slopeLinear(DENSITY_TABLE, altitude);
+    }
+
+    public static double pressureSlope(double altitude) {
+        return slopeLinear(PRESSURE_TABLE, altitude);
+    }
+
+    private static double slopeLinear(double[] table, double altitude) {
+        if (altitude <= 0 || altitude >= TOP_ALTITUDE) return 0;
+        int i = (int) (altitude * INV_TABLE_STEP);
+        return (table[i + 1] - table[i]) * INV_TABLE_STEP;
+    }
+
+    private static double lookupLinear(double[] table, double altitude) {
+        if (altitude <= 0) return table[0];
+        if (altitude >= TOP_ALTITUDE) return table == SOUND_SPEED_TABLE ? table[TABLE_SIZE - 1] : 0;
+        double position = altitude * INV_TABLE_STEP;
+        int i = (int) position;
+        double t = position - i;
+        return table[i] + (table[i + 1] - table[i]) * t;
+    }
+
+    // Catmull-Rom по четырём соседним узлам; отрицательные выбросы у верхней границы обрезаются
+    private static double lookupCubic(double[] table, double altitude) {
+        if (altitude <= 0) return table[0];
+        if (altitude >= TOP_ALTITUDE) return table == SOUND_SPEED_TABLE ? table[TABLE_SIZE - 1] : 0;
+        double position = altitude * INV_TABLE_STEP;
+        int i = (int) position;
+        double t = position - i;
+        double p1 = table[i];
+        double p2 = table[i + 1];
+        double p0 = i > 0 ? table[i - 1] : 2 * p1 - p2;
+        double p3 = i + 2 < TABLE_SIZE ? table[i + 2] : 2 * p2 - p1;
+        double value = p1 + 0.5 * t * (p2 - p0 + t * (2 * p0 - 5 * p1 + 4 * p2 - p3 + t * (3 * (p1 - p2) + p3 - p0)));
+        return Math.max(value, 0);
+    }
+
+    public static double densityDirect(double altitude) {
+        if (altitude >= UPPER_ALTITUDE[0]) {
+            return upperInterpolate(UPPER_DENSITY, altitude);
+        }
+        double h = geopotential(altitude);
+        return pressureAtGeopotential(h) / (AIR_GAS_CONSTANT * temperatureAtGeopotential(h));
+    }
+
+    public static double pressureDirect(double altitude) {
+        if (altitude >= UPPER_ALTITUDE[0]) {
+            return upperInterpolate(UPPER_PRESSURE, altitude);
+        }
+        return pressureAtGeopotential(geopotential(altitude));
+    }
+
+    public static double speedOfSoundDirect(double altitude) {
+        double h = geopotential(Math.min(altitude, UPPER_ALTITUDE[0]));
+        return Math.sqrt(GAMMA * AIR_GAS_CONSTANT * temperatureAtGeopotential(h));
+    }
+
+    private static double geopotential(double altitude) {
+        altitude = Math.max(altitude, 0);
+        return GEOPOTENTIAL_RADIUS * altitude / (GEOPOTENTIAL_RADIUS + altitude);
+    }
+
+    private static int layerIndex(double h) {
+        int layer = LAYER_BASE.length - 1;
+        while (layer > 0 && h < LAYER_BASE[layer]) {
+            layer--;
+        }
+        return layer;
+    }
+
+    private static double temperatureAtGeopotential(double h) {
+        int layer = layerIndex(h);
+        return LAYER_TEMPERATURE[layer] + LAYER_LAPSE[layer] * (h - LAYER_BASE[layer]);
+    }
+
+    private static double pressureAtGeopotential(double h) {
+        return layerPressure(layerIndex(h), h);
+    }
+
+    private static double layerPressure(int layer, double h) {
+        double baseTemperature = LAYER_TEMPERATURE[layer];
+        double lapse = LAYER_LAPSE[layer];
+        double dh = h - LAYER_BASE[layer];
+        if (lapse == 0) {
+            return LAYER_PRESSURE[layer] * Math.exp(-G0 * dh / (AIR_GAS_CONSTANT * baseTemperature));
+        }
+        double temperature = baseTemperature + lapse * dh;
+        return LAYER_PRESSURE[layer] * Math.pow(baseTemperature / temperature, G0 / (AIR_GAS_CONSTANT * lapse));
+    }
+
+    private static double upperInterpolate(double[] values, double altitude) {
+        if (altitude >= TOP_ALTITUDE) return values[values.length - 1];
+        int i = 0;
+        while (altitude >= UPPER_ALTITUDE[i + 1]) {
+            i++;
+        }
+        double t = (altitude - UPPER_ALTITUDE[i]) / (UPPER_ALTITUDE[i + 1] - UPPER_ALTITUDE[i]);
+        return values[i] * Math.pow(values[i + 1] / values[i], t);
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+public class AtmosphereBenchmark {
+
+    private static final int SAMPLES = 1_000_000;
+    private static final double MAX_ALTITUDE = 150_000;
+
+    public static void main(String[] args) {
+        double[] altitudes = new double[SAMPLES];
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            altitudes[i] = random.nextDouble() * MAX_ALTITUDE;
+        }
+
+        System.out.println("Точность (макс. относительная ошибка, 0-" + (int) (MAX_ALTITUDE / 1000) + " км):");
+        printError("плотность, линейная", Atmosphere::density, Atmosphere::densityDirect, altitudes);
+        printError("плотность, кубическая", Atmosphere::densityCubic, Atmosphere::densityDirect, altitudes);
+        printError("давление, линейная", Atmosphere::pressure, Atmosphere::pressureDirect, altitudes);
+        printError("давление, кубическая", Atmosphere::pressureCubic, Atmosphere::pressureDirect, altitudes);
+        printError("скорость звука, линейная", Atmosphere::speedOfSound, Atmosphere::speedOfSoundDirect, altitudes);
+
+        System.out.println("Стоимость (нс на вызов):");
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+            measure("плотность, формула", Atmosphere::densityDirect, altitudes, report);
+            measure("плотность, линейная", Atmosphere::density, altitudes, report);
+            measure("плотность, кубическая", Atmosphere::densityCubic, altitudes, report);
+            measure("давление, формула", Atmosphere::pressureDirect, altitudes, report);
+            measure("давление, линейная", Atmosphere::pressure, altitudes, report);
+        }
+    }
+
+    private static void printError(String name, DoubleUnaryOperator table, DoubleUnaryOperator direct, double[] altitudes) {
+        double maxError = 0;
+        double worstAltitude = 0;
+        for (double altitude : altitudes) {
+            double expected = direct.applyAsDouble(altitude);
+            double error = Math.abs(table.applyAsDouble(altitude) - expected) / expected;
+            if (error > maxError) {
+                maxError = error;
+                worstAltitude = altitude;
+            }
+        }
+        System.out.printf("  %-26s %.3e (на высоте %.0f м)%n", name, maxError, worstAltitude);
+    }
+
+    private static void measure(String name, DoubleUnaryOperator function, double[] altitudes, boolean report) {
+        double sink = 0;
+        long start = System.nanoTime();
+        for (double altitude : altitudes) {
+            sink += function.applyAsDouble(altitude);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("  %-26s %.1f (контроль %.3e)%n", name, (double) elapsed / altitudes.length, sink);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Параллельный прогон каталога сценариев без окон, по строке сводки на сценарий.
+// Параметры: --dir каталог (по умолчанию scenarios), --out файл CSV (по умолчанию summary.csv в каталоге), --threads число
+public class BatchRunner {
+
+    private static final Path DEFAULT_DIRECTORY = Path.of("scenarios");
+    private static final String HEADER = "scenario,file,final_time_s,max_altitude_m,max_speed_mps,max_q_pa,final_mass_kg,"
+            + "remaining_stages,outcome,events_fired,events_total,wall_ms,error";
+
+    public static void main(String[] args) throws Exception {
+        Path directory = DEFAULT_DIRECTORY;
+        Path output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir" -> directory = Path.of(args[++i]);
+                case "--out" -> output = Path.of(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> System.err.println("Неизвестный параметр: " + args[i]);
+            }
+        }
+        if (output == null) {
+            output = directory.resolve("summary.csv");
+        }
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(Scenario.EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            System.out.println("В каталоге " + directory + " нет файлов " + Scenario.EXTENSION);
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<String>> futures = new ArrayList<>();
+        for (Path file : files) {
+            futures.add(pool.submit(() -> run(file)));
+        }
+        int failed = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Future<String> future : futures) {
+                String row = future.get();
+                if (!row.endsWith(",")) {
+                    failed++;
+                }
+                writer.write(row);
+                writer.newLine();
+                System.out.println(row);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println(files.size() + " сценариев, с ошибками " + failed + ", сводка: " + output);
+    }
+
+    // Строка сводки; ошибка разбора или прогона попадает в последний столбец, остальные сценарии продолжаются
+    static String run(Path file) {
+        long start = System.nanoTime();
+        Scenario scenario;
+        try {
+            scenario = Scenario.load(file);
+        } catch (IOException e) {
+            return row(file.getFileName().toString(), file, null, null, null, 0, e.getMessage());
+        }
+        try {
+            FlightConfig config = scenario.getConfig();
+            RocketModel model = new RocketModel();
+            ResultCache.PeakTracker peaks = new ResultCache.PeakTracker();
+            model.addObserver(peaks);
+            config.applyTo(model);
+            ScenarioDriver driver = new ScenarioDriver(scenario, model);
+            driver.attach();
+            model.runHeadless(scenario.getMaxSimulationTime());
+            driver.detach();
+            return row(scenario.getName(), file, model, peaks, driver, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            return row(scenario.getName(), file, null, null, null, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    private static String row(String name, Path file, RocketModel model, ResultCache.PeakTracker peaks, ScenarioDriver driver,
+                              long elapsedNanos, String error) {
+        StringBuilder row = new StringBuilder(csv(name)).append(',').append(csv(file.getFileName().toString())).append(',');
+        if (model != null) {
+            boolean landed = model.getSimulationTime() < driver.getScenario().getMaxSimulationTime();
+            row.append(String.format(Locale.ROOT, "%.3f,%.1f,%.2f,%.1f,%.4f,%d,%s,%d,%d,",
+                    model.getSimulationTime(), peaks.maxAltitude, peaks.maxSpeed, model.getMaxDynamicPressure(),
+                    model.getCurrentMass(), model.getRemainingStages(), landed ? "landed" : "timeout",
+                    driver.getFiredCount(), driver.getScenario().getEvents().size()));
+        } else {
+            row.append(",,,,,,failed,,,");
+        }
+        row.append(elapsedNanos / 1_000_000).append(',');
+        if (error != null) {
+            row.append(csv(error));
+        }
+        return row.toString();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.Arrays;
+
+// Итог одного полёта из кэша результатов: сводка и, если сохранялась, траектория по каналам TrajectoryRecorder.CHANNELS
+public final class CachedFlight {
+    private final String key;
+    private final double finalTime;
+    private final double maxAltitude;
+    private final double maxSpeed;
+    private final double maxDynamicPressure;
+    private final double finalMass;
+    private final int finalRemainingStages;
+    private final boolean landed;
+    private final double[][] channels;
+
+    public CachedFlight(String key, double finalTime, double maxAltitude, double maxSpeed, double maxDynamicPressure,
+                        double finalMass, int finalRemainingStages, boolean landed, double[][] channels) {
+        this.key = key;
+        this.finalTime = finalTime;
+        this.maxAltitude = maxAltitude;
+        this.maxSpeed = maxSpeed;
+        this.maxDynamicPressure = maxDynamicPressure;
+        this.finalMass = finalMass;
+        this.finalRemainingStages = finalRemainingStages;
+        this.landed = landed;
+        this.channels = channels;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public double getFinalTime() {
+        return finalTime;
+    }
+
+    public double getMaxAltitude() {
+        return maxAltitude;
+    }
+
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public double getMaxDynamicPressure() {
+        return maxDynamicPressure;
+    }
+
+    public double getFinalMass() {
+        return finalMass;
+    }
+
+    public int getFinalRemainingStages() {
+        return finalRemainingStages;
+    }
+
+    // Полёт закончился падением, а не по лимиту времени
+    public boolean isLanded() {
+        return landed;
+    }
+
+    public boolean hasTrajectory() {
+        return channels != null;
+    }
+
+    public int size() {
+        return channels == null ? 0 : channels[0].length;
+    }
+
+    public double get(int channel, int index) {
+        return channels[channel][index];
+    }
+
+    public double[] getChannel(int channel) {
+        return Arrays.copyOf(channels[channel], channels[channel].length);
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Журнал применённых команд с номером такта: повторное воспроизведение даёт тот же полёт.
+// Пишется только потоком симуляции, сохранять после остановки симуляции.
+public class CommandLog {
+
+    public static final class Entry {
+        private final long tick;
+        private final RocketCommand command;
+
+        public Entry(long tick, RocketCommand command) {
+            this.tick = tick;
+            this.command = command;
+        }
+
+        public long getTick() {
+            return tick;
+        }
+
+        public RocketCommand getCommand() {
+            return command;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private int replayPosition = 0;
+
+    public void record(long tick, RocketCommand command) {
+        entries.add(new Entry(tick, command));
+    }
+
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    public void rewind() {
+        replayPosition = 0;
+    }
+
+    // Выдаёт команды, записанные для такта tick (и все пропущенные до него)
+    public void replayUpTo(long tick, Consumer<RocketCommand> consumer) {
+        while (replayPosition < entries.size() && entries.get(replayPosition).tick <= tick) {
+            consumer.accept(entries.get(replayPosition++).command);
+        }
+    }
+
+    // Такт следующей невыданной команды или Long.MAX_VALUE, если журнал кончился
+    public long nextTick() {
+        return replayPosition < entries.size() ? entries.get(replayPosition).tick : Long.MAX_VALUE;
+    }
+
+    public void save(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (Entry entry : entries) {
+                writer.write(entry.tick + " " + entry.command.format());
+                writer.newLine();
+            }
+        }
+    }
+
+    public static CommandLog load(Path path) throws IOException {
+        CommandLog log = new CommandLog();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int space = line.indexOf(' ');
+                log.entries.add(new Entry(Long.parseLong(line.substring(0, space)), RocketCommand.parse(line.substring(space + 1))));
+            }
+        }
+        return log;
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Очередь без блокировок для многих писателей и одного читателя (поток симуляции)
+public final class CommandQueue {
+
+    private static final class Node {
+        final RocketCommand command;
+        volatile Node next;
+
+        Node(RocketCommand command) {
+            this.command = command;
+        }
+    }
+
+    private final AtomicReference<Node> head;
+    private Node tail;
+
+    public CommandQueue() {
+        Node stub = new Node(null);
+        head = new AtomicReference<>(stub);
+        tail = stub;
+    }
+
+    public void offer(RocketCommand command) {
+        Node node = new Node(command);
+        Node previous = head.getAndSet(node);
+        previous.next = node;
+    }
+
+    // Вызывается только потоком-потребителем
+    public RocketCommand poll() {
+        Node next = tail.next;
+        if (next == null) {
+            return null;
+        }
+        tail = next;
+        return next.command;
+    }
+
+    public int drain(Consumer<RocketCommand> consumer) {
+        int count = 0;
+        RocketCommand command;
+        while ((command = poll()) != null) {
+            consumer.accept(command);
+            count++;
+        }
+        return count;
+    }
+
+    // Отбрасывает все команды, уже связанные в очередь; вызывается только потоком-потребителем
+    public int clear() {
+        int count = 0;
+        Node next;
+        while ((next = tail.next) != null) {
+            tail = next;
+            count++;
+        }
+        return count;
+    }
+}
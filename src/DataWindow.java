@@ -1,13 +1,16 @@
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
 
-public class DataWindow extends JFrame implements RocketObserver {
-    private final List<Double> timeData = new ArrayList<>();
-    private final List<Double> speedData = new ArrayList<>();
-    private final List<Double> altitudeData = new ArrayList<>();
-    private final List<Double> massData = new ArrayList<>();
+public class DataWindow extends JFrame implements UiFrameScheduler.FrameView {
+    private static final int SPEED = 0;
+    private static final int ALTITUDE = 1;
+    private static final int MASS = 2;
+    private static final int DISPLAY_POINTS = 4096;
+
+    // Полная история вне кучи и её прореженная копия, по которой рисуются графики
+    private final TelemetryHistory history = new TelemetryHistory(3);
+    private final DecimatedSeries series = new DecimatedSeries(3, DISPLAY_POINTS);
+    private final double[] sample = new double[3];
 
     private double time = 0;
 
@@ -28,53 +31,82 @@ public class DataWindow extends JFrame implements RocketObserver {
         setSize(1200, 300);
         setLayout(new GridLayout(1, 4));
 
-        speedPanel = new GraphPanel(timeData, speedData, "Скорость", "Время (с)", "Скорость (м/с)");
-        altitudePanel = new GraphPanel(timeData, altitudeData, "Высота", "Время (с)", "Высота (м)");
-        massPanel = new GraphPanel(timeData, massData, "Масса", "Время (с)", "Масса (кг)");
+        speedPanel = new GraphPanel(SPEED, "Скорость", "Время (с)", "Скорость (м/с)");
+        altitudePanel = new GraphPanel(ALTITUDE, "Высота", "Время (с)", "Высота (м)");
+        massPanel = new GraphPanel(MASS, "Масса", "Время (с)", "Масса (кг)");
 
         add(speedPanel);
         add(altitudePanel);
         add(massPanel);
-
-        setVisible(true);
     }
 
     @Override
-    public void onStageSeparation(int stageNumber) {
+    public void onFrame(TelemetrySnapshot snapshot) {
+        if (snapshot.getTime() == time && !history.isEmpty()) {
+            return;
+        }
+        if (snapshot.getTime() < time) {
+            // Время пошло назад — начался новый полёт
+            clearHistory();
+        }
+        time = snapshot.getTime();
+        if (addSample(time, snapshot.getSpeed(), snapshot.getAltitude(), snapshot.getMass())) {
+            series.append(time, sample);
+        }
 
+        speedPanel.repaint();
+        altitudePanel.repaint();
+        massPanel.repaint();
     }
 
-    @Override
-    public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses) {
-        time += controller.getModel().getDeltaTime();
-        timeData.add(time);
-        speedData.add(speed);
-        double altitude = Math.sqrt(x*x+y*y) - RocketModel.EARTH_RADIUS;
-        altitudeData.add(altitude);
-        massData.add(currentMass);
-
-        maxTime = time;
+    private boolean addSample(double sampleTime, double speed, double altitude, double currentMass) {
+        sample[SPEED] = speed;
+        sample[ALTITUDE] = altitude;
+        sample[MASS] = currentMass;
+        if (!history.append(sampleTime, sample)) {
+            return false;
+        }
+        maxTime = sampleTime;
         maxSpeed = Math.max(maxSpeed, speed);
         maxAltitude = Math.max(maxAltitude, altitude);
         maxMass = Math.max(maxMass, currentMass);
+        return true;
+    }
+
+    private void clearHistory() {
+        history.clear();
+        series.clear();
+        maxSpeed = 0;
+        maxAltitude = 0;
+        maxMass = 0;
+    }
+
+    // Заменяет графики записанным полётом целиком
+    public void loadRecording(CachedFlight flight) {
+        clearHistory();
+        for (int i = 0; i < flight.size(); i++) {
+            double x = flight.get(1, i);
+            double y = flight.get(2, i);
+            addSample(flight.get(0, i), Math.hypot(flight.get(3, i), flight.get(4, i)),
+                    Math.hypot(x, y) - RocketModel.EARTH_RADIUS, flight.get(5, i));
+        }
+        time = history.isEmpty() ? 0 : history.getLatestTime();
+        maxTime = time;
+        series.rebuild(history);
 
-        SwingUtilities.invokeLater(() -> {
-            speedPanel.repaint();
-            altitudePanel.repaint();
-            massPanel.repaint();
-        });
+        speedPanel.repaint();
+        altitudePanel.repaint();
+        massPanel.repaint();
     }
 
     private class GraphPanel extends JPanel {
-        private final List<Double> xData;
-        private final List<Double> yData;
+        private final int channel;
         private final String title;
         private final String xLabel;
         private final String yLabel;
 
-        public GraphPanel(List<Double> xData, List<Double> yData, String title, String xLabel, String yLabel) {
-            this.xData = xData;
-            this.yData = yData;
+        public GraphPanel(int channel, String title, String xLabel, String yLabel) {
+            this.channel = channel;
             this.title = title;
             this.xLabel = xLabel;
             this.yLabel = yLabel;
@@ -84,7 +116,7 @@ public class DataWindow extends JFrame implements RocketObserver {
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (xData.isEmpty() || yData.isEmpty()) return;
+            if (series.size() == 0) return;
 
             Graphics2D g2 = (Graphics2D) g;
 
@@ -95,10 +127,10 @@ public class DataWindow extends JFrame implements RocketObserver {
             int height = getHeight();
 
             double xMax = maxTime;
-            double yMax = switch (title) {
-                case "Скорость" -> maxSpeed;
-                case "Высота" -> maxAltitude;
-                case "Масса" -> maxMass;
+            double yMax = switch (channel) {
+                case SPEED -> maxSpeed;
+                case ALTITUDE -> maxAltitude;
+                case MASS -> maxMass;
                 default -> 0;
             };
 
@@ -116,9 +148,9 @@ public class DataWindow extends JFrame implements RocketObserver {
             int prevX = padding;
             int prevY = height - padding;
 
-            for (int i = 0; i < xData.size(); i++) {
-                int x = padding + (int) (xData.get(i) * xScale);
-                int y = height - padding - (int) (yData.get(i) * yScale);
+            for (int i = 0; i < series.size(); i++) {
+                int x = padding + (int) (series.getTime(i) * xScale);
+                int y = height - padding - (int) (series.getValue(channel, i) * yScale);
 
                 g2.drawLine(prevX, prevY, x, y);
 
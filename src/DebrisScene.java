@@ -0,0 +1,255 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Отделившиеся ступени и обломки как баллистические тела. Состояние хранится в параллельных массивах,
+// активные тела всегда занимают индексы [0, activeCount), упавшие и ушедшие на орбиту вычищаются из них.
+// Масса каждого тела положительна: ступень без сухой массы и топлива не добавляется, падать нечему
+public class DebrisScene {
+
+    public static final class Impact {
+        private final int stageNumber;
+        private final double x;
+        private final double y;
+        private final double time;
+        private final boolean orbiting;
+
+        Impact(int stageNumber, double x, double y, double time, boolean orbiting) {
+            this.stageNumber = stageNumber;
+            this.x = x;
+            this.y = y;
+            this.time = time;
+            this.orbiting = orbiting;
+        }
+
+        public int getStageNumber() {
+            return stageNumber;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        // Тело не падает: перигей выше атмосферы, дальше не интегрируется
+        public boolean isOrbiting() {
+            return orbiting;
+        }
+    }
+
+    private static final double MU = PointMassGravity.MU;
+    private static final double ORBIT_RADIUS = RocketModel.EARTH_RADIUS + Atmosphere.DRAG_FREE_ALTITUDE;
+    // Период пересчёта прогноза падения, с
+    private static final double PREDICTION_INTERVAL = 5;
+
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+    private double[] vx = new double[16];
+    private double[] vy = new double[16];
+    private double[] mass = new double[16];
+    private double[] dragArea = new double[16];
+    private int[] stageNumber = new int[16];
+    private double[] impactX = new double[16];
+    private double[] impactY = new double[16];
+    private double[] impactTime = new double[16];
+    private int activeCount;
+    private double nextPrediction;
+
+    private final List<Impact> impacts = new ArrayList<>();
+    private int version;
+    private final double[] gravity = new double[2];
+    private final double[] crossing = new double[3];
+    private final double[] coastState = new double[4];
+
+    public void clear() {
+        activeCount = 0;
+        nextPrediction = 0;
+        impacts.clear();
+        version++;
+    }
+
+    // dragArea — произведение Cd на площадь миделя
+    public void add(int stage, double bodyMass, double x0, double y0, double vx0, double vy0, double bodyDragArea, double time) {
+        if (!(bodyMass > 0)) {
+            return;
+        }
+        if (activeCount == x.length) {
+            grow(activeCount * 2);
+        }
+        int i = activeCount++;
+        x[i] = x0;
+        y[i] = y0;
+        vx[i] = vx0;
+        vy[i] = vy0;
+        mass[i] = bodyMass;
+        dragArea[i] = bodyDragArea;
+        stageNumber[i] = stage;
+        predictImpact(i, time);
+        version++;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        dragArea = Arrays.copyOf(dragArea, capacity);
+        stageNumber = Arrays.copyOf(stageNumber, capacity);
+        impactX = Arrays.copyOf(impactX, capacity);
+        impactY = Arrays.copyOf(impactY, capacity);
+        impactTime = Arrays.copyOf(impactTime, capacity);
+    }
+
+    // Прогноз точки падения по вакуумной баллистической дуге из текущего состояния. В атмосфере это оценка:
+    // сопротивление укорачивает дугу, поэтому advance пересчитывает прогноз каждые PREDICTION_INTERVAL секунд,
+    // и к падению он сходится к точке, найденной интегрированием. Выше атмосферы прогноз точен до входа в неё
+    private void predictImpact(int i, double time) {
+        KeplerOrbit orbit = new KeplerOrbit(x[i], y[i], vx[i], vy[i], MU);
+        if (orbit.descendingCrossing(x[i], y[i], RocketModel.EARTH_RADIUS, crossing)) {
+            impactX[i] = crossing[0];
+            impactY[i] = crossing[1];
+            impactTime[i] = time + crossing[2];
+        } else {
+            impactX[i] = Double.NaN;
+            impactY[i] = Double.NaN;
+            impactTime[i] = Double.NaN;
+        }
+    }
+
+    // Один шаг полуявного Эйлера для всех активных тел с последующим уплотнением массивов
+    public void advance(double dt, double time, GravityModel gravityModel) {
+        int count = activeCount;
+        for (int i = 0; i < count; i++) {
+            double px = x[i];
+            double py = y[i];
+            double r = Math.sqrt(px * px + py * py);
+            gravityModel.acceleration(px, py, time, gravity);
+            double ax = gravity[0];
+            double ay = gravity[1];
+
+            double density = Atmosphere.density(r - RocketModel.EARTH_RADIUS);
+            if (density > 0) {
+                double speed = Math.sqrt(vx[i] * vx[i] + vy[i] * vy[i]);
+                double dragPerSpeed = 0.5 * density * speed * dragArea[i] / mass[i];
+                ax -= dragPerSpeed * vx[i];
+                ay -= dragPerSpeed * vy[i];
+            }
+
+            vx[i] += ax * dt;
+            vy[i] += ay * dt;
+            x[i] = px + vx[i] * dt;
+            y[i] = py + vy[i] * dt;
+        }
+
+        int i = 0;
+        while (i < activeCount) {
+            double r = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+            if (r <= RocketModel.EARTH_RADIUS) {
+                impacts.add(new Impact(stageNumber[i], x[i] / r * RocketModel.EARTH_RADIUS, y[i] / r * RocketModel.EARTH_RADIUS, time, false));
+                retire(i);
+            } else if (r > ORBIT_RADIUS && KeplerOrbit.periapsisRadius(x[i], y[i], vx[i], vy[i], MU) > ORBIT_RADIUS) {
+                impacts.add(new Impact(stageNumber[i], x[i], y[i], time, true));
+                retire(i);
+            } else {
+                i++;
+            }
+        }
+
+        if (time >= nextPrediction) {
+            for (int j = 0; j < activeCount; j++) {
+                predictImpact(j, time);
+            }
+            nextPrediction = time + PREDICTION_INTERVAL;
+        }
+    }
+
+    // Сколько секунд все активные тела можно вести по коническим сечениям: все выше радиуса radius и ни одно
+    // не опустится ниже него раньше. 0 — кто-то уже в атмосфере и его нужно интегрировать с сопротивлением
+    public double coastLimit(double radius) {
+        double limit = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < activeCount; i++) {
+            if (x[i] * x[i] + y[i] * y[i] <= radius * radius) {
+                return 0;
+            }
+            KeplerOrbit orbit = new KeplerOrbit(x[i], y[i], vx[i], vy[i], MU);
+            if (orbit.descendingCrossing(x[i], y[i], radius, crossing)) {
+                limit = Math.min(limit, crossing[2]);
+            } else if (Double.isNaN(crossing[2])) {
+                return 0;
+            }
+        }
+        return limit;
+    }
+
+    // Точный перелёт всех активных тел на duration секунд; допустим не дальше coastLimit и только при точечной гравитации
+    public void coast(double duration) {
+        for (int i = 0; i < activeCount; i++) {
+            coastState[0] = x[i];
+            coastState[1] = y[i];
+            coastState[2] = vx[i];
+            coastState[3] = vy[i];
+            KeplerOrbit.propagate(coastState, duration, MU);
+            x[i] = coastState[0];
+            y[i] = coastState[1];
+            vx[i] = coastState[2];
+            vy[i] = coastState[3];
+        }
+    }
+
+    // Перемещает последнее активное тело на место выбывшего
+    private void retire(int i) {
+        int last = --activeCount;
+        x[i] = x[last];
+        y[i] = y[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        mass[i] = mass[last];
+        dragArea[i] = dragArea[last];
+        stageNumber[i] = stageNumber[last];
+        impactX[i] = impactX[last];
+        impactY[i] = impactY[last];
+        impactTime[i] = impactTime[last];
+        version++;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    // Изменяется при каждом добавлении и выбывании тела
+    public int getVersion() {
+        return version;
+    }
+
+    // Пары координат активных тел
+    public double[] copyActivePositions() {
+        double[] positions = new double[activeCount * 2];
+        for (int i = 0; i < activeCount; i++) {
+            positions[2 * i] = x[i];
+            positions[2 * i + 1] = y[i];
+        }
+        return positions;
+    }
+
+    // Пары координат прогнозируемых точек падения активных тел (NaN, если тело не падает)
+    public double[] copyPredictedImpacts() {
+        double[] positions = new double[activeCount * 2];
+        for (int i = 0; i < activeCount; i++) {
+            positions[2 * i] = impactX[i];
+            positions[2 * i + 1] = impactY[i];
+        }
+        return positions;
+    }
+
+    public List<Impact> getImpacts() {
+        return new ArrayList<>(impacts);
+    }
+}
@@ -0,0 +1,75 @@
+// Прореженная копия истории для отрисовки: в куче не больше capacity точек. Новые отсчёты дописываются по одному,
+// последний всегда виден; когда буфер заполняется, каждая вторая точка выбрасывается и шаг прореживания удваивается
+public final class DecimatedSeries {
+    private final int capacity;
+    private final double[] times;
+    private final double[][] values;
+    private int size;
+    private int stride = 1;
+    private long counter;
+    // Последняя точка лежит вне сетки прореживания и будет заменена следующей
+    private boolean provisional;
+
+    public DecimatedSeries(int channelCount, int capacity) {
+        this.capacity = capacity;
+        this.times = new double[capacity];
+        this.values = new double[channelCount][capacity];
+    }
+
+    public void clear() {
+        size = 0;
+        stride = 1;
+        counter = 0;
+        provisional = false;
+    }
+
+    // Перечитывает историю целиком с прореживанием до половины ёмкости
+    public void rebuild(TelemetryHistory history) {
+        clear();
+        if (!history.isEmpty()) {
+            history.forEachDecimated(history.getFirstTime(), history.getLatestTime(), capacity / 2, this::append);
+        }
+    }
+
+    public void append(double time, double[] sample) {
+        if (provisional) {
+            size--;
+        }
+        times[size] = time;
+        for (int channel = 0; channel < values.length; channel++) {
+            values[channel][size] = sample[channel];
+        }
+        size++;
+        provisional = counter++ % stride != 0;
+        if (size == capacity) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < size; i += 2) {
+            times[kept] = times[i];
+            for (double[] channel : values) {
+                channel[kept] = channel[i];
+            }
+            kept++;
+        }
+        size = kept;
+        stride *= 2;
+        counter = 1;
+        provisional = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getTime(int index) {
+        return times[index];
+    }
+
+    public double getValue(int channel, int index) {
+        return values[channel][index];
+    }
+}
@@ -0,0 +1,157 @@
+import java.util.Arrays;
+
+// Дуальное число для прямого автоматического дифференцирования: значение и производные по n параметрам.
+// Значение считается теми же операциями double, что и в обычном коде, поэтому совпадает с ним до последнего бита.
+// Сравнения и ветвления идут по значению: производная через дискретное решение (например, выключение двигателя
+// автопилотом на целом такте) не учитывается
+public final class Dual {
+
+    private final double value;
+    private final double[] derivatives;
+
+    private Dual(double value, double[] derivatives) {
+        this.value = value;
+        this.derivatives = derivatives;
+    }
+
+    public static Dual constant(double value, int parameters) {
+        return new Dual(value, new double[parameters]);
+    }
+
+    // Параметр номер index: его производная по самому себе равна единице
+    public static Dual variable(double value, int index, int parameters) {
+        double[] derivatives = new double[parameters];
+        derivatives[index] = 1;
+        return new Dual(value, derivatives);
+    }
+
+    // Значение функции f(x) с известной производной f'(x) по цепному правилу
+    private Dual chain(double result, double slope) {
+        double[] out = new double[derivatives.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = slope * derivatives[i];
+        }
+        return new Dual(result, out);
+    }
+
+    public double value() {
+        return value;
+    }
+
+    public double derivative(int index) {
+        return derivatives[index];
+    }
+
+    public int parameters() {
+        return derivatives.length;
+    }
+
+    public Dual plus(Dual other) {
+        double[] out = new double[derivatives.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = derivatives[i] + other.derivatives[i];
+        }
+        return new Dual(value + other.value, out);
+    }
+
+    public Dual plus(double constant) {
+        return new Dual(value + constant, derivatives);
+    }
+
+    public Dual minus(Dual other) {
+        double[] out = new double[derivatives.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = derivatives[i] - other.derivatives[i];
+        }
+        return new Dual(value - other.value, out);
+    }
+
+    public Dual minus(double constant) {
+        return new Dual(value - constant, derivatives);
+    }
+
+    // constant - this
+    public Dual subtractFrom(double constant) {
+        return chain(constant - value, -1);
+    }
+
+    public Dual times(Dual other) {
+        double[] out = new double[derivatives.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = derivatives[i] * other.value + value * other.derivatives[i];
+        }
+        return new Dual(value * other.value, out);
+    }
+
+    public Dual times(double constant) {
+        return chain(value * constant, constant);
+    }
+
+    public Dual div(Dual other) {
+        double quotient = value / other.value;
+        double[] out = new double[derivatives.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (derivatives[i] - quotient * other.derivatives[i]) / other.value;
+        }
+        return new Dual(quotient, out);
+    }
+
+    public Dual div(double constant) {
+        return chain(value / constant, 1 / constant);
+    }
+
+    // constant / this
+    public Dual divideInto(double constant) {
+        double quotient = constant / value;
+        return chain(quotient, -quotient / value);
+    }
+
+    public Dual negate() {
+        return chain(-value, -1);
+    }
+
+    // В нуле производная корня бесконечна; как и для atan2 в начале координат, берётся нулевая
+    public Dual sqrt() {
+        double root = Math.sqrt(value);
+        return chain(root, root > 0 ? 0.5 / root : 0);
+    }
+
+    public Dual log() {
+        return chain(Math.log(value), 1 / value);
+    }
+
+    public Dual sin() {
+        return chain(Math.sin(value), Math.cos(value));
+    }
+
+    public Dual cos() {
+        return chain(Math.cos(value), -Math.sin(value));
+    }
+
+    // Сдвиг на константу не меняет производных: для приведения углов к диапазону
+    public Dual withValue(double shifted) {
+        return new Dual(shifted, derivatives);
+    }
+
+    public static Dual atan2(Dual y, Dual x) {
+        double denominator = x.value * x.value + y.value * y.value;
+        double[] out = new double[y.derivatives.length];
+        for (int i = 0; i < out.length && denominator > 0; i++) {
+            out[i] = (x.value * y.derivatives[i] - y.value * x.derivatives[i]) / denominator;
+        }
+        return new Dual(Math.atan2(y.value, x.value), out);
+    }
+
+    public static Dual min(Dual a, Dual b) {
+        return a.value <= b.value ? a : b;
+    }
+
+    public static Dual max(Dual a, Dual b) {
+        return a.value >= b.value ? a : b;
+    }
+
+    @Override
+    public String toString() {
+        return value + " " + Arrays.toString(derivatives);
+    }
+}
@@ -0,0 +1,477 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Полёт, посчитанный на дуальных числах: та же динамика, что у RocketModel в Java (тяга с расходом по ступеням,
+// точечная гравитация, сопротивление, наведение STABLE_ORBIT и MAX_DISTANCE), но каждое число несёт ещё и
+// производные по выбранным параметрам ракеты. Один прогон даёт итог полёта вместе с точным градиентом,
+// вместо 2N прогонов для конечных разностей по N параметрам.
+// Параметры: payload, target, stageI, fuelI, flowI, exhaustI (I — индекс в массивах FlightConfig, 0 — верхняя ступень).
+// Полёт заканчивается, когда тяги больше не будет и ракета выше атмосферы (дальше RocketModel летит по коническому
+// сечению и апсиды не меняются), при падении или по истечении времени.
+// Моменты переключения двигателя автопилотом привязаны к тактам, и производные не учитывают их сдвиг с параметрами;
+// выгорание ступени ровно на границе такта — излом, где производная слева и справа разная. Такие полёты не
+// дифференцируемы по параметрам, Outcome.isDifferentiable() для них false, и градиент не выводится
+public final class DualFlight {
+
+    // Итог полёта; апсиды — высоты над поверхностью последнего участка перед концом полёта
+    public static final class Outcome {
+        private final List<String> parameters;
+        private final double time;
+        private final boolean landed;
+        private final Dual apoapsis;
+        private final Dual periapsis;
+        private final Dual remainingFuel;
+        private final Dual[] state;
+        private final long eventSignature;
+        private final int engineSwitches;
+        private final int boundaryBurnouts;
+
+        private Outcome(List<String> parameters, double time, boolean landed, Dual apoapsis, Dual periapsis, Dual remainingFuel, Dual[] state,
+                        long eventSignature, int engineSwitches, int boundaryBurnouts) {
+            this.parameters = parameters;
+            this.time = time;
+            this.landed = landed;
+            this.apoapsis = apoapsis;
+            this.periapsis = periapsis;
+            this.remainingFuel = remainingFuel;
+            this.state = state;
+            this.eventSignature = eventSignature;
+            this.engineSwitches = engineSwitches;
+            this.boundaryBurnouts = boundaryBurnouts;
+        }
+
+        // Свёртка тактов отделения ступеней и переключения двигателя. Если у двух прогонов она разная, дискретная
+        // часть полёта разошлась, и разность их значений — скачок, а не производная
+        public long getEventSignature() {
+            return eventSignature;
+        }
+
+        // Сколько раз автопилот включал или выключал двигатель
+        public int getEngineSwitches() {
+            return engineSwitches;
+        }
+
+        // Сколько ступеней выгорело на границе такта
+        public int getBoundaryBurnouts() {
+            return boundaryBurnouts;
+        }
+
+        public boolean isDifferentiable() {
+            return engineSwitches == 0 && boundaryBurnouts == 0;
+        }
+
+        public List<String> getParameters() {
+            return parameters;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        public boolean isLanded() {
+            return landed;
+        }
+
+        public Dual getApoapsis() {
+            return apoapsis;
+        }
+
+        public Dual getPeriapsis() {
+            return periapsis;
+        }
+
+        public Dual getRemainingFuel() {
+            return remainingFuel;
+        }
+
+        // {x, y, vx, vy} в конце полёта
+        public Dual[] getState() {
+            return state.clone();
+        }
+    }
+
+    private static final double MAX_ANGLE_CHANGE_RATE = 10.0;
+    private static final double COAST_RADIUS = RocketModel.EARTH_RADIUS + Atmosphere.DRAG_FREE_ALTITUDE;
+    private static final double MU = PointMassGravity.MU;
+    private static final double DEGREES_TO_RADIANS = Math.toRadians(1);
+    private static final double RADIANS_TO_DEGREES = Math.toDegrees(1);
+    // Доля такта, ближе которой к его границе выгорание ступени считается изломом
+    private static final double BOUNDARY_FRACTION = 1e-6;
+
+    private final List<String> parameters;
+    private final int n;
+    private final Dual payloadMass;
+    private final Dual[] stageMasses;
+    private final Dual[] initialFuelMasses;
+    private final Dual[] massFlowRates;
+    private final Dual[] exhaustVelocities;
+    private final Dual targetOrbitAltitude;
+    private final double deltaTime;
+    private final double dragCoefficient;
+    private final double referenceArea;
+    private final double nozzleExitArea;
+    private final RocketController.AutopilotMode autopilotMode;
+    private final MultiRateScheduler scheduler = new MultiRateScheduler();
+
+    private Dual currentMass;
+    private Dual x;
+    private Dual y;
+    private Dual vx;
+    private Dual vy;
+    private Dual speed;
+    private Dual rocketAngle;
+    private Dual guidanceTargetAngle;
+    private boolean engineOn = true;
+    private Dual[] fuelMasses;
+    private int remainingStages;
+    private double simulationTime;
+    private long tick;
+    private long eventSignature;
+    private int engineSwitches;
+    private int boundaryBurnouts;
+
+    public DualFlight(FlightConfig config, List<String> parameters) {
+        if (!GravityModel.POINT_MASS.equals(config.getGravityModel())) {
+            throw new IllegalArgumentException("Дуальный расчёт поддерживает только точечную гравитацию.");
+        }
+        if (config.isUseGuidanceTable() || config.isUseNativeCode()) {
+            throw new IllegalArgumentException("Дуальный расчёт не поддерживает таблицу наведения и нативный код.");
+        }
+        this.parameters = List.copyOf(parameters);
+        this.n = parameters.size();
+        payloadMass = parameter("payload", config.getPayloadMass());
+        targetOrbitAltitude = parameter("target", config.getTargetOrbitAltitude());
+        stageMasses = parameters("stage", config.getStageMasses());
+        initialFuelMasses = parameters("fuel", config.getFuelMasses());
+        massFlowRates = parameters("flow", config.getMassFlowRates());
+        exhaustVelocities = parameters("exhaust", config.getExhaustVelocities());
+        for (String name : parameters) {
+            if (!isKnown(name, config)) {
+                throw new IllegalArgumentException("Неизвестный параметр: " + name);
+            }
+        }
+        deltaTime = config.getCycleDelay() / 1000.0;
+        dragCoefficient = config.getDragCoefficient();
+        referenceArea = config.getReferenceArea();
+        nozzleExitArea = config.getNozzleExitArea();
+        autopilotMode = config.getAutopilotMode();
+        scheduler.setRate(MultiRateScheduler.Task.GUIDANCE, config.getGuidanceRate());
+    }
+
+    private static boolean isKnown(String name, FlightConfig config) {
+        if (name.equals("payload") || name.equals("target")) {
+            return true;
+        }
+        String[] prefixes = {"stage", "fuel", "flow", "exhaust"};
+        int[] lengths = {config.getStageMasses().length, config.getFuelMasses().length, config.getMassFlowRates().length,
+                config.getExhaustVelocities().length};
+        for (int i = 0; i < prefixes.length; i++) {
+            if (name.startsWith(prefixes[i]) && name.length() > prefixes[i].length()) {
+                try {
+                    int index = Integer.parseInt(name.substring(prefixes[i].length()));
+                    return index >= 0 && index < lengths[i];
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Dual parameter(String name, double value) {
+        int index = parameters.indexOf(name);
+        return index >= 0 ? Dual.variable(value, index, n) : Dual.constant(value, n);
+    }
+
+    private Dual[] parameters(String prefix, double[] values) {
+        Dual[] result = new Dual[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = parameter(prefix + i, values[i]);
+        }
+        return result;
+    }
+
+    // Все параметры конфигурации, по которым можно дифференцировать
+    public static List<String> allParameters(FlightConfig config) {
+        List<String> names = new ArrayList<>(List.of("payload", "target"));
+        for (int i = 0; i < config.getStageMasses().length; i++) {
+            names.add("stage" + i);
+            names.add("fuel" + i);
+        }
+        for (int i = 0; i < config.getMassFlowRates().length; i++) {
+            names.add("flow" + i);
+        }
+        for (int i = 0; i < config.getExhaustVelocities().length; i++) {
+            names.add("exhaust" + i);
+        }
+        return names;
+    }
+
+    public Outcome run(double maxSimulationTime) {
+        remainingStages = stageMasses.length;
+        fuelMasses = initialFuelMasses.clone();
+        currentMass = payloadMass;
+        for (int i = 0; i < stageMasses.length; i++) {
+            currentMass = currentMass.plus(stageMasses[i]);
+        }
+        for (Dual fuel : fuelMasses) {
+            currentMass = currentMass.plus(fuel);
+        }
+        x = Dual.constant(0, n);
+        y = Dual.constant(RocketModel.EARTH_RADIUS, n);
+        vx = Dual.constant(0, n);
+        vy = Dual.constant(0, n);
+        speed = Dual.constant(0, n);
+        rocketAngle = Dual.constant(0, n);
+        guidanceTargetAngle = rocketAngle;
+        simulationTime = 0;
+        tick = 0;
+        eventSignature = 0;
+        engineSwitches = 0;
+        boundaryBurnouts = 0;
+        scheduler.reset();
+
+        Dual[] lastFlying = {x, y, vx, vy};
+        boolean landed = false;
+        while (simulationTime < maxSimulationTime && !coasting()) {
+            lastFlying = new Dual[]{x, y, vx, vy};
+            if (!step()) {
+                landed = true;
+                break;
+            }
+        }
+        Dual[] state = landed ? lastFlying : new Dual[]{x, y, vx, vy};
+        Dual[] apsides = apsides(state);
+        Dual remainingFuel = Dual.constant(0, n);
+        for (int i = 0; i < remainingStages; i++) {
+            remainingFuel = remainingFuel.plus(fuelMasses[i]);
+        }
+        return new Outcome(parameters, simulationTime, landed, apsides[0], apsides[1], remainingFuel, state, eventSignature,
+                engineSwitches, boundaryBurnouts);
+    }
+
+    // То же условие, при котором RocketModel переходит на коническое сечение
+    private boolean coasting() {
+        boolean canThrust = remainingStages > 0 && massFlowRate(remainingStages - 1).value() > 0
+                && (engineOn || autopilotMode != RocketController.AutopilotMode.MANUAL);
+        double r2 = x.value() * x.value() + y.value() * y.value();
+        return !canThrust && r2 > COAST_RADIUS * COAST_RADIUS;
+    }
+
+    // Шаг RocketModel.updateRocketState в Java-ветке; false — ракета упала
+    private boolean step() {
+        simulationTime += deltaTime;
+        tick++;
+        if (remainingStages == 0 && engineOn) {
+            setEngineOn(false);
+        }
+
+        currentMass = payloadMass;
+        for (int i = 0; i < remainingStages; i++) {
+            currentMass = currentMass.plus(stageMasses[i].plus(fuelMasses[i]));
+        }
+
+        Dual r = x.times(x).plus(y.times(y)).sqrt();
+        Dual nx = x.div(r);
+        Dual ny = y.div(r);
+        Dual tx = ny.negate();
+        Dual ty = nx;
+
+        Dual altitude = r.minus(RocketModel.EARTH_RADIUS);
+        Dual thrustDeltaV = engineOn && remainingStages > 0 ? burn(altitude) : Dual.constant(0, n);
+        Dual thrust = thrustDeltaV.div(deltaTime).times(currentMass);
+
+        Dual speedSquared = vx.times(vx).plus(vy.times(vy));
+        Dual density = atmosphere(altitude, Atmosphere.density(altitude.value()), Atmosphere.densitySlope(altitude.value()));
+        Dual dynamicPressure = density.times(0.5).times(speedSquared);
+        Dual dragAx = Dual.constant(0, n);
+        Dual dragAy = Dual.constant(0, n);
+        if (speedSquared.value() > 0) {
+            Dual dragPerSpeed = dynamicPressure.times(dragCoefficient).times(referenceArea).div(currentMass.times(speedSquared.sqrt()));
+            dragAx = dragPerSpeed.negate().times(vx);
+            dragAy = dragPerSpeed.negate().times(vy);
+        }
+
+        updateRocketAngle();
+
+        Dual angleRad = rocketAngle.times(DEGREES_TO_RADIANS);
+        Dual cosAngle = angleRad.cos();
+        Dual sinAngle = angleRad.sin();
+
+        Dual thrustX = thrust.times(cosAngle.times(nx).plus(sinAngle.times(tx)));
+        Dual thrustY = thrust.times(cosAngle.times(ny).plus(sinAngle.times(ty)));
+
+        Dual gr = x.times(x).plus(y.times(y)).sqrt();
+        Dual gravityMagnitude = gr.times(gr).divideInto(MU);
+        Dual gx = gravityMagnitude.negate().times(x.div(gr));
+        Dual gy = gravityMagnitude.negate().times(y.div(gr));
+
+        Dual ax = thrustX.div(currentMass).plus(gx).plus(dragAx);
+        Dual ay = thrustY.div(currentMass).plus(gy).plus(dragAy);
+
+        vx = vx.plus(ax.times(deltaTime));
+        vy = vy.plus(ay.times(deltaTime));
+
+        x = x.plus(vx.times(deltaTime));
+        y = y.plus(vy.times(deltaTime));
+
+        speed = vx.times(vx).plus(vy.times(vy)).sqrt();
+
+        return Math.sqrt(x.value() * x.value() + y.value() * y.value()) > RocketModel.EARTH_RADIUS;
+    }
+
+    // Табличная величина атмосферы как функция высоты: значение и наклон отрезка интерполяции
+    private static Dual atmosphere(Dual altitude, double value, double slope) {
+        return altitude.times(slope).withValue(value);
+    }
+
+    private Dual burn(Dual altitude) {
+        Dual pressureForce = atmosphere(altitude, Atmosphere.pressure(altitude.value()), Atmosphere.pressureSlope(altitude.value()))
+                .times(nozzleExitArea);
+        Dual deltaV = Dual.constant(0, n);
+        Dual timeLeft = Dual.constant(deltaTime, n);
+        while (timeLeft.value() > 0 && remainingStages > 0) {
+            int stage = remainingStages - 1;
+            Dual massFlowRate = massFlowRate(stage);
+            if (massFlowRate.value() <= 0) {
+                break;
+            }
+            Dual burnTime = Dual.min(timeLeft, fuelMasses[stage].div(massFlowRate));
+            Dual burned = Dual.min(fuelMasses[stage], massFlowRate.times(burnTime));
+            Dual massBefore = currentMass;
+            fuelMasses[stage] = fuelMasses[stage].minus(burned);
+            currentMass = currentMass.minus(burned);
+            Dual effectiveExhaustVelocity = Dual.max(Dual.constant(0, n), exhaustVelocity(stage).minus(pressureForce.div(massFlowRate)));
+            deltaV = deltaV.plus(effectiveExhaustVelocity.times(massBefore.div(currentMass).log()));
+            timeLeft = timeLeft.minus(burnTime);
+            if (fuelMasses[stage].value() > 0) {
+                break;
+            }
+            double elapsed = deltaTime - timeLeft.value();
+            if (elapsed < BOUNDARY_FRACTION * deltaTime || timeLeft.value() < BOUNDARY_FRACTION * deltaTime) {
+                boundaryBurnouts++;
+            }
+            fuelMasses[stage] = Dual.constant(0, n);
+            remainingStages--;
+            recordEvent();
+            currentMass = currentMass.minus(stageMasses[stage]);
+        }
+        return deltaV;
+    }
+
+    private void setEngineOn(boolean on) {
+        if (engineOn != on) {
+            engineOn = on;
+            recordEvent();
+        }
+    }
+
+    private void recordEvent() {
+        eventSignature = eventSignature * 31 + tick;
+    }
+
+    private Dual massFlowRate(int stage) {
+        return massFlowRates[Math.min(stage, massFlowRates.length - 1)];
+    }
+
+    private Dual exhaustVelocity(int stage) {
+        return exhaustVelocities[Math.min(stage, exhaustVelocities.length - 1)];
+    }
+
+    private void updateRocketAngle() {
+        if (autopilotMode == RocketController.AutopilotMode.MANUAL) {
+            return;
+        }
+        if (scheduler.isDue(MultiRateScheduler.Task.GUIDANCE, simulationTime)) {
+            guidanceTargetAngle = autopilotMode == RocketController.AutopilotMode.MAX_DISTANCE
+                    ? Dual.constant(45, n) : calculateOrbitAngle();
+        }
+        rocketAngle = approachTargetAngle(rocketAngle, guidanceTargetAngle);
+    }
+
+    private Dual approachTargetAngle(Dual currentAngle, Dual targetAngle) {
+        Dual angleDifference = normalizeAngle(targetAngle.minus(currentAngle));
+        double maxAngleChange = MAX_ANGLE_CHANGE_RATE * deltaTime;
+        if (Math.abs(angleDifference.value()) > maxAngleChange) {
+            currentAngle = currentAngle.plus(Math.signum(angleDifference.value()) * maxAngleChange);
+        } else {
+            currentAngle = targetAngle;
+        }
+        return normalizeAngle(currentAngle);
+    }
+
+    private static Dual normalizeAngle(Dual angle) {
+        double value = angle.value() % 360;
+        if (value < -180) value += 360;
+        if (value > 180) value -= 360;
+        return angle.withValue(value);
+    }
+
+    private Dual calculateOrbitAngle() {
+        Dual r = x.times(x).plus(y.times(y)).sqrt();
+        Dual currentAltitude = r.minus(RocketModel.EARTH_RADIUS);
+
+        Dual gravityMagnitude = r.times(r).divideInto(MU);
+        Dual gy = gravityMagnitude.times(y.div(r));
+
+        Dual earthAngleRad = Dual.atan2(x, y).negate();
+        Dual earthAngle = earthAngleRad.times(RADIANS_TO_DEGREES);
+        Dual speedAngle = Dual.atan2(vx, vy).negate();
+        Dual sinSpeedEarth = speedAngle.minus(earthAngleRad).cos();
+        Dual rocketMaxAltitude = speed.times(speed).times(sinSpeedEarth).times(sinSpeedEarth).div(gy.times(2)).plus(currentAltitude);
+
+        if (rocketMaxAltitude.value() < 0) {
+            return Dual.constant(0, n);
+        }
+        if (rocketMaxAltitude.value() < targetOrbitAltitude.value()) {
+            Dual ratio = rocketMaxAltitude.div(targetOrbitAltitude);
+            return ratio.times(90).plus(earthAngle);
+        }
+        Dual requiredOrbitVelocity = r.divideInto(MU).sqrt();
+        Dual currentVelocity = speed.times(speedAngle.minus(earthAngleRad).sin());
+        Dual ratio = rocketMaxAltitude.minus(targetOrbitAltitude).div(targetOrbitAltitude);
+        boolean on = !(currentVelocity.value() >= requiredOrbitVelocity.value() && currentVelocity.value() <= requiredOrbitVelocity.value() * 1.01);
+        if (on != engineOn) {
+            engineSwitches++;
+        }
+        setEngineOn(on);
+        return ratio.times(90).plus(90).plus(earthAngle);
+    }
+
+    // Высоты апоцентра и перицентра по энергии и моменту импульса; для незамкнутой орбиты апоцентр бесконечен
+    private Dual[] apsides(Dual[] state) {
+        Dual r = state[0].times(state[0]).plus(state[1].times(state[1])).sqrt();
+        Dual energy = state[2].times(state[2]).plus(state[3].times(state[3])).times(0.5).minus(r.divideInto(MU));
+        Dual momentum = state[0].times(state[3]).minus(state[1].times(state[2]));
+        Dual eccentricity = energy.times(2).times(momentum).times(momentum).div(MU * MU).plus(1);
+        eccentricity = eccentricity.value() > 0 ? eccentricity.sqrt() : Dual.constant(0, n);
+        Dual semiMajorAxis = energy.times(2).divideInto(-MU);
+        // Для гиперболы перицентр тот же a(1 - e) с отрицательной полуосью
+        Dual periapsis = semiMajorAxis.times(eccentricity.subtractFrom(1)).minus(RocketModel.EARTH_RADIUS);
+        Dual apoapsis = energy.value() < 0
+                ? semiMajorAxis.times(eccentricity.plus(1)).minus(RocketModel.EARTH_RADIUS)
+                : Dual.constant(Double.POSITIVE_INFINITY, n);
+        return new Dual[]{apoapsis, periapsis};
+    }
+
+    public static String format(Outcome outcome) {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "t=%.1f с%s%n", outcome.time, outcome.landed ? ", упала" : ""));
+        String[] names = {"апоцентр (м)", "перицентр (м)", "остаток топлива (кг)"};
+        Dual[] values = {outcome.apoapsis, outcome.periapsis, outcome.remainingFuel};
+        for (int i = 0; i < values.length; i++) {
+            text.append(String.format(Locale.ROOT, "%-22s %.6g%n", names[i], values[i].value()));
+            if (!outcome.isDifferentiable()) {
+                continue;
+            }
+            for (int p = 0; p < outcome.parameters.size(); p++) {
+                text.append(String.format(Locale.ROOT, "    d/d %-10s %.6g%n", outcome.parameters.get(p), values[i].derivative(p)));
+            }
+        }
+        if (!outcome.isDifferentiable()) {
+            text.append(String.format(Locale.ROOT, "Производные не выводятся: автопилот переключал двигатель %d раз, "
+                    + "ступеней выгорело на границе такта %d%n", outcome.engineSwitches, outcome.boundaryBurnouts));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,93 @@
+// Положения Луны и Солнца относительно центра Земли в плоскости симуляции.
+// Кеплеровы орбиты со средними элементами решаются один раз при построении таблицы,
+// дальше положение берётся линейной интерполяцией по узлам с шагом STEP.
+public final class Ephemeris {
+
+    public static final double STEP = 600;
+    public static final double SPAN = 400 * 86400.0;
+
+    private static final double MOON_SEMI_MAJOR_AXIS = 384_400_000;
+    private static final double MOON_ECCENTRICITY = 0.0549;
+    private static final double MOON_PERIOD = 27.321661 * 86400;
+    private static final double MOON_MEAN_ANOMALY_AT_START = 0;
+
+    private static final double SUN_SEMI_MAJOR_AXIS = 1.495978707e11;
+    private static final double SUN_ECCENTRICITY = 0.0167;
+    private static final double SUN_PERIOD = 365.256363 * 86400;
+    private static final double SUN_MEAN_ANOMALY_AT_START = Math.PI / 3;
+
+    private static volatile Ephemeris instance;
+
+    private final int size;
+    private final double[] moonX;
+    private final double[] moonY;
+    private final double[] sunX;
+    private final double[] sunY;
+
+    private Ephemeris() {
+        size = (int) (SPAN / STEP) + 2;
+        moonX = new double[size];
+        moonY = new double[size];
+        sunX = new double[size];
+        sunY = new double[size];
+        double[] position = new double[2];
+        for (int i = 0; i < size; i++) {
+            double time = i * STEP;
+            keplerPosition(MOON_SEMI_MAJOR_AXIS, MOON_ECCENTRICITY, MOON_PERIOD, MOON_MEAN_ANOMALY_AT_START, time, position);
+            moonX[i] = position[0];
+            moonY[i] = position[1];
+            keplerPosition(SUN_SEMI_MAJOR_AXIS, SUN_ECCENTRICITY, SUN_PERIOD, SUN_MEAN_ANOMALY_AT_START, time, position);
+            sunX[i] = position[0];
+            sunY[i] = position[1];
+        }
+    }
+
+    public static Ephemeris getInstance() {
+        Ephemeris result = instance;
+        if (result == null) {
+            synchronized (Ephemeris.class) {
+                result = instance;
+                if (result == null) {
+                    result = new Ephemeris();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    static void keplerPosition(double semiMajorAxis, double eccentricity, double period, double meanAnomalyAtStart, double time, double[] out) {
+        double meanAnomaly = meanAnomalyAtStart + 2 * Math.PI * time / period;
+        double eccentricAnomaly = meanAnomaly;
+        for (int i = 0; i < 10; i++) {
+            eccentricAnomaly -= (eccentricAnomaly - eccentricity * Math.sin(eccentricAnomaly) - meanAnomaly)
+                    / (1 - eccentricity * Math.cos(eccentricAnomaly));
+        }
+        out[0] = semiMajorAxis * (Math.cos(eccentricAnomaly) - eccentricity);
+        out[1] = semiMajorAxis * Math.sqrt(1 - eccentricity * eccentricity) * Math.sin(eccentricAnomaly);
+    }
+
+    public double moonX(double time) {
+        return interpolate(moonX, time);
+    }
+
+    public double moonY(double time) {
+        return interpolate(moonY, time);
+    }
+
+    public double sunX(double time) {
+        return interpolate(sunX, time);
+    }
+
+    public double sunY(double time) {
+        return interpolate(sunY, time);
+    }
+
+    // За пределами таблицы положения тел фиксируются на её границах
+    private double interpolate(double[] table, double time) {
+        double position = Math.max(0, Math.min(time, SPAN)) / STEP;
+        int i = (int) position;
+        double t = position - i;
+        return table[i] + (table[i + 1] - table[i]) * t;
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Locale;
+
+// Запас характеристической скорости по формуле Циолковского: для каждой ступени масса при включении и после
+// выгорания, время работы и тяговооружённость при включении (тяга в пустоте). Считается мгновенно, без полёта
+public final class FlightBudget {
+
+    public static final double G0 = 9.80665;
+    // Примерно столько нужно на низкую орбиту с гравитационными и аэродинамическими потерями
+    public static final double LOW_ORBIT_DELTA_V = 9400;
+
+    private final double[] deltaV;
+    private final double[] burnTime;
+    private final double[] thrustToWeight;
+    private final double totalDeltaV;
+    private final double totalBurnTime;
+
+    private FlightBudget(double[] deltaV, double[] burnTime, double[] thrustToWeight) {
+        this.deltaV = deltaV;
+        this.burnTime = burnTime;
+        this.thrustToWeight = thrustToWeight;
+        double total = 0;
+        double time = 0;
+        for (int i = 0; i < deltaV.length; i++) {
+            total += deltaV[i];
+            time += burnTime[i];
+        }
+        this.totalDeltaV = total;
+        this.totalBurnTime = time;
+    }
+
+    // Ступени работают от последней в массиве к нулевой, как в RocketModel
+    public static FlightBudget of(FlightConfig config) {
+        double[] stageMasses = config.getStageMasses();
+        double[] fuelMasses = config.getFuelMasses();
+        double[] massFlowRates = config.getMassFlowRates();
+        double[] exhaustVelocities = config.getExhaustVelocities();
+        int stages = stageMasses.length;
+        double[] deltaV = new double[stages];
+        double[] burnTime = new double[stages];
+        double[] thrustToWeight = new double[stages];
+
+        double mass = config.getPayloadMass();
+        for (int i = 0; i < stages; i++) {
+            mass += stageMasses[i] + fuelMasses[i];
+        }
+        for (int i = stages - 1; i >= 0; i--) {
+            double massFlowRate = massFlowRates[Math.min(i, massFlowRates.length - 1)];
+            double exhaustVelocity = exhaustVelocities[Math.min(i, exhaustVelocities.length - 1)];
+            if (massFlowRate > 0 && mass > fuelMasses[i]) {
+                deltaV[i] = exhaustVelocity * Math.log(mass / (mass - fuelMasses[i]));
+                burnTime[i] = fuelMasses[i] / massFlowRate;
+                thrustToWeight[i] = massFlowRate * exhaustVelocity / (mass * G0);
+            }
+            mass -= stageMasses[i] + fuelMasses[i];
+        }
+        return new FlightBudget(deltaV, burnTime, thrustToWeight);
+    }
+
+    public int getStageCount() {
+        return deltaV.length;
+    }
+
+    public double getDeltaV(int stage) {
+        return deltaV[stage];
+    }
+
+    public double getBurnTime(int stage) {
+        return burnTime[stage];
+    }
+
+    public double getThrustToWeight(int stage) {
+        return thrustToWeight[stage];
+    }
+
+    public double getTotalDeltaV() {
+        return totalDeltaV;
+    }
+
+    public double getTotalBurnTime() {
+        return totalBurnTime;
+    }
+
+    // Номера ступеней как в окне настроек, в порядке работы
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        for (int i = deltaV.length - 1; i >= 0; i--) {
+            text.append(String.format(Locale.ROOT, "Ступень %d: Δv %6.0f м/с, работа %6.1f с, тяговооружённость %5.2f%n",
+                    i + 1, deltaV[i], burnTime[i], thrustToWeight[i]));
+        }
+        text.append(String.format(Locale.ROOT, "Всего: Δv %.0f м/с (на низкую орбиту нужно ≈ %.0f), работа %.1f с",
+                totalDeltaV, LOW_ORBIT_DELTA_V, totalBurnTime));
+        if (deltaV.length > 0 && thrustToWeight[deltaV.length - 1] <= 1) {
+            text.append(String.format(Locale.ROOT, "%nТяговооружённость первой ступени не больше 1: ракета не взлетит"));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.Arrays;
+
+// Полный набор настроек одного полёта; значения по умолчанию совпадают с окном настроек
+public class FlightConfig {
+    private double payloadMass = 10;
+    private double[] stageMasses = {5, 5, 5};
+    private double[] fuelMasses = {3, 3, 3};
+    private double[] massFlowRates = {0.1, 0.1, 0.1};
+    private double[] exhaustVelocities = {3500, 3500, 3500};
+    private int cycleDelay = 100;
+    private RocketController.AutopilotMode autopilotMode = RocketController.AutopilotMode.MANUAL;
+    private double targetOrbitAltitude = 200000;
+    private double dragCoefficient = 0.5;
+    private double referenceArea = 0.01;
+    private double nozzleExitArea = 0.0001;
+    private boolean useNativeCode = false;
+    private String gravityModel = GravityModel.POINT_MASS;
+    private boolean useGuidanceTable = false;
+    // Частоты задач модели в Гц, 0 — на каждом шаге физики
+    private double guidanceRate = 0;
+    private double observerRate = 0;
+    private double publicationRate = 0;
+
+    public FlightConfig copy() {
+        FlightConfig copy = new FlightConfig();
+        copy.payloadMass = payloadMass;
+        copy.stageMasses = stageMasses.clone();
+        copy.fuelMasses = fuelMasses.clone();
+        copy.massFlowRates = massFlowRates.clone();
+        copy.exhaustVelocities = exhaustVelocities.clone();
+        copy.cycleDelay = cycleDelay;
+        copy.autopilotMode = autopilotMode;
+        copy.targetOrbitAltitude = targetOrbitAltitude;
+        copy.dragCoefficient = dragCoefficient;
+        copy.referenceArea = referenceArea;
+        copy.nozzleExitArea = nozzleExitArea;
+        copy.useNativeCode = useNativeCode;
+        copy.gravityModel = gravityModel;
+        copy.useGuidanceTable = useGuidanceTable;
+        copy.guidanceRate = guidanceRate;
+        copy.observerRate = observerRate;
+        copy.publicationRate = publicationRate;
+        return copy;
+    }
+
+    // Однозначная текстовая форма всех полей для хеширования: порядок фиксирован, числа пишутся без потери точности.
+    // Частоты по умолчанию не пишутся, чтобы ключи уже сохранённых результатов не изменились
+    public String canonicalForm() {
+        String rates = guidanceRate == 0 && observerRate == 0 && publicationRate == 0 ? ""
+                : ";rates=" + guidanceRate + "," + observerRate + "," + publicationRate;
+        return "payload=" + payloadMass
+                + ";stages=" + Arrays.toString(stageMasses)
+                + ";fuel=" + Arrays.toString(fuelMasses)
+                + ";massFlow=" + Arrays.toString(massFlowRates)
+                + ";exhaustVelocity=" + Arrays.toString(exhaustVelocities)
+                + ";delay=" + cycleDelay
+                + ";autopilot=" + autopilotMode
+                + ";target=" + targetOrbitAltitude
+                + ";cd=" + dragCoefficient
+                + ";area=" + referenceArea
+                + ";nozzle=" + nozzleExitArea
+                + ";native=" + useNativeCode
+                + ";gravity=" + gravityModel
+                + ";guidanceTable=" + useGuidanceTable
+                + rates;
+    }
+
+    public void applyTo(RocketModel model) {
+        model.setRocketParameters(payloadMass, stageMasses, fuelMasses);
+        model.setPropulsion(massFlowRates, exhaustVelocities);
+        model.setCycleDelay(cycleDelay);
+        model.setAutopilotMode(autopilotMode);
+        model.setTargetOrbitAltitude(targetOrbitAltitude);
+        model.setAerodynamics(dragCoefficient, referenceArea, nozzleExitArea);
+        model.setUseNativeCode(useNativeCode);
+        model.setGravityModel(gravityModel);
+        model.setUseGuidanceTable(useGuidanceTable);
+        model.setTaskRates(guidanceRate, observerRate, publicationRate);
+    }
+
+    public FlightConfig setRocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses) {
+        this.payloadMass = payloadMass;
+        this.stageMasses = stageMasses.clone();
+        this.fuelMasses = fuelMasses.clone();
+        return this;
+    }
+
+    // Расход (кг/с) и скорость истечения в вакууме (м/с) по ступеням
+    public FlightConfig setPropulsion(double[] massFlowRates, double[] exhaustVelocities) {
+        this.massFlowRates = massFlowRates.clone();
+        this.exhaustVelocities = exhaustVelocities.clone();
+        return this;
+    }
+
+    // Перевод старых настроек (тяга на кг топлива, топливо за такт при заданной задержке) в расход и скорость истечения.
+    // Старый полёт сжигал fuelConsumptionPerCycle за cycleDelay мс с тягой consumption / dt * thrustPerKgFuel
+    public FlightConfig setLegacyPropulsion(double thrustPerKgFuel, double fuelConsumptionPerCycle, int cycleDelay) {
+        double massFlowRate = fuelConsumptionPerCycle / (cycleDelay / 1000.0);
+        double[] rates = new double[stageMasses.length];
+        double[] velocities = new double[stageMasses.length];
+        Arrays.fill(rates, massFlowRate);
+        Arrays.fill(velocities, thrustPerKgFuel);
+        this.cycleDelay = cycleDelay;
+        return setPropulsion(rates, velocities);
+    }
+
+    public FlightConfig setCycleDelay(int cycleDelay) {
+        this.cycleDelay = cycleDelay;
+        return this;
+    }
+
+    public FlightConfig setAutopilotMode(RocketController.AutopilotMode autopilotMode) {
+        this.autopilotMode = autopilotMode;
+        return this;
+    }
+
+    public FlightConfig setTargetOrbitAltitude(double targetOrbitAltitude) {
+        this.targetOrbitAltitude = targetOrbitAltitude;
+        return this;
+    }
+
+    public FlightConfig setAerodynamics(double dragCoefficient, double referenceArea, double nozzleExitArea) {
+        this.dragCoefficient = dragCoefficient;
+        this.referenceArea = referenceArea;
+        this.nozzleExitArea = nozzleExitArea;
+        return this;
+    }
+
+    public FlightConfig setUseNativeCode(boolean useNativeCode) {
+        this.useNativeCode = useNativeCode;
+        return this;
+    }
+
+    public FlightConfig setGravityModel(String gravityModel) {
+        this.gravityModel = gravityModel;
+        return this;
+    }
+
+    public FlightConfig setUseGuidanceTable(boolean useGuidanceTable) {
+        this.useGuidanceTable = useGuidanceTable;
+        return this;
+    }
+
+    // Частоты наведения, уведомления наблюдателей и публикации снимков для интерфейса (Гц), 0 — на каждом шаге
+    public FlightConfig setTaskRates(double guidanceRate, double observerRate, double publicationRate) {
+        this.guidanceRate = guidanceRate;
+        this.observerRate = observerRate;
+        this.publicationRate = publicationRate;
+        return this;
+    }
+
+    public double getPayloadMass() {
+        return payloadMass;
+    }
+
+    public double[] getStageMasses() {
+        return stageMasses.clone();
+    }
+
+    public double[] getFuelMasses() {
+        return fuelMasses.clone();
+    }
+
+    public double[] getMassFlowRates() {
+        return massFlowRates.clone();
+    }
+
+    public double[] getExhaustVelocities() {
+        return exhaustVelocities.clone();
+    }
+
+    public int getCycleDelay() {
+        return cycleDelay;
+    }
+
+    public RocketController.AutopilotMode getAutopilotMode() {
+        return autopilotMode;
+    }
+
+    public double getTargetOrbitAltitude() {
+        return targetOrbitAltitude;
+    }
+
+    public double getDragCoefficient() {
+        return dragCoefficient;
+    }
+
+    public double getReferenceArea() {
+        return referenceArea;
+    }
+
+    public double getNozzleExitArea() {
+        return nozzleExitArea;
+    }
+
+    public boolean isUseNativeCode() {
+        return useNativeCode;
+    }
+
+    public String getGravityModel() {
+        return gravityModel;
+    }
+
+    public boolean isUseGuidanceTable() {
+        return useGuidanceTable;
+    }
+
+    public double getGuidanceRate() {
+        return guidanceRate;
+    }
+
+    public double getObserverRate() {
+        return observerRate;
+    }
+
+    public double getPublicationRate() {
+        return publicationRate;
+    }
+}
@@ -0,0 +1,235 @@
+import javax.swing.*;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Грубый прогноз полёта для окна настроек: конфигурация прогоняется без UI с крупным шагом в фоновом потоке,
+// пока прогон не станет ясен (орбита, баллистический участок без тяги, падение) или не выйдет время.
+// Новый запрос отменяет предыдущий, результат устаревшего прогона не доставляется
+public class FlightPreview {
+
+    public static final class Result {
+        private final double maxAltitude;
+        private final double periapsis;
+        private final boolean orbit;
+        private final boolean escape;
+        private final boolean truncated;
+        private final double time;
+
+        private Result(double maxAltitude, double periapsis, boolean orbit, boolean escape, boolean truncated, double time) {
+            this.maxAltitude = maxAltitude;
+            this.periapsis = periapsis;
+            this.orbit = orbit;
+            this.escape = escape;
+            this.truncated = truncated;
+            this.time = time;
+        }
+
+        public double getMaxAltitude() {
+            return maxAltitude;
+        }
+
+        public double getPeriapsis() {
+            return periapsis;
+        }
+
+        public boolean isOrbit() {
+            return orbit;
+        }
+
+        public boolean isEscape() {
+            return escape;
+        }
+
+        // Прогон остановлен по бюджету времени или горизонту, пока тяга ещё была возможна: исход не определён,
+        // orbit в этом случае false
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        public String describe() {
+            if (escape) {
+                return String.format(Locale.ROOT, "Прогноз: уход с орбиты Земли, t=%.0f с", time);
+            }
+            if (truncated) {
+                return String.format(Locale.ROOT, "Прогноз: исход не определён, к t=%.0f с наибольшая высота %.1f км",
+                        time, maxAltitude / 1000);
+            }
+            if (orbit) {
+                return String.format(Locale.ROOT, "Прогноз: орбита %.0f × %.0f км, t=%.0f с",
+                        periapsis / 1000, maxAltitude / 1000, time);
+            }
+            if (maxAltitude <= 0) {
+                return "Прогноз: ракета не взлетает";
+            }
+            return String.format(Locale.ROOT, "Прогноз: орбита не достигнута, наибольшая высота %.1f км", maxAltitude / 1000);
+        }
+    }
+
+    // Шаг прогноза — наибольший из проверенных на сходимость в RegressionHarness (CONVERGENCE_DELAYS): при 100 мс
+    // ошибка положения к 120 с — сотни метров, и исход полёта тот же, что при 10 мс. При 200 мс орбитальная ракета
+    // с целью 150 км включает двигатель в другие моменты и уходит на траекторию с наибольшей высотой 441 км вместо 649
+    private static final int PREVIEW_CYCLE_DELAY = 100;
+    private static final double HORIZON = 5000;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "flight-preview");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Consumer<Result> listener;
+    private volatile long generation;
+    private volatile long budgetNanos = 80_000_000;
+    private Future<?> running;
+
+    // listener вызывается в EDT только для последнего запроса
+    public FlightPreview(Consumer<Result> listener) {
+        this.listener = listener;
+    }
+
+    public void setBudgetMillis(double millis) {
+        budgetNanos = (long) (millis * 1e6);
+    }
+
+    // Вызывается из EDT; конфигурация копируется
+    public void submit(FlightConfig config) {
+        cancel();
+        long current = ++generation;
+        FlightConfig copy = coarse(config);
+        running = executor.submit(() -> {
+            Result result = new Run(current).run(copy);
+            if (result == null) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (current == generation) {
+                    listener.accept(result);
+                }
+            });
+        });
+    }
+
+    // Копия конфигурации с шагом прогноза
+    static FlightConfig coarse(FlightConfig config) {
+        return config.copy().setCycleDelay(Math.max(config.getCycleDelay(), PREVIEW_CYCLE_DELAY));
+    }
+
+    // Прогон в вызывающем потоке, с шагом самой конфигурации и без доставки в EDT, для проверок
+    Result evaluate(FlightConfig config) {
+        return new Run(generation).run(config);
+    }
+
+    public void cancel() {
+        generation++;
+        if (running != null) {
+            running.cancel(false);
+            running = null;
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private final class Run implements RocketObserver {
+        private final long generationAtStart;
+        private RocketModel model;
+        private long deadline;
+        private double maxAltitude;
+        private double periapsis = Double.NEGATIVE_INFINITY;
+        private double apoapsis;
+        private double altitude;
+        private boolean orbit;
+        private boolean escape;
+        private boolean truncated;
+        private boolean thrustPossible = true;
+
+        Run(long generationAtStart) {
+            this.generationAtStart = generationAtStart;
+        }
+
+        Result run(FlightConfig config) {
+            if (generationAtStart != generation) {
+                return null;
+            }
+            deadline = System.nanoTime() + budgetNanos;
+            model = new RocketModel();
+            config.applyTo(model);
+            model.addObserver(this);
+            model.runHeadless(HORIZON);
+            if (generationAtStart != generation) {
+                return null;
+            }
+            // Пока тяга возможна, автопилот может снова включить двигатель и свести ракету с орбиты, поэтому прогон,
+            // дошедший до горизонта в полёте, тоже не досчитан
+            if (!escape && thrustPossible && altitude > 0) {
+                truncated = true;
+            }
+            // Ракета осталась в полёте с перицентром выше атмосферы: автопилот больше не сведёт её с орбиты сам
+            if (!escape && !truncated && altitude > 0 && periapsis > Atmosphere.DRAG_FREE_ALTITUDE) {
+                orbit = true;
+                maxAltitude = Math.max(maxAltitude, apoapsis);
+            }
+            return new Result(maxAltitude, periapsis, orbit, escape, truncated, model.getSimulationTime());
+        }
+
+        // Отброшенные ступени прогнозу не нужны, а их полёт до земли стоил бы времени
+        @Override
+        public void onStageSeparation(int stageNumber) {
+            model.getDebrisScene().clear();
+        }
+
+        @Override
+        public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages,
+                                   double[] fuelMasses, double[] initialFuelMasses) {
+            if (generationAtStart != generation) {
+                model.stopSimulation();
+                return;
+            }
+            double r = Math.hypot(x, y);
+            altitude = r - RocketModel.EARTH_RADIUS;
+            maxAltitude = Math.max(maxAltitude, altitude);
+
+            // Элементы орбиты по энергии и моменту импульса
+            double vx = model.getSpeedX();
+            double vy = model.getSpeedY();
+            double mu = PointMassGravity.MU;
+            double energy = 0.5 * (vx * vx + vy * vy) - mu / r;
+            double momentum = x * vy - y * vx;
+            double eccentricity = Math.sqrt(Math.max(0, 1 + 2 * energy * momentum * momentum / (mu * mu)));
+            double semiMajorAxis = -mu / (2 * energy);
+            periapsis = semiMajorAxis * (1 - eccentricity) - RocketModel.EARTH_RADIUS;
+            apoapsis = semiMajorAxis * (1 + eccentricity) - RocketModel.EARTH_RADIUS;
+            thrustPossible = remainingStages > 0
+                    && (model.isEngineOn() || model.getAutopilotMode() != RocketController.AutopilotMode.MANUAL);
+
+            if (energy >= 0) {
+                escape = true;
+                model.stopSimulation();
+            } else if (!thrustPossible) {
+                // Дальше полёт баллистический: если ракета ещё поднимается, наибольшая высота — апоцентр без учёта
+                // сопротивления. Пока тяга возможна, автопилот может снова включить двигатель, поэтому прогон продолжается
+                if (x * vx + y * vy > 0) {
+                    maxAltitude = Math.max(maxAltitude, apoapsis);
+                }
+                model.stopSimulation();
+            } else if (System.nanoTime() > deadline) {
+                truncated = true;
+                model.stopSimulation();
+            }
+        }
+
+        @Override
+        public double nextUpdateTime() {
+            return 0;
+        }
+    }
+}
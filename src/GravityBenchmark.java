@@ -0,0 +1,79 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// Стоимость одного вычисления ускорения для каждой модели гравитации и вклад каждой модели поверх предыдущей:
+// J2 — против точечной, Луна и Солнце — против J2 (на фоне J2 их вклад на четыре порядка меньше и в отличии
+// от точечной модели не виден)
+public class GravityBenchmark {
+
+    private static final int SAMPLES = 1_000_000;
+    // Все модели прогреваются до замеров, иначе первая измеренная платит за компиляцию общего цикла
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 7;
+
+    public static void main(String[] args) {
+        double[] xs = new double[SAMPLES];
+        double[] ys = new double[SAMPLES];
+        double[] times = new double[SAMPLES];
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            double r = RocketModel.EARTH_RADIUS + random.nextDouble() * 2_000_000;
+            double angle = random.nextDouble() * 2 * Math.PI;
+            xs[i] = r * Math.cos(angle);
+            ys[i] = r * Math.sin(angle);
+            times[i] = random.nextDouble() * 30 * 86400;
+        }
+
+        String[] names = {GravityModel.POINT_MASS, GravityModel.J2, GravityModel.J2_MOON_SUN};
+        // Модель, вклад поверх которой показывается; у точечной — она сама
+        String[] baseNames = {GravityModel.POINT_MASS, GravityModel.POINT_MASS, GravityModel.J2};
+        GravityModel[] models = new GravityModel[names.length];
+        for (int m = 0; m < names.length; m++) {
+            models[m] = GravityModel.forName(names[m]);
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (GravityModel model : models) {
+                time(model, xs, ys, times);
+            }
+        }
+        // Порядок моделей сдвигается от раунда к раунду, берётся наименьшее время
+        double[] nanos = new double[models.length];
+        Arrays.fill(nanos, Double.POSITIVE_INFINITY);
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            for (int k = 0; k < models.length; k++) {
+                int m = (round + k) % models.length;
+                nanos[m] = Math.min(nanos[m], time(models[m], xs, ys, times));
+            }
+        }
+
+        double[] out = new double[2];
+        double[] reference = new double[2];
+        System.out.println("Модель           нс/вызов   макс. вклад (м/с²)   поверх");
+        for (int m = 0; m < models.length; m++) {
+            GravityModel base = GravityModel.forName(baseNames[m]);
+            double maxDifference = 0;
+            for (int i = 0; i < SAMPLES; i += 100) {
+                models[m].acceleration(xs[i], ys[i], times[i], out);
+                base.acceleration(xs[i], ys[i], times[i], reference);
+                maxDifference = Math.max(maxDifference, Math.hypot(out[0] - reference[0], out[1] - reference[1]));
+            }
+            System.out.printf("%-16s %8.1f   %.3e            %s%n", names[m], nanos[m], maxDifference,
+                    m == 0 ? "—" : baseNames[m]);
+        }
+    }
+
+    // Наносекунд на вызов за один проход по всем точкам
+    private static double time(GravityModel model, double[] xs, double[] ys, double[] times) {
+        double[] out = new double[2];
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < SAMPLES; i++) {
+            model.acceleration(xs[i], ys[i], times[i], out);
+            sink += out[0];
+        }
+        double nanos = (double) (System.nanoTime() - start) / SAMPLES;
+        if (sink == 42) System.out.println();
+        return nanos;
+    }
+}
@@ -0,0 +1,25 @@
+// Модель гравитационного ускорения, общая для шага модели и прогноза траектории
+public interface GravityModel {
+
+    String POINT_MASS = "point-mass";
+    String J2 = "j2";
+    String J2_MOON_SUN = "j2-moon-sun";
+
+    // Записывает ускорение (м/с²) в точке (x, y) в момент времени симуляции time в out[0], out[1]
+    void acceleration(double x, double y, double time, double[] out);
+
+    String getName();
+
+    static GravityModel forName(String name) {
+        switch (name) {
+            case POINT_MASS:
+                return PointMassGravity.INSTANCE;
+            case J2:
+                return J2Gravity.INSTANCE;
+            case J2_MOON_SUN:
+                return new ThirdBodyGravity(J2Gravity.INSTANCE, Ephemeris.getInstance());
+            default:
+                throw new IllegalArgumentException("Неизвестная модель гравитации: " + name);
+        }
+    }
+}
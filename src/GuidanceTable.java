@@ -0,0 +1,119 @@
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Закон наведения STABLE_ORBIT из calculateOrbitAngle, заранее посчитанный для одной целевой высоты. Закон прогнозирует
+// апогей M = vr²/(2·g·y/r) + h и держит угол от местной вертикали 90·M/цель на всех своих участках, а при M ≥ цели
+// выключает двигатель, только пока горизонтальная скорость в окне [v_круг, 1,01·v_круг]. Таблица хранит угол на сетке
+// высота × q = vr²·r/y (тогда M = h + q·r²/(2μ), по q угол линеен и интерполируется точно) и границы окна отсечки
+// по горизонтальной скорости в узлах высоты: решение о двигателе — ступенька, и интерполяция её значений размазала бы
+// окно шириной 1% круговой скорости по ячейке сетки. Вне сетки, в том числе за четвертью оборота (y ≤ 0), работает
+// аналитический закон
+public final class GuidanceTable {
+
+    private static final double MU = RocketModel.GRAVITATIONAL_CONSTANT * RocketModel.EARTH_MASS;
+
+    // По высоте угол не линеен (через r²): при шаге сетки в десяток километров его ошибка в десятитысячные доли градуса
+    // уже сдвигает импульсы двигателя на такт, и полёт расходится с аналитическим на километры
+    private static final int ALTITUDE_NODES = 1024;
+    private static final double RADIAL_TERM_MAX = 1.6e7;
+    private static final int RADIAL_TERM_NODES = 33;
+    private static final double CUTOFF_WINDOW = 1.01;
+
+    private static final Map<Long, CompletableFuture<GuidanceTable>> CACHE = new ConcurrentHashMap<>();
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "guidance-table-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final double targetOrbitAltitude;
+    private final double altitudeScale;
+    private final double radialTermScale;
+
+    // Угол от местной вертикали в градусах, [высота][q]
+    private final float[] pitch;
+    // Окно отсечки по горизонтальной скорости, по узлам высоты
+    private final double[] cutoffLow;
+    private final double[] cutoffHigh;
+
+    private GuidanceTable(double targetOrbitAltitude) {
+        this.targetOrbitAltitude = targetOrbitAltitude;
+        // Автопилот проскакивает цель, таблица покрывает и орбиту выше неё
+        double altitudeMax = 3 * targetOrbitAltitude + 200_000;
+        this.altitudeScale = (ALTITUDE_NODES - 1) / altitudeMax;
+        this.radialTermScale = (RADIAL_TERM_NODES - 1) / RADIAL_TERM_MAX;
+
+        pitch = new float[ALTITUDE_NODES * RADIAL_TERM_NODES];
+        cutoffLow = new double[ALTITUDE_NODES];
+        cutoffHigh = new double[ALTITUDE_NODES];
+        for (int i = 0; i < ALTITUDE_NODES; i++) {
+            double altitude = i / altitudeScale;
+            double r = RocketModel.EARTH_RADIUS + altitude;
+            for (int j = 0; j < RADIAL_TERM_NODES; j++) {
+                double radialTerm = j / radialTermScale;
+                double maxAltitude = altitude + radialTerm * r * r / (2 * MU);
+                pitch[i * RADIAL_TERM_NODES + j] = (float) (90 * maxAltitude / targetOrbitAltitude);
+            }
+            cutoffLow[i] = Math.sqrt(MU / r);
+            cutoffHigh[i] = cutoffLow[i] * CUTOFF_WINDOW;
+        }
+    }
+
+    public static long configurationHash(double targetOrbitAltitude) {
+        long hash = Double.doubleToLongBits(targetOrbitAltitude);
+        hash = hash * 31 + Double.doubleToLongBits(MU);
+        hash = hash * 31 + Double.doubleToLongBits(RocketModel.EARTH_RADIUS);
+        hash = hash * 31 + ALTITUDE_NODES;
+        hash = hash * 31 + RADIAL_TERM_NODES;
+        hash = hash * 31 + Double.doubleToLongBits(RADIAL_TERM_MAX);
+        hash = hash * 31 + Double.doubleToLongBits(CUTOFF_WINDOW);
+        return hash;
+    }
+
+    // Таблица строится в фоновом потоке, готовая берётся из кэша
+    public static CompletableFuture<GuidanceTable> request(double targetOrbitAltitude) {
+        return CACHE.computeIfAbsent(configurationHash(targetOrbitAltitude),
+                key -> CompletableFuture.supplyAsync(() -> new GuidanceTable(targetOrbitAltitude), BUILDER));
+    }
+
+    // Уже построенная таблица или null; не ждёт
+    public static GuidanceTable ready(double targetOrbitAltitude) {
+        CompletableFuture<GuidanceTable> future = CACHE.get(configurationHash(targetOrbitAltitude));
+        return future != null ? future.getNow(null) : null;
+    }
+
+    public double getTargetOrbitAltitude() {
+        return targetOrbitAltitude;
+    }
+
+    // Угол от местной вертикали в градусах по высоте и q = vr²·r/y; NaN вне сетки (в том числе при y ≤ 0)
+    public double pitch(double altitude, double radialTerm) {
+        double a = altitude * altitudeScale;
+        double b = radialTerm * radialTermScale;
+        if (!(a >= 0 && a < ALTITUDE_NODES - 1 && b >= 0 && b < RADIAL_TERM_NODES - 1)) {
+            return Double.NaN;
+        }
+        int i = (int) a;
+        int j = (int) b;
+        double ta = a - i;
+        double tb = b - j;
+        int base = i * RADIAL_TERM_NODES + j;
+        double c0 = pitch[base] + (pitch[base + 1] - pitch[base]) * tb;
+        double c1 = pitch[base + RADIAL_TERM_NODES] + (pitch[base + RADIAL_TERM_NODES + 1] - pitch[base + RADIAL_TERM_NODES]) * tb;
+        return c0 + (c1 - c0) * ta;
+    }
+
+    // Решение о двигателе на участке, где прогнозируемый апогей не ниже цели (угол ≥ 90°): false — горизонтальная
+    // скорость в окне отсечки. Высота должна быть внутри сетки, то есть pitch для неё не NaN
+    public boolean engineOn(double altitude, double horizontalSpeed) {
+        double a = altitude * altitudeScale;
+        int i = (int) a;
+        double t = a - i;
+        double low = cutoffLow[i] + (cutoffLow[i + 1] - cutoffLow[i]) * t;
+        double high = cutoffHigh[i] + (cutoffHigh[i + 1] - cutoffHigh[i]) * t;
+        return horizontalSpeed < low || horizontalSpeed > high;
+    }
+}
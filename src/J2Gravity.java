@@ -0,0 +1,25 @@
+// Сжатие Земли (вторая зональная гармоника); плоскость симуляции считается экваториальной
+public final class J2Gravity implements GravityModel {
+
+    public static final J2Gravity INSTANCE = new J2Gravity();
+
+    public static final double J2_COEFFICIENT = 1.08262668e-3;
+    private static final double J2_FACTOR = 1.5 * J2_COEFFICIENT * RocketModel.EARTH_RADIUS * RocketModel.EARTH_RADIUS;
+
+    private J2Gravity() {
+    }
+
+    @Override
+    public void acceleration(double x, double y, double time, double[] out) {
+        double r2 = x * x + y * y;
+        double r = Math.sqrt(r2);
+        double gravityMagnitude = PointMassGravity.MU / r2 * (1 + J2_FACTOR / r2);
+        out[0] = -gravityMagnitude * (x / r);
+        out[1] = -gravityMagnitude * (y / r);
+    }
+
+    @Override
+    public String getName() {
+        return GravityModel.J2;
+    }
+}
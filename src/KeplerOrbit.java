@@ -0,0 +1,322 @@
+import java.util.Locale;
+
+// Коническое сечение двух тел в плоскости симуляции, построенное по положению и скорости
+public final class KeplerOrbit {
+
+    // Относительный момент импульса h / (r v), ниже которого траектория считается отрезком прямой через центр
+    private static final double RADIAL_TOLERANCE = 1e-9;
+    // Относительная энергия |ε| r / μ, ниже которой радиальная траектория считается параболической
+    private static final double PARABOLIC_TOLERANCE = 1e-8;
+    private static final int MAX_ITERATIONS = 200;
+
+    private final double mu;
+    private final double angularMomentum;
+    private final double eccentricity;
+    private final double semiLatusRectum;
+    private final double periapsisAngle;
+    private final double semiMajorAxis;
+    // Для радиальной траектории: удельная энергия и знак радиальной скорости в исходной точке
+    private final boolean radial;
+    private final double energy;
+    private final double radialDirection;
+
+    public KeplerOrbit(double x, double y, double vx, double vy, double mu) {
+        this.mu = mu;
+        double r = Math.sqrt(x * x + y * y);
+        double v2 = vx * vx + vy * vy;
+        angularMomentum = x * vy - y * vx;
+        double rv = x * vx + y * vy;
+        radial = Math.abs(angularMomentum) <= RADIAL_TOLERANCE * r * Math.sqrt(v2);
+        energy = 0.5 * v2 - mu / r;
+        radialDirection = Math.signum(rv);
+        double ex = ((v2 - mu / r) * x - rv * vx) / mu;
+        double ey = ((v2 - mu / r) * y - rv * vy) / mu;
+        eccentricity = Math.sqrt(ex * ex + ey * ey);
+        periapsisAngle = Math.atan2(ey, ex);
+        semiLatusRectum = angularMomentum * angularMomentum / mu;
+        semiMajorAxis = 1 / (2 / r - v2 / mu);
+    }
+
+    // Радиус перигея без построения объекта орбиты
+    public static double periapsisRadius(double x, double y, double vx, double vy, double mu) {
+        double r = Math.sqrt(x * x + y * y);
+        double v2 = vx * vx + vy * vy;
+        double h = x * vy - y * vx;
+        double rv = x * vx + y * vy;
+        double ex = ((v2 - mu / r) * x - rv * vx) / mu;
+        double ey = ((v2 - mu / r) * y - rv * vy) / mu;
+        return h * h / mu / (1 + Math.sqrt(ex * ex + ey * ey));
+    }
+
+    public double getEccentricity() {
+        return eccentricity;
+    }
+
+    public double getSemiMajorAxis() {
+        return semiMajorAxis;
+    }
+
+    public double getPeriapsisRadius() {
+        return semiLatusRectum / (1 + eccentricity);
+    }
+
+    public double getApoapsisRadius() {
+        return eccentricity < 1 ? semiLatusRectum / (1 - eccentricity) : Double.POSITIVE_INFINITY;
+    }
+
+    // Точка, где траектория, двигаясь вперёд от (x, y), опускается до радиуса radius:
+    // out[0], out[1] — координаты, out[2] — время до неё; false — траектория не опускается
+    // Если время не удалось посчитать, out[2] — NaN
+    public boolean descendingCrossing(double x, double y, double radius, double[] out) {
+        out[2] = Double.POSITIVE_INFINITY;
+        if (radial) {
+            return radialDescendingCrossing(x, y, radius, out);
+        }
+        if (getPeriapsisRadius() >= radius || eccentricity < 1e-12) {
+            return false;
+        }
+        double cosAnomaly = (semiLatusRectum / radius - 1) / eccentricity;
+        if (cosAnomaly > 1) {
+            return false;
+        }
+        double direction = Math.signum(angularMomentum) == 0 ? 1 : Math.signum(angularMomentum);
+        // Истинная аномалия на нисходящей ветви отрицательна при движении против часовой стрелки
+        double crossingAnomaly = -Math.acos(Math.max(-1, cosAnomaly));
+        double crossingAngle = periapsisAngle + direction * crossingAnomaly;
+        out[0] = radius * Math.cos(crossingAngle);
+        out[1] = radius * Math.sin(crossingAngle);
+
+        double currentAnomaly = normalize(direction * (Math.atan2(y, x) - periapsisAngle));
+        double targetAnomaly = normalize(crossingAnomaly);
+        out[2] = timeFromPeriapsis(targetAnomaly) - timeFromPeriapsis(currentAnomaly);
+        if (out[2] < 0 && eccentricity < 1) {
+            out[2] += 2 * Math.PI * Math.sqrt(semiMajorAxis * semiMajorAxis * semiMajorAxis / mu);
+        }
+        return out[2] >= 0;
+    }
+
+    // Вертикальный полёт: движение по прямой через центр, высота точки пересечения задаётся энергией
+    private boolean radialDescendingCrossing(double x, double y, double crossingRadius, double[] out) {
+        double r = Math.sqrt(x * x + y * y);
+        double time;
+        if (energy * r / mu < -PARABOLIC_TOLERANCE) {
+            double apexRadius = -mu / energy;
+            if (apexRadius < crossingRadius) {
+                return false;
+            }
+            double current = radialTimeToApex(r);
+            double sinceApex = radialDirection > 0 ? -current : current;
+            time = radialTimeToApex(crossingRadius) - sinceApex;
+        } else {
+            // Параболическая и гиперболическая траектории вниз не поворачивают
+            if (radialDirection >= 0) {
+                return false;
+            }
+            time = radialTimeFromCenter(r) - radialTimeFromCenter(crossingRadius);
+        }
+        if (Double.isNaN(time)) {
+            out[2] = Double.NaN;
+            return false;
+        }
+        if (time < 0) {
+            return false;
+        }
+        out[0] = crossingRadius * x / r;
+        out[1] = crossingRadius * y / r;
+        out[2] = time;
+        return true;
+    }
+
+    // Время между точкой на радиусе r и высшей точкой замкнутой радиальной траектории: r = a (1 - cos E),
+    // t = sqrt(a³/μ) (E - sin E), высшая точка при E = π
+    private double radialTimeToApex(double r) {
+        double a = -mu / (2 * energy);
+        double anomaly = Math.acos(Math.max(-1, Math.min(1, 1 - r / a)));
+        return Math.sqrt(a * a * a / mu) * (Math.PI - anomaly + Math.sin(anomaly));
+    }
+
+    // Время падения с радиуса r в центр по незамкнутой радиальной траектории: r = a (cosh F - 1), t = sqrt(a³/μ) (sinh F - F)
+    private double radialTimeFromCenter(double r) {
+        if (energy * r / mu < PARABOLIC_TOLERANCE) {
+            return Math.sqrt(2 / mu) * r * Math.sqrt(r) / 3;
+        }
+        double a = mu / (2 * energy);
+        double coshF = 1 + r / a;
+        double anomaly = Math.log(coshF + Math.sqrt(coshF * coshF - 1));
+        return Math.sqrt(a * a * a / mu) * (Math.sinh(anomaly) - anomaly);
+    }
+
+    // Время до ближайшего перигея или апогея впереди от точки (x, y); у почти круговой орбиты апсид нет
+    public double timeToNextApsis(double x, double y) {
+        if (radial) {
+            // Единственная апсида впереди — высшая точка подъёма; на спуске участок ограничивает вход в атмосферу
+            double r = Math.sqrt(x * x + y * y);
+            if (radialDirection > 0 && energy * r / mu < -PARABOLIC_TOLERANCE) {
+                return radialTimeToApex(r);
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+        if (eccentricity < 1e-9) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double direction = Math.signum(angularMomentum) == 0 ? 1 : Math.signum(angularMomentum);
+        double anomaly = normalize(direction * (Math.atan2(y, x) - periapsisAngle));
+        if (anomaly < 0) {
+            return -timeFromPeriapsis(anomaly);
+        }
+        if (eccentricity >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.PI * Math.sqrt(semiMajorAxis * semiMajorAxis * semiMajorAxis / mu) - timeFromPeriapsis(anomaly);
+    }
+
+    // Точное решение задачи двух тел на время dt в универсальных переменных: state = {x, y, vx, vy} изменяется на месте.
+    // Работает для эллипса, параболы и гиперболы; у эллипса целые обороты отбрасываются заранее
+    public static void propagate(double[] state, double dt, double mu) {
+        double x = state[0];
+        double y = state[1];
+        double vx = state[2];
+        double vy = state[3];
+        double r0 = Math.sqrt(x * x + y * y);
+        double v2 = vx * vx + vy * vy;
+        double sqrtMu = Math.sqrt(mu);
+        double radialSpeed = (x * vx + y * vy) / r0;
+        // alpha = 1 / a: больше нуля у эллипса, меньше — у гиперболы
+        double alpha = 2 / r0 - v2 / mu;
+
+        double chi;
+        if (alpha > 1e-12) {
+            double period = 2 * Math.PI / (sqrtMu * alpha * Math.sqrt(alpha));
+            dt = dt % period;
+            chi = sqrtMu * alpha * dt;
+        } else if (alpha < -1e-12) {
+            double a = 1 / alpha;
+            double sign = Math.signum(dt);
+            chi = sign * Math.sqrt(-a) * Math.log(-2 * mu * alpha * dt
+                    / (x * vx + y * vy + sign * Math.sqrt(-mu * a) * (1 - r0 * alpha)));
+        } else {
+            chi = sqrtMu * dt / r0;
+        }
+
+        // Время полёта монотонно растёт с chi (производная равна r), поэтому корень держится в вилке [low, high]:
+        // шаг Ньютона, вышедший из вилки или не давший конечного значения, заменяется делением вилки пополам
+        double target = sqrtMu * dt;
+        double low = dt >= 0 ? 0 : Double.NEGATIVE_INFINITY;
+        double high = dt >= 0 ? Double.POSITIVE_INFINITY : 0;
+        if (!Double.isFinite(chi) || chi < low || chi > high) {
+            chi = sqrtMu * dt / r0;
+        }
+        boolean converged = false;
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double timeOfFlight = timeOfFlight(chi, r0, radialSpeed, alpha, sqrtMu);
+            double error = timeOfFlight - target;
+            if (error == 0) {
+                converged = true;
+                break;
+            }
+            if (error > 0 || Double.isNaN(timeOfFlight)) {
+                high = chi;
+            } else {
+                low = chi;
+            }
+            double r = universalRadius(chi, r0, radialSpeed, alpha, sqrtMu);
+            double next = chi - error / r;
+            if (!Double.isFinite(next) || next <= low || next >= high) {
+                if (Double.isInfinite(high)) {
+                    next = Math.max(2 * chi, chi + 1);
+                } else if (Double.isInfinite(low)) {
+                    next = Math.min(2 * chi, chi - 1);
+                } else {
+                    next = 0.5 * (low + high);
+                }
+            }
+            double correction = next - chi;
+            chi = next;
+            if (Math.abs(correction) <= 1e-12 * Math.max(1, Math.abs(chi))) {
+                converged = true;
+                break;
+            }
+        }
+        if (!converged || !Double.isFinite(chi)) {
+            throw new IllegalStateException(String.format(Locale.ROOT,
+                    "Уравнение Кеплера не решено: r=(%g, %g), v=(%g, %g), dt=%g", x, y, vx, vy, dt));
+        }
+
+        double chi2 = chi * chi;
+        double z = alpha * chi2;
+        double c = stumpffC(z);
+        double s = stumpffS(z);
+        double f = 1 - chi2 / r0 * c;
+        double g = dt - chi2 * chi / sqrtMu * s;
+        double newX = f * x + g * vx;
+        double newY = f * y + g * vy;
+        double r = Math.sqrt(newX * newX + newY * newY);
+        double fDot = sqrtMu / (r * r0) * (z * chi * s - chi);
+        double gDot = 1 - chi2 / r * c;
+        if (!Double.isFinite(newX) || !Double.isFinite(newY) || !Double.isFinite(fDot) || !Double.isFinite(gDot)) {
+            throw new IllegalStateException(String.format(Locale.ROOT,
+                    "Коническое сечение не посчитано: r=(%g, %g), v=(%g, %g), dt=%g", x, y, vx, vy, dt));
+        }
+        state[0] = newX;
+        state[1] = newY;
+        state[2] = fDot * x + gDot * vx;
+        state[3] = fDot * y + gDot * vy;
+    }
+
+    // Универсальное уравнение Кеплера, умноженное на sqrt(μ): время полёта до аномалии chi
+    private static double timeOfFlight(double chi, double r0, double radialSpeed, double alpha, double sqrtMu) {
+        double chi2 = chi * chi;
+        double z = alpha * chi2;
+        return r0 * radialSpeed / sqrtMu * chi2 * stumpffC(z) + (1 - alpha * r0) * chi2 * chi * stumpffS(z) + r0 * chi;
+    }
+
+    private static double universalRadius(double chi, double r0, double radialSpeed, double alpha, double sqrtMu) {
+        double chi2 = chi * chi;
+        double z = alpha * chi2;
+        return r0 * radialSpeed / sqrtMu * chi * (1 - z * stumpffS(z)) + (1 - alpha * r0) * chi2 * stumpffC(z) + r0;
+    }
+
+    private static double stumpffC(double z) {
+        if (z > 1e-6) {
+            return (1 - Math.cos(Math.sqrt(z))) / z;
+        }
+        if (z < -1e-6) {
+            return (Math.cosh(Math.sqrt(-z)) - 1) / -z;
+        }
+        return 0.5 - z / 24 + z * z / 720;
+    }
+
+    private static double stumpffS(double z) {
+        if (z > 1e-6) {
+            double sqrtZ = Math.sqrt(z);
+            return (sqrtZ - Math.sin(sqrtZ)) / (sqrtZ * z);
+        }
+        if (z < -1e-6) {
+            double sqrtZ = Math.sqrt(-z);
+            return (Math.sinh(sqrtZ) - sqrtZ) / (sqrtZ * -z);
+        }
+        return 1.0 / 6 - z / 120 + z * z / 5040;
+    }
+
+    double timeFromPeriapsis(double trueAnomaly) {
+        if (eccentricity < 1) {
+            double eccentricAnomaly = 2 * Math.atan(Math.sqrt((1 - eccentricity) / (1 + eccentricity)) * Math.tan(trueAnomaly / 2));
+            double meanAnomaly = eccentricAnomaly - eccentricity * Math.sin(eccentricAnomaly);
+            return meanAnomaly * Math.sqrt(semiMajorAxis * semiMajorAxis * semiMajorAxis / mu);
+        }
+        double hyperbolicAnomaly = 2 * atanh(Math.sqrt((eccentricity - 1) / (eccentricity + 1)) * Math.tan(trueAnomaly / 2));
+        double meanAnomaly = eccentricity * Math.sinh(hyperbolicAnomaly) - hyperbolicAnomaly;
+        return meanAnomaly * Math.sqrt(-semiMajorAxis * semiMajorAxis * semiMajorAxis / mu);
+    }
+
+    private static double atanh(double value) {
+        return 0.5 * Math.log((1 + value) / (1 - value));
+    }
+
+    private static double normalize(double angle) {
+        angle = angle % (2 * Math.PI);
+        if (angle <= -Math.PI) angle += 2 * Math.PI;
+        if (angle > Math.PI) angle -= 2 * Math.PI;
+        return angle;
+    }
+}
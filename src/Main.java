@@ -1,8 +1,59 @@
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Параметры: --record файл, --replay файл, --scenario файл, --headless секунды (прогон без окон),
+// --autostart (сразу запустить полёт с настройками по умолчанию или со сценарием)
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         RocketModel model = new RocketModel();
         RocketController controller = new RocketController(model);
-        MainWindow mainWindow = new MainWindow(controller);
-        model.addObserver(mainWindow);
+        double headlessTime = -1;
+        boolean autostart = false;
+        Scenario scenario = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--record" -> controller.recordCommands(Path.of(args[++i]));
+                case "--replay" -> controller.replayCommands(Path.of(args[++i]));
+                case "--scenario" -> scenario = Scenario.load(Path.of(args[++i]));
+                case "--headless" -> headlessTime = Double.parseDouble(args[++i]);
+                case "--autostart" -> autostart = true;
+                default -> System.err.println("Неизвестный параметр: " + args[i]);
+            }
+        }
+        if (StartupProbe.isEnabled()) {
+            model.addObserver(new RocketObserver() {
+                @Override
+                public void onStageSeparation(int stageNumber) {
+                }
+
+                @Override
+                public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses) {
+                    StartupProbe.mark("first-tick");
+                }
+            });
+        }
+        if (scenario != null) {
+            controller.playScenario(scenario);
+        } else if ((headlessTime >= 0 || autostart) && !controller.isSettingsConfirmed()) {
+            controller.applyConfig(new FlightConfig());
+            controller.setSettingsConfirmed(true);
+        }
+
+        // Без окон AWT и Swing вообще не загружаются: модель и контроллер от них не зависят
+        if (headlessTime >= 0) {
+            model.runHeadless(headlessTime);
+            System.out.printf("t = %.1f с, x = %.2f м, y = %.2f м, масса = %.3f кг%n",
+                    model.getSimulationTime(), model.getPositionX(), model.getPositionY(), model.getCurrentMass());
+            return;
+        }
+        controller.setResultCache(new ResultCache(ResultCache.DEFAULT_DIRECTORY));
+        boolean start = autostart;
+        SwingUtilities.invokeLater(() -> {
+            MainWindow window = new MainWindow(controller);
+            if (start) {
+                window.startSimulation();
+            }
+        });
     }
 }
@@ -1,9 +1,11 @@
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
-public class MainWindow extends JFrame implements RocketObserver {
+public class MainWindow extends JFrame implements UiFrameScheduler.FrameView {
     private final RocketController controller;
     private JButton engineToggleButton;
 
@@ -13,14 +15,51 @@ public class MainWindow extends JFrame implements RocketObserver {
     private JProgressBar[] fuelBars;
     private JLabel[] fuelLabels;
     private JLabel positionLabel; // Новый лейбл для позиции
+    private JComboBox<String> timeWarpBox;
+    private JLabel timeWarpLabel;
+
+    private static final double[] TIME_WARPS = {1, 10, 100, 1000};
 
     private boolean isSimulating = false;
 
-    private final List<JFrame> childWindows = new ArrayList<>();
+    // Дочерние окна создаются при первом открытии и дальше переиспользуются; закрытое окно не получает кадры
+    private SettingsWindow settingsWindow;
+    private DataWindow dataWindow;
+    private PositionWindow positionWindow;
+
+    // Графикам и карте хватает 30 кадров в секунду, даже если дисплей обновляется чаще
+    private static final double GRAPH_RATE = 30;
+    private static final Path SCENARIO_DIRECTORY = Path.of("scenarios");
+
+    private final UiFrameScheduler frameScheduler;
+    private UiFrameScheduler.Subscription dataSubscription;
+    private UiFrameScheduler.Subscription positionSubscription;
+    private JLabel frameTimeLabel;
+    private JCheckBox useCacheBox;
+    private JLabel cacheLabel;
+    // Полёт из кэша, показанный вместо живой симуляции; null, пока такого нет
+    private CachedFlight cachedFlight;
+
+    // Последние показанные значения: метки обновляются, только если изменилось видимое
+    private long shownMass = Long.MIN_VALUE;
+    private long shownSpeed = Long.MIN_VALUE;
+    private long shownAltitude = Long.MIN_VALUE;
+    private long shownX = Long.MIN_VALUE;
+    private long shownY = Long.MIN_VALUE;
+    private long shownWarp = Long.MIN_VALUE;
+    private long shownFrameTime = Long.MIN_VALUE;
+    private final long[] shownFuel = {Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+    private final int[] shownFuelPercentage = {-1, -1, -1};
+    private int shownRemainingStages = -1;
+    private Boolean shownEngineOn;
 
     public MainWindow(RocketController controller) {
         this.controller = controller;
+        this.frameScheduler = new UiFrameScheduler(controller.getModel());
         initUI();
+        frameScheduler.subscribe(this, TelemetrySnapshot.CHANNEL_FLIGHT | TelemetrySnapshot.CHANNEL_FUEL,
+                UiFrameScheduler.DISPLAY_RATE);
+        frameScheduler.start();
     }
 
     private void initUI() {
@@ -33,10 +72,12 @@ public class MainWindow extends JFrame implements RocketObserver {
         JButton settingsButton = new JButton("Настройки симуляции");
         JButton dataButton = new JButton("Данные");
         JButton positionButton = new JButton("Положение");
+        JButton scenarioButton = new JButton("Сценарий…");
 
         buttonPanel.add(settingsButton);
         buttonPanel.add(dataButton);
         buttonPanel.add(positionButton);
+        buttonPanel.add(scenarioButton);
 
         add(buttonPanel, BorderLayout.NORTH);
 
@@ -74,6 +115,25 @@ public class MainWindow extends JFrame implements RocketObserver {
         startStopButton = new JButton("Начать Симуляцию");
         controlLabelPanel.add(statusLabel, BorderLayout.NORTH);
         controlLabelPanel.add(positionLabel, BorderLayout.CENTER); // Добавляем лейбл позиции
+
+        JPanel timeWarpPanel = new JPanel();
+        timeWarpBox = new JComboBox<>(new String[]{"1x", "10x", "100x", "1000x"});
+        timeWarpLabel = new JLabel("Текущее ускорение: 1x");
+        timeWarpPanel.add(new JLabel("Ускорение времени:"));
+        timeWarpPanel.add(timeWarpBox);
+        timeWarpPanel.add(timeWarpLabel);
+        frameTimeLabel = new JLabel("Кадр EDT: 0.00 мс");
+        timeWarpPanel.add(frameTimeLabel);
+        JPanel cachePanel = new JPanel();
+        useCacheBox = new JCheckBox("Брать готовый полёт из кэша", controller.getResultCache() != null);
+        useCacheBox.setEnabled(controller.getResultCache() != null);
+        cacheLabel = new JLabel();
+        cachePanel.add(useCacheBox);
+        cachePanel.add(cacheLabel);
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(timeWarpPanel, BorderLayout.NORTH);
+        southPanel.add(cachePanel, BorderLayout.SOUTH);
+        controlLabelPanel.add(southPanel, BorderLayout.SOUTH);
         controlButtonPanel.add(engineToggleButton, BorderLayout.CENTER);
         controlButtonPanel.add(startStopButton, BorderLayout.SOUTH);
         controlPanel.add(controlLabelPanel, BorderLayout.NORTH);
@@ -83,14 +143,18 @@ public class MainWindow extends JFrame implements RocketObserver {
         settingsButton.addActionListener(e -> openSettingsWindow());
         dataButton.addActionListener(e -> openDataWindow());
         positionButton.addActionListener(e -> openPositionWindow());
+        scenarioButton.addActionListener(e -> chooseScenario());
 
         startStopButton.addActionListener(e -> {
             if (!isSimulating) {
                 if (controller.isSettingsConfirmed()) {
-                    controller.startSimulation();
-                    isSimulating = true;
-                    startStopButton.setText("Остановить Симуляцию");
-                    statusLabel.setText("Симуляция запущена");
+                    CachedFlight flight = useCacheBox.isSelected() ? controller.findCachedFlight() : null;
+                    updateCacheLabel();
+                    if (flight != null) {
+                        showCachedFlight(flight);
+                        return;
+                    }
+                    startSimulation();
                 } else {
                     JOptionPane.showMessageDialog(this, "Пожалуйста, подтвердите настройки перед запуском симуляции.", "Ошибка", JOptionPane.ERROR_MESSAGE);
                 }
@@ -101,9 +165,13 @@ public class MainWindow extends JFrame implements RocketObserver {
                 statusLabel.setText("Симуляция остановлена");
             }
         });
+        timeWarpBox.addActionListener(e -> controller.setTimeWarp(TIME_WARPS[timeWarpBox.getSelectedIndex()]));
         engineToggleButton.addActionListener(e -> {
+            // Команда применится на границе такта, поэтому подпись ставим по ожидаемому состоянию
+            boolean engineOn = !controller.isEngineOn();
             controller.toggleEngine();
-            if (controller.isEngineOn()) {
+            shownEngineOn = null;
+            if (engineOn) {
                 engineToggleButton.setText("Выключить двигатель");
             } else {
                 engineToggleButton.setText("Включить двигатель");
@@ -112,59 +180,162 @@ public class MainWindow extends JFrame implements RocketObserver {
         setVisible(true);
     }
 
+    public void startSimulation() {
+        cachedFlight = null;
+        controller.startSimulation();
+        isSimulating = true;
+        startStopButton.setText("Остановить Симуляцию");
+        statusLabel.setText("Симуляция запущена");
+    }
+
+    // Сценарий заменяет текущие настройки и сразу запускается; его команды идут вместе с ручными
+    private void chooseScenario() {
+        JFileChooser chooser = new JFileChooser(Files.isDirectory(SCENARIO_DIRECTORY) ? SCENARIO_DIRECTORY.toFile() : null);
+        chooser.setFileFilter(new FileNameExtensionFilter("Сценарии полёта", Scenario.EXTENSION.substring(1)));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Scenario scenario;
+        try {
+            scenario = Scenario.load(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Ошибка в сценарии", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (isSimulating) {
+            controller.stopSimulation();
+        }
+        controller.playScenario(scenario);
+        startSimulation();
+        statusLabel.setText("Сценарий: " + scenario.getName());
+    }
+
     private void openSettingsWindow() {
-        SettingsWindow settingsWindow = new SettingsWindow(controller);
-        childWindows.add(settingsWindow);
+        if (settingsWindow == null) {
+            settingsWindow = new SettingsWindow(controller);
+        }
+        settingsWindow.setVisible(true);
+        settingsWindow.toFront();
     }
 
     private void openDataWindow() {
-        DataWindow dataWindow = new DataWindow(controller);
-        controller.getModel().addObserver(dataWindow);
-        childWindows.add(dataWindow);
+        if (dataWindow == null) {
+            dataWindow = new DataWindow(controller);
+        }
+        if (dataSubscription == null || dataSubscription.isClosed()) {
+            dataSubscription = frameScheduler.subscribe(dataWindow, TelemetrySnapshot.CHANNEL_FLIGHT, GRAPH_RATE, dataWindow);
+        }
+        dataWindow.setVisible(true);
+        dataWindow.toFront();
+        if (cachedFlight != null) {
+            dataWindow.loadRecording(cachedFlight);
+            frameScheduler.skipCurrentSnapshot();
+        }
     }
 
     private void openPositionWindow() {
-        PositionWindow positionWindow = new PositionWindow(controller);
-        controller.getModel().addObserver(positionWindow);
-        childWindows.add(positionWindow);
+        if (positionWindow == null) {
+            positionWindow = new PositionWindow(controller);
+        }
+        if (positionSubscription == null || positionSubscription.isClosed()) {
+            positionSubscription = frameScheduler.subscribe(positionWindow, positionWindow.getChannels(), GRAPH_RATE, positionWindow);
+            positionWindow.setSubscription(positionSubscription);
+        }
+        positionWindow.setVisible(true);
+        positionWindow.toFront();
+        if (cachedFlight != null) {
+            positionWindow.loadRecording(cachedFlight);
+            frameScheduler.skipCurrentSnapshot();
+        }
     }
 
-    @Override
-    public void onStageSeparation(int stageNumber) {
-        System.out.println("Ступень  " + stageNumber + " отделилась!");
+    // Готовый полёт сразу целиком уходит в открытые окна графиков, модель при этом не запускается
+    private void showCachedFlight(CachedFlight flight) {
+        cachedFlight = flight;
+        if (dataWindow != null) {
+            dataWindow.loadRecording(flight);
+        }
+        if (positionWindow != null) {
+            positionWindow.loadRecording(flight);
+        }
+        statusLabel.setText(String.format("Из кэша: %.0f с полёта, макс. высота %.2f м, макс. скорость %.2f м/с%s",
+                flight.getFinalTime(), flight.getMaxAltitude(), flight.getMaxSpeed(), flight.isLanded() ? ", падение" : ""));
+    }
+
+    private void updateCacheLabel() {
+        ResultCache cache = controller.getResultCache();
+        if (cache != null) {
+            cacheLabel.setText(String.format("Кэш: %d попаданий, %d промахов", cache.getHits(), cache.getMisses()));
+        }
     }
 
     @Override
-    public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses) {
-        SwingUtilities.invokeLater(() -> {
-            double altitude = Math.sqrt(x*x+y*y) - RocketModel.EARTH_RADIUS;
-            statusLabel.setText(String.format("Масса: %.2f кг, Скорость: %.2f м/с, Высота: %.2f м", currentMass, speed, altitude));
+    public void onFrame(TelemetrySnapshot snapshot) {
+        long mass = Math.round(snapshot.getMass() * 100);
+        long speed = Math.round(snapshot.getSpeed() * 100);
+        long altitude = Math.round(snapshot.getAltitude() * 100);
+        if (mass != shownMass || speed != shownSpeed || altitude != shownAltitude) {
+            shownMass = mass;
+            shownSpeed = speed;
+            shownAltitude = altitude;
+            statusLabel.setText(String.format("Масса: %.2f кг, Скорость: %.2f м/с, Высота: %.2f м", mass / 100.0, speed / 100.0, altitude / 100.0));
+        }
+
+        long x = Math.round(snapshot.getX() * 100);
+        long y = Math.round(snapshot.getY() * 100);
+        if (x != shownX || y != shownY) {
+            shownX = x;
+            shownY = y;
+            positionLabel.setText(String.format("Положение x: %.2f м, y: %.2f м", x / 100.0, y / 100.0)); // Обновляем лейбл позиции
+        }
 
-            positionLabel.setText(String.format("Положение x: %.2f м, y: %.2f м", x, y)); // Обновляем лейбл позиции
+        long warp = Math.round(snapshot.getTimeWarp());
+        if (warp != shownWarp) {
+            shownWarp = warp;
+            timeWarpLabel.setText("Текущее ускорение: " + warp + "x");
+        }
+
+        long frameTime = Math.round(frameScheduler.getAverageFrameMillis() * 100);
+        if (frameTime != shownFrameTime) {
+            shownFrameTime = frameTime;
+            frameTimeLabel.setText(String.format("Кадр EDT: %.2f мс", frameTime / 100.0));
+        }
+
+        int remainingStages = snapshot.getRemainingStages();
+        if (shownRemainingStages > remainingStages) {
+            for (int stage = shownRemainingStages; stage > remainingStages; stage--) {
+                System.out.println("Ступень  " + stage + " отделилась!");
+            }
+        }
+        shownRemainingStages = remainingStages;
 
-            for (int i = 0; i < 3; i++) {
-                if (i < remainingStages) {
-                    int fuelPercentage = (int) (fuelMasses[i] / initialFuelMasses[i] * 100);
+        for (int i = 0; i < 3; i++) {
+            if (i < remainingStages) {
+                int fuelPercentage = (int) (snapshot.getFuelMass(i) / snapshot.getInitialFuelMass(i) * 100);
+                if (fuelPercentage != shownFuelPercentage[i]) {
+                    shownFuelPercentage[i] = fuelPercentage;
                     fuelBars[i].setValue(fuelPercentage);
-                    if (fuelPercentage == 0) {
-                        fuelBars[i].setForeground(Color.RED);
-                    } else {
-                        fuelBars[i].setForeground(Color.GREEN);
-                    }
-                    fuelLabels[i].setText(String.format("Ступень %d: %.2f кг топлива", i + 1, fuelMasses[i]));
-                } else {
-                    fuelBars[i].setValue(0);
-                    fuelBars[i].setForeground(Color.RED);
-                    fuelLabels[i].setText(String.format("Ступень %d отделена!", i + 1));
+                    fuelBars[i].setForeground(fuelPercentage == 0 ? Color.RED : Color.GREEN);
                 }
+                long fuel = Math.round(snapshot.getFuelMass(i) * 100);
+                if (fuel != shownFuel[i]) {
+                    shownFuel[i] = fuel;
+                    fuelLabels[i].setText(String.format("Ступень %d: %.2f кг топлива", i + 1, fuel / 100.0));
+                }
+            } else if (shownFuel[i] != -1) {
+                shownFuel[i] = -1;
+                shownFuelPercentage[i] = 0;
+                fuelBars[i].setValue(0);
+                fuelBars[i].setForeground(Color.RED);
+                fuelLabels[i].setText(String.format("Ступень %d отделена!", i + 1));
             }
+        }
 
-            if (controller.isEngineOn()) {
-                engineToggleButton.setText("Выключить двигатель");
-            } else {
-                engineToggleButton.setText("Включить двигатель");
-            }
-        });
+        boolean engineOn = snapshot.isEngineOn();
+        if (shownEngineOn == null || shownEngineOn != engineOn) {
+            shownEngineOn = engineOn;
+            engineToggleButton.setText(engineOn ? "Выключить двигатель" : "Включить двигатель");
+        }
     }
 
 }
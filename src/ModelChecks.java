@@ -0,0 +1,377 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Проверки отдельных классов модели, не сводящиеся к эталонным траекториям: KeplerOrbit против RK4, DualFlight
+// против RocketModel, сжатие TelemetryHistory. Эталоны и сходимость по шагу проверяет RegressionHarness.
+// Запуск: java ModelChecks [--threads N]
+public class ModelChecks {
+
+    // Проверка KeplerOrbit.propagate: сравнение с интегрированием RK4 мелким шагом
+    private static final double[] KEPLER_DURATIONS = {100, 500, 1000, 20000};
+    private static final double KEPLER_POSITION_TOLERANCE = 1e-3;
+    private static final double KEPLER_VELOCITY_TOLERANCE = 1e-6;
+
+    private static final double DUAL_PARITY_TIME = 600;
+    private static final int TELEMETRY_SAMPLES = 20_000;
+
+    // Прогноз окна настроек против прогона с мелким шагом: исход должен совпасть, высоты — с точностью до доли
+    private static final int PREVIEW_REFERENCE_DELAY = 10;
+    private static final double PREVIEW_ALTITUDE_TOLERANCE = 0.05;
+
+    private static final class Check {
+        final String name;
+        boolean passed = true;
+        final List<String> messages = new ArrayList<>();
+        long wallMillis;
+
+        Check(String name) {
+            this.name = name;
+        }
+
+        void fail(String message) {
+            passed = false;
+            messages.add(message);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Check>> futures = new ArrayList<>();
+        futures.add(pool.submit(() -> run("kepler-propagation", ModelChecks::keplerPropagation)));
+        futures.add(pool.submit(() -> run("dual-parity", ModelChecks::dualParity)));
+        futures.add(pool.submit(() -> run("dual-derivatives", ModelChecks::dualDerivatives)));
+        futures.add(pool.submit(() -> run("telemetry-round-trip", ModelChecks::telemetryRoundTrip)));
+        futures.add(pool.submit(() -> run("flight-preview", ModelChecks::flightPreview)));
+
+        int failed = 0;
+        for (Future<Check> future : futures) {
+            Check check = future.get();
+            System.out.println(String.format(Locale.ROOT, "%-4s %-36s %6d мс",
+                    check.passed ? "OK" : "FAIL", check.name, check.wallMillis));
+            for (String message : check.messages) {
+                System.out.println("     " + message);
+            }
+            if (!check.passed) failed++;
+        }
+        pool.shutdown();
+        System.out.println((futures.size() - failed) + "/" + futures.size() + " проверок прошли");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static Check run(String name, Consumer<Check> body) {
+        Check check = new Check(name);
+        long start = System.nanoTime();
+        try {
+            body.accept(check);
+        } catch (RuntimeException e) {
+            check.fail(e.toString());
+        }
+        check.wallMillis = (System.nanoTime() - start) / 1_000_000;
+        return check;
+    }
+
+    // Аналитический перелёт по коническому сечению против RK4 с шагом 0,05 с (0,5 с для долгих перелётов):
+    // эллипсы, гипербола, парабола и радиальные траектории с нулевым моментом импульса. Для радиальных
+    // дополнительно проверяются время до апоцентра и до входа в атмосферу, по которым RocketModel выбирает длину участка
+    private static void keplerPropagation(Check check) {
+        double mu = PointMassGravity.MU;
+        double r = RocketModel.EARTH_RADIUS + 300_000;
+        double[][] states = {
+                {0, r, 0, 11_000},
+                {0, r, 0, 3_000},
+                {0, r, 7_700, 0},
+                {0, r, 9_000, 500},
+                {0, r, 12_000, -200},
+                {0, r, Math.sqrt(2 * mu / r), 0},
+        };
+        String[] names = {"радиальная гипербола", "радиальный эллипс", "почти круговая", "эллипс", "гипербола", "парабола"};
+        double worstPosition = 0;
+        double worstVelocity = 0;
+        double worstDrift = 0;
+        for (int i = 0; i < states.length; i++) {
+            for (double duration : KEPLER_DURATIONS) {
+                double[] reference = integrate(states[i], duration, duration > 2_000 ? 0.5 : 0.05, mu);
+                // Радиальный эллипс за долгий перелёт проходит через центр Земли: такая траектория не физична
+                if (reference[4] < RocketModel.EARTH_RADIUS) {
+                    continue;
+                }
+                double[] state = states[i].clone();
+                try {
+                    KeplerOrbit.propagate(state, duration, mu);
+                } catch (IllegalStateException e) {
+                    check.fail(names[i] + ", " + (int) duration + " с: " + e.getMessage());
+                    continue;
+                }
+                double positionError = Math.hypot(state[0] - reference[0], state[1] - reference[1]);
+                double velocityError = Math.hypot(state[2] - reference[2], state[3] - reference[3]);
+                double drift = Math.abs(energy(state, mu) - energy(states[i], mu));
+                worstPosition = Math.max(worstPosition, positionError);
+                worstVelocity = Math.max(worstVelocity, velocityError);
+                worstDrift = Math.max(worstDrift, drift);
+                if (!(positionError <= KEPLER_POSITION_TOLERANCE && velocityError <= KEPLER_VELOCITY_TOLERANCE)) {
+                    check.fail(String.format(Locale.ROOT, "%s, %d с: ошибка положения %.3e м, скорости %.3e м/с",
+                            names[i], (int) duration, positionError, velocityError));
+                }
+            }
+        }
+        check.messages.add(String.format(Locale.ROOT, "наибольшая ошибка положения %.3e м, скорости %.3e м/с, дрейф энергии %.3e Дж/кг",
+                worstPosition, worstVelocity, worstDrift));
+
+        // Вертикальный подъём со скоростью ниже второй космической: в апоцентре скорость нулевая,
+        // а точка входа в атмосферу при падении — на той же высоте, что и при подъёме
+        double radius = RocketModel.EARTH_RADIUS + Atmosphere.DRAG_FREE_ALTITUDE;
+        double[] rising = {0, r, 0, 5_000};
+        KeplerOrbit orbit = new KeplerOrbit(rising[0], rising[1], rising[2], rising[3], mu);
+        double[] apex = rising.clone();
+        KeplerOrbit.propagate(apex, orbit.timeToNextApsis(rising[0], rising[1]), mu);
+        double[] crossing = new double[3];
+        if (!orbit.descendingCrossing(rising[0], rising[1], radius, crossing)) {
+            check.fail("радиальный эллипс: не найден вход в атмосферу");
+        } else {
+            double[] entry = rising.clone();
+            KeplerOrbit.propagate(entry, crossing[2], mu);
+            double entryError = Math.abs(Math.hypot(entry[0], entry[1]) - radius);
+            check.messages.add(String.format(Locale.ROOT, "радиальный эллипс: скорость в апоцентре %.3e м/с, ошибка высоты входа %.3e м",
+                    Math.abs(apex[3]), entryError));
+            if (!(Math.abs(apex[3]) <= KEPLER_VELOCITY_TOLERANCE && entryError <= KEPLER_POSITION_TOLERANCE)) {
+                check.fail("радиальный эллипс: апоцентр или вход в атмосферу найдены неточно");
+            }
+        }
+    }
+
+    // DualFlight повторяет физику RocketModel на дуальных числах; значения обоих прогонов должны совпадать до бита,
+    // иначе производные SensitivityReport относятся не к той траектории, которую считает модель
+    private static void dualParity(Check check) {
+        FlightConfig[] configs = {
+                RegressionHarness.bundledVehicle().setAutopilotMode(RocketController.AutopilotMode.MANUAL),
+                RegressionHarness.bundledVehicle().setAutopilotMode(RocketController.AutopilotMode.MAX_DISTANCE),
+                RegressionHarness.orbitalVehicle(200_000),
+                RegressionHarness.orbitalVehicle(400_000).setCycleDelay(50),
+        };
+        for (FlightConfig config : configs) {
+            DualFlight.Outcome outcome = new DualFlight(config, DualFlight.allParameters(config)).run(DUAL_PARITY_TIME);
+            RocketModel model = new RocketModel();
+            config.applyTo(model);
+            model.runHeadless(outcome.getTime());
+            Dual[] state = outcome.getState();
+            double[] expected = {model.getPositionX(), model.getPositionY(), model.getSpeedX(), model.getSpeedY()};
+            String label = config.getAutopilotMode() + " " + config.getCycleDelay() + " мс";
+            boolean identical = model.getSimulationTime() == outcome.getTime();
+            for (int i = 0; i < expected.length; i++) {
+                identical &= Double.compare(expected[i], state[i].value()) == 0;
+            }
+            check.messages.add(String.format(Locale.ROOT, "%s: t=%.1f с, отличие положения %.3e м", label, outcome.getTime(),
+                    Math.hypot(expected[0] - state[0].value(), expected[1] - state[1].value())));
+            if (outcome.isLanded()) {
+                check.fail(label + ": ракета упала, сравнивать нечего");
+            } else if (!identical) {
+                check.fail(label + ": дуальный прогон разошёлся с RocketModel");
+            }
+        }
+    }
+
+    // Производные дуального прогона против центральных разностей по всем параметрам. Топливо ракеты по умолчанию
+    // выгорает ровно на границах тактов, поэтому берётся чуть больше; полёт на орбиту с переключениями двигателя
+    // должен быть признан недифференцируемым
+    private static void dualDerivatives(Check check) {
+        FlightConfig base = RegressionHarness.bundledVehicle();
+        base.setRocketParameters(base.getPayloadMass(), base.getStageMasses(), new double[]{5.013, 10.027, 20.041});
+        FlightConfig[] configs = {
+                base.copy().setAutopilotMode(RocketController.AutopilotMode.MANUAL),
+                base.copy().setAutopilotMode(RocketController.AutopilotMode.MAX_DISTANCE),
+        };
+        for (FlightConfig config : configs) {
+            List<String> parameters = DualFlight.allParameters(config);
+            DualFlight.Outcome outcome = new DualFlight(config, parameters).run(DUAL_PARITY_TIME);
+            String label = config.getAutopilotMode().toString();
+            if (!outcome.isDifferentiable()) {
+                check.fail(label + ": полёт признан недифференцируемым");
+                continue;
+            }
+            Dual[] exact = {outcome.getApoapsis(), outcome.getPeriapsis(), outcome.getRemainingFuel()};
+            int compared = 0;
+            for (int p = 0; p < parameters.size(); p++) {
+                double[] difference = SensitivityReport.centralDifference(config, parameters.get(p), DUAL_PARITY_TIME);
+                if (difference == null) {
+                    check.fail(label + ", " + parameters.get(p) + ": разность непригодна");
+                    continue;
+                }
+                for (int i = 0; i < exact.length; i++) {
+                    if (!SensitivityReport.agrees(exact[i].derivative(p), difference[i])) {
+                        check.fail(String.format(Locale.ROOT, "%s, %s, величина %d: производная %.6g, разность %.6g",
+                                label, parameters.get(p), i, exact[i].derivative(p), difference[i]));
+                    }
+                    compared++;
+                }
+            }
+            check.messages.add(label + ": сверено " + compared + " производных");
+        }
+        DualFlight.Outcome orbit = new DualFlight(RegressionHarness.orbitalVehicle(200_000), List.of("payload")).run(DUAL_PARITY_TIME);
+        if (orbit.isDifferentiable()) {
+            check.fail("полёт на орбиту с переключениями двигателя признан дифференцируемым");
+        }
+    }
+
+    // Отсчёты с неровным шагом проходят через сжатие: значения возвращаются до бита, время — округлённым до
+    // миллисекунды, и getFirstTime/getLatestTime совпадают с временем первого и последнего прочитанного отсчёта,
+    // иначе перестроенный график теряет последнюю точку. Вторая история проверяет прореживание старых отсчётов
+    private static void telemetryRoundTrip(Check check) {
+        int count = TELEMETRY_SAMPLES;
+        double[] times = new double[count];
+        double[][] samples = new double[count][];
+        java.util.Random random = new java.util.Random(37);
+        TelemetryHistory full = new TelemetryHistory(3, Double.POSITIVE_INFINITY, 1);
+        TelemetryHistory retained = new TelemetryHistory(3, 60, 1);
+        for (int i = 0; i < count; i++) {
+            times[i] = i / 30.0 + random.nextDouble() * 1e-4;
+            samples[i] = new double[]{Math.sin(i * 1e-3) * 1e5, random.nextGaussian(), i < count / 2 ? 1 : Double.NaN};
+            full.append(times[i], samples[i]);
+            retained.append(times[i], samples[i]);
+        }
+
+        int[] index = {0};
+        full.forEach(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, (time, values) -> {
+            int i = index[0]++;
+            if (i >= count) {
+                return;
+            }
+            if (time != Math.round(times[i] * 1000) / 1000.0) {
+                check.fail(String.format(Locale.ROOT, "отсчёт %d: время %.6f вместо %.6f", i, time, times[i]));
+            }
+            for (int channel = 0; channel < values.length; channel++) {
+                if (Double.doubleToRawLongBits(values[channel]) != Double.doubleToRawLongBits(samples[i][channel])) {
+                    check.fail(String.format(Locale.ROOT, "отсчёт %d, канал %d: значение изменилось", i, channel));
+                }
+            }
+        });
+        if (index[0] != count) {
+            check.fail(String.format(Locale.ROOT, "прочитано %d отсчётов из %d", index[0], count));
+        }
+        checkTelemetryBounds(check, "полная история", full);
+        checkTelemetryBounds(check, "прореженная история", retained);
+
+        // В прореженной истории каждый отсчёт — один из записанных, и за окном не больше одного отсчёта на секунду.
+        // Блок полного разрешения (512 отсчётов, около 17 с) прореживается целиком, когда весь выходит за окно,
+        // поэтому проверяется только то, что старше окна на два блока
+        double archivedUntil = retained.getLatestTime() - 60 - 2 * 512 / 30.0;
+        int[] archived = {0};
+        retained.forEach(Double.NEGATIVE_INFINITY, archivedUntil, (time, values) -> {
+            archived[0]++;
+            int i = (int) Math.round(time * 30);
+            if (i < 0 || i >= count || time != Math.round(times[i] * 1000) / 1000.0 || values[1] != samples[i][1]) {
+                check.fail(String.format(Locale.ROOT, "прореженный отсчёт t=%.3f не совпадает с записанным", time));
+            }
+        });
+        if (archived[0] > archivedUntil - retained.getFirstTime() + 2) {
+            check.fail(String.format(Locale.ROOT, "вне окна осталось %d отсчётов", archived[0]));
+        }
+        check.messages.add(String.format(Locale.ROOT, "%d отсчётов: %d байт вне кучи, после прореживания %d байт",
+                count, full.getOffHeapBytes(), retained.getOffHeapBytes()));
+    }
+
+    private static void checkTelemetryBounds(Check check, String label, TelemetryHistory history) {
+        double[] first = {Double.NaN};
+        double[] last = {Double.NaN};
+        double[] lastValue = {Double.NaN};
+        history.forEach(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, (time, values) -> {
+            if (Double.isNaN(first[0])) {
+                first[0] = time;
+            }
+            last[0] = time;
+            lastValue[0] = values[0];
+        });
+        if (history.getFirstTime() != first[0] || history.getLatestTime() != last[0]) {
+            check.fail(String.format(Locale.ROOT, "%s: границы %.6f..%.6f, прочитано %.6f..%.6f", label,
+                    history.getFirstTime(), history.getLatestTime(), first[0], last[0]));
+        }
+        DecimatedSeries series = new DecimatedSeries(history.getChannelCount(), 256);
+        series.rebuild(history);
+        int lastIndex = series.size() - 1;
+        if (lastIndex < 0 || series.getTime(lastIndex) != last[0] || series.getValue(0, lastIndex) != lastValue[0]) {
+            check.fail(label + ": перестроенный график потерял последний отсчёт");
+        }
+    }
+
+    // Бюджет времени снят, чтобы исход не зависел от скорости машины. Ракета с целью 150 км держит орбиту,
+    // пока автопилот не включит двигатель снова за четвертью оборота, и падает: прогноз должен это увидеть
+    private static void flightPreview(Check check) {
+        FlightConfig[] configs = {
+                RegressionHarness.bundledVehicle().setAutopilotMode(RocketController.AutopilotMode.MAX_DISTANCE),
+                RegressionHarness.orbitalVehicle(150_000),
+                RegressionHarness.orbitalVehicle(200_000),
+                RegressionHarness.orbitalVehicle(400_000),
+        };
+        FlightPreview preview = new FlightPreview(result -> { });
+        preview.setBudgetMillis(1e7);
+        for (FlightConfig config : configs) {
+            FlightPreview.Result coarse = preview.evaluate(FlightPreview.coarse(config));
+            FlightPreview.Result full = preview.evaluate(config.copy().setCycleDelay(PREVIEW_REFERENCE_DELAY));
+            String label = config.getAutopilotMode() == RocketController.AutopilotMode.STABLE_ORBIT
+                    ? "орбита " + (int) (config.getTargetOrbitAltitude() / 1000) + " км" : config.getAutopilotMode().toString();
+            check.messages.add(label + ": " + coarse.describe() + "; шаг " + PREVIEW_REFERENCE_DELAY + " мс: " + full.describe());
+            if (coarse.isOrbit() != full.isOrbit() || coarse.isEscape() != full.isEscape()
+                    || coarse.isTruncated() != full.isTruncated()) {
+                check.fail(label + ": исход прогноза отличается от прогона с мелким шагом");
+            } else if (!withinShare(coarse.getMaxAltitude(), full.getMaxAltitude())
+                    || coarse.isOrbit() && !withinShare(coarse.getPeriapsis(), full.getPeriapsis())) {
+                check.fail(label + ": высоты прогноза отличаются больше чем на " + (int) (PREVIEW_ALTITUDE_TOLERANCE * 100) + "%");
+            }
+        }
+        preview.shutdown();
+    }
+
+    private static boolean withinShare(double actual, double expected) {
+        return Math.abs(actual - expected) <= PREVIEW_ALTITUDE_TOLERANCE * Math.abs(expected);
+    }
+
+    // {x, y, vx, vy, наименьший радиус на пути}
+    private static double[] integrate(double[] initial, double duration, double maxStep, double mu) {
+        int steps = (int) Math.ceil(duration / maxStep);
+        double h = duration / steps;
+        double[] state = Arrays.copyOf(initial, 5);
+        state[4] = Math.hypot(initial[0], initial[1]);
+        double[] k1 = new double[4];
+        double[] k2 = new double[4];
+        double[] k3 = new double[4];
+        double[] k4 = new double[4];
+        double[] stage = new double[4];
+        for (int n = 0; n < steps; n++) {
+            derivative(state, k1, mu);
+            for (int j = 0; j < 4; j++) stage[j] = state[j] + h / 2 * k1[j];
+            derivative(stage, k2, mu);
+            for (int j = 0; j < 4; j++) stage[j] = state[j] + h / 2 * k2[j];
+            derivative(stage, k3, mu);
+            for (int j = 0; j < 4; j++) stage[j] = state[j] + h * k3[j];
+            derivative(stage, k4, mu);
+            for (int j = 0; j < 4; j++) state[j] += h / 6 * (k1[j] + 2 * k2[j] + 2 * k3[j] + k4[j]);
+            state[4] = Math.min(state[4], Math.hypot(state[0], state[1]));
+        }
+        return state;
+    }
+
+    private static void derivative(double[] state, double[] out, double mu) {
+        double r = Math.hypot(state[0], state[1]);
+        double g = -mu / (r * r * r);
+        out[0] = state[2];
+        out[1] = state[3];
+        out[2] = g * state[0];
+        out[3] = g * state[1];
+    }
+
+    private static double energy(double[] state, double mu) {
+        return 0.5 * (state[2] * state[2] + state[3] * state[3]) - mu / Math.hypot(state[0], state[1]);
+    }
+}
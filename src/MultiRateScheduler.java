@@ -0,0 +1,111 @@
+import java.util.Locale;
+
+// Расписание задач модели, которые идут со своей частотой поверх шага физики. Задача срабатывает, когда время
+// симуляции доходит до её очередного срока, и между срабатываниями её результат держится неизменным (как у
+// бортового вычислителя, который обновляет наведение 10–50 раз в секунду). Частота 0 — на каждом шаге физики.
+// Время каждой задачи замеряется отдельно, если замер включён: наведение выполняется внутри шага физики, и его
+// время из времени физики вычитается
+final class MultiRateScheduler {
+
+    enum Task { PHYSICS, GUIDANCE, OBSERVERS, PUBLICATION }
+
+    private static final Task[] TASKS = Task.values();
+
+    private final double[] periods = new double[TASKS.length];
+    private final double[] nextTimes = new double[TASKS.length];
+    private final long[] runs = new long[TASKS.length];
+    private final long[] nanos = new long[TASKS.length];
+    private long nestedNanos;
+    private volatile boolean timing;
+
+    void setRate(Task task, double rate) {
+        periods[task.ordinal()] = rate > 0 ? 1 / rate : 0;
+    }
+
+    double getRate(Task task) {
+        double period = periods[task.ordinal()];
+        return period > 0 ? 1 / period : 0;
+    }
+
+    boolean hasRate(Task task) {
+        return periods[task.ordinal()] > 0;
+    }
+
+    // Новый прогон: все задачи срабатывают на первом же шаге, счётчики обнуляются
+    void reset() {
+        for (int i = 0; i < TASKS.length; i++) {
+            nextTimes[i] = Double.NEGATIVE_INFINITY;
+            runs[i] = 0;
+            nanos[i] = 0;
+        }
+    }
+
+    // Выполнить задачу на ближайшем шаге, не дожидаясь срока (например, после смены режима автопилота)
+    void trigger(Task task) {
+        nextTimes[task.ordinal()] = Double.NEGATIVE_INFINITY;
+    }
+
+    // Пора ли выполнить задачу в момент time; если да, следующий срок отсчитывается по сетке, без накопления сдвига.
+    // Сроки, пропущенные на длинном баллистическом участке, не наверстываются
+    boolean isDue(Task task, double time) {
+        int i = task.ordinal();
+        double period = periods[i];
+        if (period == 0) {
+            return true;
+        }
+        double next = nextTimes[i];
+        if (time + 1e-9 < next) {
+            return false;
+        }
+        nextTimes[i] = next == Double.NEGATIVE_INFINITY ? time + period : next + period * (Math.floor((time - next) / period + 1e-9) + 1);
+        return true;
+    }
+
+    void setTiming(boolean timing) {
+        this.timing = timing;
+    }
+
+    long start(Task task) {
+        if (task == Task.PHYSICS) {
+            nestedNanos = 0;
+        }
+        return timing ? System.nanoTime() : 0;
+    }
+
+    void finish(Task task, long start) {
+        int i = task.ordinal();
+        runs[i]++;
+        if (!timing) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (task == Task.PHYSICS) {
+            elapsed -= nestedNanos;
+        } else {
+            nestedNanos += elapsed;
+        }
+        nanos[i] += elapsed;
+    }
+
+    long getRuns(Task task) {
+        return runs[task.ordinal()];
+    }
+
+    long getNanos(Task task) {
+        return nanos[task.ordinal()];
+    }
+
+    // Сводка для журналов и бенчмарков; счётчики пишет поток симуляции, так что во время полёта она приблизительная
+    String report() {
+        StringBuilder text = new StringBuilder();
+        for (Task task : TASKS) {
+            int i = task.ordinal();
+            text.append(String.format(Locale.ROOT, "%-12s %8s Гц %10d запусков", task, periods[i] > 0 ? String.format(Locale.ROOT, "%.1f", 1 / periods[i]) : "шаг", runs[i]));
+            if (timing) {
+                text.append(String.format(Locale.ROOT, " %10.1f мс %8.1f нс/запуск", nanos[i] / 1e6, runs[i] > 0 ? (double) nanos[i] / runs[i] : 0));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
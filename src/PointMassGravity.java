@@ -0,0 +1,22 @@
+public final class PointMassGravity implements GravityModel {
+
+    public static final PointMassGravity INSTANCE = new PointMassGravity();
+
+    public static final double MU = RocketModel.GRAVITATIONAL_CONSTANT * RocketModel.EARTH_MASS;
+
+    private PointMassGravity() {
+    }
+
+    @Override
+    public void acceleration(double x, double y, double time, double[] out) {
+        double r = Math.sqrt(x * x + y * y);
+        double gravityMagnitude = MU / (r * r);
+        out[0] = -gravityMagnitude * (x / r);
+        out[1] = -gravityMagnitude * (y / r);
+    }
+
+    @Override
+    public String getName() {
+        return POINT_MASS;
+    }
+}
@@ -6,15 +6,35 @@ import java.util.*;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-public class PositionWindow extends JFrame implements RocketObserver {
+public class PositionWindow extends JFrame implements UiFrameScheduler.FrameView {
     private final RocketController controller;
     private JSpinner angleSpinner;
     private DrawingPanel drawingPanel;
     private final Object trajectoryLock = new Object();
 
     private double rocketAngle = 90;
-    private final List<Point2D.Double> trajectoryPoints = new CopyOnWriteArrayList<>();
+    private double shownAngle = Double.NaN;
+    // Значение спиннера меняется из кода, а не пользователем; только в EDT
+    private boolean updatingAngle;
+    private boolean predictionRunning = false;
+    // Последний кадр с обломками; читается и пишется только в EDT
+    private TelemetrySnapshot debrisSnapshot;
+    // Пройденный путь: полная история вне кучи и прореженная копия для отрисовки; обе используются только в EDT
+    private final TelemetryHistory trajectoryHistory = new TelemetryHistory(2);
+    private final DecimatedSeries trajectorySeries = new DecimatedSeries(2, 8192);
+    private final double[] trajectorySample = new double[2];
     private List<Point2D.Double> predictedTrajectoryPoints = new CopyOnWriteArrayList<>();
+
+    private static final int BASE_CHANNELS = TelemetrySnapshot.CHANNEL_FLIGHT | TelemetrySnapshot.CHANNEL_DEBRIS;
+    private static final Color[] FAN_COLORS = {
+            new Color(0, 160, 0), Color.BLUE, new Color(0, 150, 150), new Color(130, 80, 0), new Color(140, 0, 200), new Color(200, 150, 0)
+    };
+    // Веер прогнозов «что если»; результат читается и пишется только в EDT
+    private final WhatIfFan fan = new WhatIfFan(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), this::showFan);
+    private WhatIfFan.Result fanResult;
+    private boolean fanEnabled;
+    private UiFrameScheduler.Subscription subscription;
+
     public PositionWindow(RocketController controller) {
         this.controller = controller;
         initUI();
@@ -27,6 +47,9 @@ public class PositionWindow extends JFrame implements RocketObserver {
 
         angleSpinner = new JSpinner(new SpinnerNumberModel(90.0, 0.0, 180.0, 0.1));
         angleSpinner.addChangeListener(e -> {
+            if (updatingAngle) {
+                return;
+            }
             if (controller.getAutopilotMode() == RocketController.AutopilotMode.MANUAL) {
                 rocketAngle = (double) angleSpinner.getValue();
                 controller.getModel().setRocketAngle(rocketAngle);
@@ -34,7 +57,7 @@ public class PositionWindow extends JFrame implements RocketObserver {
                     angleSpinner.setEnabled(true);
                 }
             } else {
-                angleSpinner.setValue(controller.getModel().getRocketAngle());
+                showAngle(controller.getModel().getRocketAngle());
                 if (angleSpinner.isEnabled()) {
                     angleSpinner.setEnabled(false);
                 }
@@ -45,42 +68,133 @@ public class PositionWindow extends JFrame implements RocketObserver {
         JPanel topPanel = new JPanel();
         topPanel.add(new JLabel("Текущий угол (градусы):"));
         topPanel.add(angleSpinner);
+
+        JCheckBox fanCheckBox = new JCheckBox("Что если");
+        JSpinner variantSpinner = new JSpinner(new SpinnerNumberModel(WhatIfFan.Variant.values().length, 1, WhatIfFan.Variant.values().length, 1));
+        JSpinner budgetSpinner = new JSpinner(new SpinnerNumberModel(fan.getBudgetMillis(), 1.0, 500.0, 1.0));
+        fanCheckBox.addActionListener(e -> setFanEnabled(fanCheckBox.isSelected()));
+        variantSpinner.addChangeListener(e -> fan.setVariantCount((int) variantSpinner.getValue()));
+        budgetSpinner.addChangeListener(e -> fan.setBudgetMillis((double) budgetSpinner.getValue()));
+        topPanel.add(fanCheckBox);
+        topPanel.add(new JLabel("Вариантов:"));
+        topPanel.add(variantSpinner);
+        topPanel.add(new JLabel("Время на кадр (мс):"));
+        topPanel.add(budgetSpinner);
         add(topPanel, BorderLayout.NORTH);
 
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                fan.cancel();
+            }
+        });
+
         drawingPanel = new DrawingPanel();
         add(drawingPanel, BorderLayout.CENTER);
+    }
 
-        setVisible(true);
+    // Показ угла модели не считается вводом пользователя и не отправляет команду
+    private void showAngle(double angle) {
+        updatingAngle = true;
+        try {
+            angleSpinner.setValue(angle);
+        } finally {
+            updatingAngle = false;
+        }
     }
 
     @Override
-    public void onStageSeparation(int stageNumber) {
+    public void onFrame(TelemetrySnapshot snapshot) {
+        double angle = snapshot.getAngle();
+        if (angle != shownAngle) {
+            shownAngle = angle;
+            showAngle(angle);
+        }
+        boolean manual = controller.getAutopilotMode() == RocketController.AutopilotMode.MANUAL;
+        if (angleSpinner.isEnabled() != manual) {
+            angleSpinner.setEnabled(manual);
+        }
+
+        trajectorySample[0] = snapshot.getX();
+        trajectorySample[1] = snapshot.getY();
+        if (snapshot.getTime() < trajectoryHistory.getLatestTime()) {
+            // Время пошло назад — начался новый полёт
+            trajectoryHistory.clear();
+            trajectorySeries.clear();
+        }
+        if (trajectoryHistory.append(snapshot.getTime(), trajectorySample)) {
+            trajectorySeries.append(snapshot.getTime(), trajectorySample);
+        }
+        debrisSnapshot = snapshot;
+
+        if (fanEnabled) {
+            // Каждый кадр начинает новое поколение веера и отменяет недосчитанное
+            if (snapshot.getState() != null) {
+                fan.submit(snapshot.getState());
+            }
+        } else if (!predictionRunning) {
+            // Новый прогноз запускается, только когда предыдущий уже посчитан
+            predictionRunning = true;
+            calculatePredictedTrajectory(snapshot.getX(), snapshot.getY(), snapshot.getVx(), snapshot.getVy(), snapshot.getTime());
+        }
 
+        drawingPanel.repaint();
     }
 
-    @Override
-    public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses) {
-        SwingUtilities.invokeLater(() -> {
-                angleSpinner.setValue(angle);
 
-            angleSpinner.setEnabled(controller.getAutopilotMode() == RocketController.AutopilotMode.MANUAL);
-            });
+    public int getChannels() {
+        return fanEnabled ? BASE_CHANNELS | TelemetrySnapshot.CHANNEL_STATE : BASE_CHANNELS;
+    }
 
-        synchronized (trajectoryLock) {
-            trajectoryPoints.add(new Point2D.Double(x, y));
-        }
+    // Подписка окна на срезы; полное состояние модели запрашивается, только пока включён веер
+    public void setSubscription(UiFrameScheduler.Subscription subscription) {
+        this.subscription = subscription;
+    }
 
-        calculatePredictedTrajectory(x, y, controller.getModel().getSpeedX(), controller.getModel().getSpeedY());
+    private void setFanEnabled(boolean enabled) {
+        fanEnabled = enabled;
+        if (!enabled) {
+            fan.cancel();
+            fanResult = null;
+        }
+        if (subscription != null && !subscription.isClosed()) {
+            subscription.setChannels(getChannels());
+        }
+        drawingPanel.repaint();
+    }
 
-        SwingUtilities.invokeLater(() -> drawingPanel.repaint());
+    private void showFan(WhatIfFan.Result result) {
+        if (fanEnabled) {
+            fanResult = result;
+            drawingPanel.repaint();
+        }
     }
 
+    // Заменяет траекторию записанным полётом целиком; прогноз и обломки живой симуляции к нему не относятся
+    public void loadRecording(CachedFlight flight) {
+        trajectoryHistory.clear();
+        for (int i = 0; i < flight.size(); i++) {
+            trajectorySample[0] = flight.get(1, i);
+            trajectorySample[1] = flight.get(2, i);
+            trajectoryHistory.append(flight.get(0, i), trajectorySample);
+        }
+        trajectorySeries.rebuild(trajectoryHistory);
+        synchronized (trajectoryLock) {
+            predictedTrajectoryPoints = new CopyOnWriteArrayList<>();
+        }
+        fan.cancel();
+        fanResult = null;
+        debrisSnapshot = null;
+        drawingPanel.repaint();
+    }
 
-    private void calculatePredictedTrajectory(double x0, double y0, double vx0, double vy0) {
+    private void calculatePredictedTrajectory(double x0, double y0, double vx0, double vy0, double t0) {
+        GravityModel gravityModel = controller.getModel().getGravityModel();
         SwingWorker<List<Point2D.Double>, Void> worker = new SwingWorker<>() {
             @Override
             protected List<Point2D.Double> doInBackground() {
                 List<Point2D.Double> predictedPoints = new ArrayList<>();
+                double[] gravity = new double[2];
                 double t = 0;
                 double dt = controller.getModel().getDeltaTime();
                 double x = x0;
@@ -92,13 +206,10 @@ public class PositionWindow extends JFrame implements RocketObserver {
                 int steps = 0;
 
                 while (Math.sqrt(x * x + y * y) >= RocketModel.EARTH_RADIUS && t < 10000 && steps < maxSteps) {
-                    double r = Math.sqrt(x * x + y * y);
-                    double gravityMagnitude = RocketModel.GRAVITATIONAL_CONSTANT * RocketModel.EARTH_MASS / (r * r);
-                    double gx = -gravityMagnitude * (x / r);
-                    double gy = -gravityMagnitude * (y / r);
+                    gravityModel.acceleration(x, y, t0 + t, gravity);
 
-                    vx += gx * dt;
-                    vy += gy * dt;
+                    vx += gravity[0] * dt;
+                    vy += gravity[1] * dt;
 
                     x += vx * dt;
                     y += vy * dt;
@@ -113,6 +224,7 @@ public class PositionWindow extends JFrame implements RocketObserver {
 
             @Override
             protected void done() {
+                predictionRunning = false;
                 try {
                     List<Point2D.Double> predictedPoints = get();
                     synchronized (trajectoryLock) {
@@ -182,7 +294,7 @@ public class PositionWindow extends JFrame implements RocketObserver {
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (trajectoryPoints.isEmpty()) return;
+            if (trajectoryHistory.isEmpty()) return;
 
             Graphics2D g2d = (Graphics2D) g;
             g2d.setColor(Color.WHITE);
@@ -196,15 +308,22 @@ public class PositionWindow extends JFrame implements RocketObserver {
             g2d.setColor(Color.DARK_GRAY);
             g2d.fillOval((int) (-RocketModel.EARTH_RADIUS), (int) (-RocketModel.EARTH_RADIUS), earthRadius * 2, earthRadius * 2);
             g2d.setColor(Color.RED);
-            drawPath(g2d, trajectoryPoints);
+            drawSeries(g2d, trajectorySeries);
+
+            if (fanEnabled) {
+                drawFan(g2d);
+            } else {
+                g2d.setColor(Color.GREEN);
+                drawPath(g2d, predictedTrajectoryPoints);
+            }
 
-            g2d.setColor(Color.GREEN);
-            drawPath(g2d, predictedTrajectoryPoints);
+            if (debrisSnapshot != null) {
+                drawDebris(g2d, debrisSnapshot);
+            }
 
-            if (!trajectoryPoints.isEmpty()) {
-                Point2D.Double lastPoint = trajectoryPoints.get(trajectoryPoints.size() - 1);
-                double x = lastPoint.x;
-                double y = lastPoint.y;
+            if (!trajectoryHistory.isEmpty()) {
+                double x = trajectoryHistory.getLatest(0);
+                double y = trajectoryHistory.getLatest(1);
 
                 double angleRad = Math.toRadians(controller.getModel().getRocketAngle());
 
@@ -219,6 +338,67 @@ public class PositionWindow extends JFrame implements RocketObserver {
                 g2d.setTransform(rocketTransform);
             }
             g2d.setTransform(originalTransform);
+            if (fanEnabled && fanResult != null) {
+                drawFanLegend(g2d);
+            }
+        }
+
+        private void drawFan(Graphics2D g2d) {
+            if (fanResult == null) return;
+            for (int i = fanResult.size() - 1; i >= 0; i--) {
+                double[] arc = fanResult.getArc(i);
+                if (arc.length < 4) continue;
+                Path2D path = new Path2D.Double();
+                path.moveTo(arc[0], arc[1]);
+                for (int j = 2; j < arc.length; j += 2) {
+                    path.lineTo(arc[j], arc[j + 1]);
+                }
+                g2d.setColor(FAN_COLORS[fanResult.getVariant(i).ordinal() % FAN_COLORS.length]);
+                g2d.draw(path);
+            }
+        }
+
+        // Подписи вариантов в экранных координатах; оборванные по времени отмечены многоточием
+        private void drawFanLegend(Graphics2D g2d) {
+            int lineHeight = g2d.getFontMetrics().getHeight();
+            for (int i = 0; i < fanResult.size(); i++) {
+                WhatIfFan.Variant variant = fanResult.getVariant(i);
+                int y = 10 + (i + 1) * lineHeight;
+                g2d.setColor(FAN_COLORS[variant.ordinal() % FAN_COLORS.length]);
+                g2d.fillRect(10, y - lineHeight / 2 - 1, 20, 3);
+                g2d.setColor(Color.BLACK);
+                g2d.drawString(fanResult.isTruncated(i) ? variant + "…" : variant.toString(), 36, y);
+            }
+        }
+
+        // Размеры меток заданы в пикселях, поэтому делятся на масштаб
+        private void drawDebris(Graphics2D g2d, TelemetrySnapshot snapshot) {
+            double size = 6 / scale;
+            double[] positions = snapshot.getDebrisPositions();
+            double[] predicted = snapshot.getDebrisPredictedImpacts();
+            for (int i = 0; i < positions.length; i += 2) {
+                g2d.setColor(Color.ORANGE);
+                g2d.fill(new Rectangle2D.Double(positions[i] - size / 2, positions[i + 1] - size / 2, size, size));
+                if (!Double.isNaN(predicted[i])) {
+                    g2d.setColor(Color.MAGENTA);
+                    g2d.draw(new Line2D.Double(predicted[i] - size, predicted[i + 1] - size, predicted[i] + size, predicted[i + 1] + size));
+                    g2d.draw(new Line2D.Double(predicted[i] - size, predicted[i + 1] + size, predicted[i] + size, predicted[i + 1] - size));
+                }
+            }
+            for (DebrisScene.Impact impact : snapshot.getDebrisImpacts()) {
+                g2d.setColor(impact.isOrbiting() ? Color.BLUE : Color.MAGENTA);
+                g2d.fill(new Ellipse2D.Double(impact.getX() - size, impact.getY() - size, 2 * size, 2 * size));
+            }
+        }
+
+        private void drawSeries(Graphics2D g2d, DecimatedSeries series) {
+            if (series.size() < 2) return;
+            Path2D path = new Path2D.Double();
+            path.moveTo(series.getValue(0, 0), series.getValue(1, 0));
+            for (int i = 1; i < series.size(); i++) {
+                path.lineTo(series.getValue(0, i), series.getValue(1, i));
+            }
+            g2d.draw(path);
         }
 
         private void drawPath(Graphics2D g2d, List<Point2D.Double> points) {
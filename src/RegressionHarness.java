@@ -0,0 +1,460 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Прогоняет каталог конфигураций без UI и сравнивает траектории с эталонами в regression/golden, а также проверяет
+// сходимость по шагу цикла. Проверки отдельных классов модели — в ModelChecks.
+// Запуск: java RegressionHarness [--update] [--threads N]
+public class RegressionHarness {
+
+    private static final Path GOLDEN_DIR = Path.of("regression", "golden");
+    private static final Path REPORT_FILE = Path.of("regression", "report.txt");
+
+    private static final double SAMPLE_INTERVAL = 5;
+    private static final double MAX_SIMULATION_TIME = 600;
+    private static final double MAX_DISTANCE_SIMULATION_TIME = 1200;
+    // Наклон ракеты в ручном режиме, чтобы траектория не была радиальной
+    private static final double MANUAL_ANGLE = 10;
+
+    // Допуски по каналам t, x, y, vx, vy, mass, angle
+    private static final double[] TOLERANCES = {1e-6, 1.0, 1.0, 0.01, 0.01, 1e-6, 1e-3};
+    private static final double NATIVE_TOLERANCE_FACTOR = 100;
+    // Табличное наведение сверяется с эталоном аналитического закона. Интерполяция отличается от закона на доли
+    // метра прогнозируемого апогея, но у края окна отсечки решение о двигателе может сдвинуться на такт: тогда
+    // скорость отличается на приращение за такт, а ступень в точке выборки может быть уже отделена (масса — до ступени)
+    private static final double[] TABLE_TOLERANCES = {1e-6, 10.0, 10.0, 2.0, 2.0, 10.0, 0.01};
+
+    private static final long WALL_CLOCK_BUDGET_MILLIS = 5_000;
+    private static final long ALLOCATION_BUDGET_BYTES = 64L << 20;
+
+    private static final int[] CYCLE_DELAYS = {10, 50, 100};
+
+    // Сходимость по шагу: состояние в момент CONVERGENCE_TIME сравнивается с прогоном на самом мелком шаге
+    private static final int[] CONVERGENCE_DELAYS = {100, 50, 20, 10, 5, 2, 1};
+    private static final double CONVERGENCE_TIME = 120;
+    // Допуск по положению, для которого подбирается наибольший подходящий шаг
+    private static final double CONVERGENCE_TOLERANCE = 1.0;
+    // Ошибка самого крупного шага сверх этого значения означает, что результат снова зависит от шага.
+    // Полуявный Эйлер — метод первого порядка: при шаге 100 мс к 120-й секунде работающая ракета
+    // расходится с эталоном на 100–350 м, и ошибка убывает пропорционально шагу
+    private static final double CONVERGENCE_LIMIT = 500.0;
+    private static final double[] TARGET_ALTITUDES = {150_000, 200_000, 400_000};
+
+    // Баллистические участки выше атмосферы: ракета должна пройти часть полёта коническими сечениями,
+    // а падения ступеней сверяются с отдельным эталоном <имя>-debris.csv
+    private static final double COAST_SIMULATION_TIME = 3000;
+    private static final double[] DEBRIS_TOLERANCES = {0, 1e-6, 1.0, 1.0, 0};
+
+    private static final class Case {
+        final String name;
+        final String goldenName;
+        final FlightConfig config;
+        final double maxSimulationTime;
+        final boolean coast;
+        // Угол ракеты до старта для ручного режима, NaN — по умолчанию
+        final double rocketAngle;
+
+        Case(String name, String goldenName, FlightConfig config) {
+            this(name, goldenName, config, MAX_SIMULATION_TIME, false, Double.NaN);
+        }
+
+        Case(String name, String goldenName, FlightConfig config, double maxSimulationTime, boolean coast, double rocketAngle) {
+            this.name = name;
+            this.goldenName = goldenName;
+            this.config = config;
+            this.maxSimulationTime = maxSimulationTime;
+            this.coast = coast;
+            this.rocketAngle = rocketAngle;
+        }
+    }
+
+    private static final class Result {
+        final Case testCase;
+        boolean passed = true;
+        final List<String> messages = new ArrayList<>();
+        long wallMillis;
+        long allocatedBytes;
+        int samples;
+
+        Result(Case testCase) {
+            this.testCase = testCase;
+        }
+
+        void fail(String message) {
+            passed = false;
+            messages.add(message);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean update = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--update")) {
+                update = true;
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            }
+        }
+
+        List<Case> cases = catalogue();
+        Files.createDirectories(GOLDEN_DIR);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>();
+        boolean finalUpdate = update;
+        for (Case testCase : cases) {
+            futures.add(pool.submit(() -> runCase(testCase, finalUpdate)));
+        }
+
+        List<Future<Result>> convergenceFutures = new ArrayList<>();
+        for (RocketController.AutopilotMode mode : RocketController.AutopilotMode.values()) {
+            convergenceFutures.add(pool.submit(() -> runConvergence(mode)));
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Future<Result> future : futures) {
+            results.add(future.get());
+        }
+        for (Future<Result> future : convergenceFutures) {
+            results.add(future.get());
+        }
+        pool.shutdown();
+
+        int failed = 0;
+        try (BufferedWriter report = Files.newBufferedWriter(REPORT_FILE, StandardCharsets.UTF_8)) {
+            for (Result result : results) {
+                String line = String.format(Locale.ROOT, "%-4s %-36s %6d мс %8.1f МБ %5d точек",
+                        result.passed ? "OK" : "FAIL", result.testCase.name, result.wallMillis,
+                        result.allocatedBytes / (1024.0 * 1024.0), result.samples);
+                System.out.println(line);
+                report.write(line);
+                report.newLine();
+                for (String message : result.messages) {
+                    System.out.println("     " + message);
+                    report.write("     " + message);
+                    report.newLine();
+                }
+                if (!result.passed) failed++;
+            }
+        }
+        System.out.println((results.size() - failed) + "/" + results.size() + " случаев прошли, отчёт: " + REPORT_FILE);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static List<Case> catalogue() {
+        List<FlightConfig> configs = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Double> maxTimes = new ArrayList<>();
+        configs.add(bundledVehicle().setAutopilotMode(RocketController.AutopilotMode.MANUAL));
+        names.add("manual");
+        maxTimes.add(MAX_SIMULATION_TIME);
+        // Дальний полёт целиком, до падения
+        configs.add(bundledVehicle().setAutopilotMode(RocketController.AutopilotMode.MAX_DISTANCE));
+        names.add("max-distance");
+        maxTimes.add(MAX_DISTANCE_SIMULATION_TIME);
+        for (double altitude : TARGET_ALTITUDES) {
+            configs.add(orbitalVehicle(altitude));
+            names.add("stable-orbit-" + (int) (altitude / 1000) + "km");
+            maxTimes.add(MAX_SIMULATION_TIME);
+        }
+
+        List<Case> cases = new ArrayList<>();
+        for (int i = 0; i < configs.size(); i++) {
+            double angle = configs.get(i).getAutopilotMode() == RocketController.AutopilotMode.MANUAL ? MANUAL_ANGLE : Double.NaN;
+            for (int delay : CYCLE_DELAYS) {
+                FlightConfig config = configs.get(i).copy().setCycleDelay(delay);
+                String name = names.get(i) + "-" + delay + "ms";
+                cases.add(new Case(name, name, config, maxTimes.get(i), false, angle));
+                if (RocketModel.isNativeAvailable()) {
+                    cases.add(new Case(name + "-native", name, config.copy().setUseNativeCode(true), maxTimes.get(i), false, angle));
+                }
+                if (config.getAutopilotMode() == RocketController.AutopilotMode.STABLE_ORBIT) {
+                    cases.add(new Case(name + "-table", name, config.copy().setUseGuidanceTable(true), maxTimes.get(i), false, angle));
+                }
+            }
+        }
+        for (String gravityModel : new String[]{GravityModel.J2, GravityModel.J2_MOON_SUN}) {
+            String name = "stable-orbit-200km-100ms-" + gravityModel;
+            cases.add(new Case(name, name, orbitalVehicle(200_000).setGravityModel(gravityModel)));
+        }
+
+        // Вертикальный подъём на ~1850 км: радиальная траектория с нулевым моментом импульса, ступени летят ею же
+        FlightConfig vertical = bundledVehicle().setAutopilotMode(RocketController.AutopilotMode.MANUAL);
+        cases.add(new Case("coast-vertical-100ms", "coast-vertical-100ms", vertical, COAST_SIMULATION_TIME, true, 0));
+        // Выход на орбиту с выгоранием всех ступеней; нижние ступени падают сквозь атмосферу, пока ракета на орбите
+        FlightConfig orbit = new FlightConfig().setAutopilotMode(RocketController.AutopilotMode.STABLE_ORBIT)
+                .setTargetOrbitAltitude(150_000)
+                .setRocketParameters(2, new double[]{2, 7, 10}, new double[]{6, 33, 153})
+                .setPropulsion(new double[]{0.1, 1.15, 2.45}, new double[]{3200, 3000, 3000});
+        cases.add(new Case("coast-orbit-100ms", "coast-orbit-100ms", orbit, COAST_SIMULATION_TIME, true, Double.NaN));
+        return cases;
+    }
+
+    // Ракета из сценариев в scenarios: на ручном управлении и на дальность поднимается на сотни километров
+    static FlightConfig bundledVehicle() {
+        return new FlightConfig()
+                .setRocketParameters(2, new double[]{1, 3, 5}, new double[]{5, 10, 20})
+                .setPropulsion(new double[]{0.05, 0.2, 0.5}, new double[]{3200, 3000, 3000});
+    }
+
+    // Автопилот орбиты управляет двигателем импульсами и результат заметно зависит от ракеты; эти подобраны так,
+    // что выходят на орбиту при любом шаге каталога (для 200 км — и с несферической гравитацией).
+    // Орбита получается выше цели: автопилот проскакивает её
+    static FlightConfig orbitalVehicle(double targetAltitude) {
+        FlightConfig config = new FlightConfig().setAutopilotMode(RocketController.AutopilotMode.STABLE_ORBIT)
+                .setTargetOrbitAltitude(targetAltitude);
+        if (targetAltitude <= 200_000) {
+            return config.setRocketParameters(2, new double[]{3, 5, 9}, new double[]{18, 22, 159})
+                    .setPropulsion(new double[]{0.35, 1.15, 3.4}, new double[]{3200, 3000, 3000});
+        }
+        return config.setRocketParameters(2, new double[]{2, 2, 8}, new double[]{9, 63, 147})
+                .setPropulsion(new double[]{0.2, 1.0, 3.3}, new double[]{3200, 3000, 3000});
+    }
+
+    private static Result runCase(Case testCase, boolean update) {
+        Result result = new Result(testCase);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        RocketModel model = new RocketModel();
+        TrajectoryRecorder recorder = new TrajectoryRecorder(model, SAMPLE_INTERVAL);
+        model.addObserver(recorder);
+        testCase.config.applyTo(model);
+        if (!Double.isNaN(testCase.rocketAngle)) {
+            model.setRocketAngle(testCase.rocketAngle);
+        }
+        model.runHeadless(testCase.maxSimulationTime);
+        recorder.recordFinal();
+
+        result.wallMillis = (System.nanoTime() - start) / 1_000_000;
+        result.allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        result.samples = recorder.size();
+        if (testCase.config.getAutopilotMode() == RocketController.AutopilotMode.STABLE_ORBIT) {
+            double periapsis = KeplerOrbit.periapsisRadius(model.getPositionX(), model.getPositionY(), model.getSpeedX(), model.getSpeedY(),
+                    PointMassGravity.MU) - RocketModel.EARTH_RADIUS;
+            result.messages.add(String.format(Locale.ROOT, "перицентр в конце %.1f км", periapsis / 1000));
+            if (!(periapsis > Atmosphere.DRAG_FREE_ALTITUDE)) {
+                result.fail("орбита не достигнута: перицентр ниже " + (int) (Atmosphere.DRAG_FREE_ALTITUDE / 1000) + " км");
+            }
+        }
+        if (testCase.coast) {
+            result.messages.add(String.format(Locale.ROOT, "по коническим сечениям %d из %d тактов",
+                    model.getCoastedTicks(), Math.round(model.getSimulationTime() * 1000 / testCase.config.getCycleDelay())));
+            if (model.getCoastedTicks() == 0) {
+                result.fail("баллистический участок ни разу не пройден аналитически");
+            }
+        }
+
+        if (result.wallMillis > WALL_CLOCK_BUDGET_MILLIS) {
+            result.fail("превышен бюджет времени: " + result.wallMillis + " мс > " + WALL_CLOCK_BUDGET_MILLIS + " мс");
+        }
+        if (result.allocatedBytes > ALLOCATION_BUDGET_BYTES) {
+            result.fail("превышен бюджет аллокаций: " + result.allocatedBytes + " Б > " + ALLOCATION_BUDGET_BYTES + " Б");
+        }
+
+        Path golden = GOLDEN_DIR.resolve(testCase.goldenName + ".csv");
+        try {
+            if (update && testCase.name.equals(testCase.goldenName)) {
+                writeGolden(golden, recorder);
+            } else if (!Files.exists(golden)) {
+                result.fail("нет эталона " + golden + ", запишите его с --update");
+            } else {
+                double[] tolerances = TOLERANCES;
+                if (testCase.config.isUseGuidanceTable()) {
+                    tolerances = TABLE_TOLERANCES;
+                } else if (testCase.config.isUseNativeCode()) {
+                    tolerances = Arrays.stream(TOLERANCES).map(tolerance -> tolerance * NATIVE_TOLERANCE_FACTOR).toArray();
+                }
+                compare(readGolden(golden), recorder, tolerances, result);
+            }
+            if (testCase.coast) {
+                Path debrisGolden = GOLDEN_DIR.resolve(testCase.goldenName + "-debris.csv");
+                List<double[]> impacts = impactRows(model.getDebrisScene().getImpacts());
+                if (update && testCase.name.equals(testCase.goldenName)) {
+                    writeRows(debrisGolden, DEBRIS_CHANNELS, impacts);
+                } else if (!Files.exists(debrisGolden)) {
+                    result.fail("нет эталона " + debrisGolden + ", запишите его с --update");
+                } else {
+                    compareImpacts(readGolden(debrisGolden), impacts, result);
+                }
+            }
+        } catch (IOException e) {
+            result.fail("ошибка чтения/записи эталона: " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static Result runConvergence(RocketController.AutopilotMode mode) {
+        String name = "convergence-" + mode.name().toLowerCase(Locale.ROOT).replace('_', '-');
+        FlightConfig config = mode == RocketController.AutopilotMode.STABLE_ORBIT
+                ? orbitalVehicle(200_000) : bundledVehicle().setAutopilotMode(mode);
+        Result result = new Result(new Case(name, name, config));
+        long start = System.nanoTime();
+
+        double[][] states = new double[CONVERGENCE_DELAYS.length][];
+        for (int i = 0; i < CONVERGENCE_DELAYS.length; i++) {
+            states[i] = stateAt(result.testCase.config.copy().setCycleDelay(CONVERGENCE_DELAYS[i]), CONVERGENCE_TIME);
+        }
+        double[] reference = states[CONVERGENCE_DELAYS.length - 1];
+        int largestStep = CONVERGENCE_DELAYS[CONVERGENCE_DELAYS.length - 1];
+        boolean withinTolerance = true;
+        for (int i = CONVERGENCE_DELAYS.length - 2; i >= 0; i--) {
+            double positionError = Math.hypot(states[i][1] - reference[1], states[i][2] - reference[2]);
+            double velocityError = Math.hypot(states[i][3] - reference[3], states[i][4] - reference[4]);
+            result.messages.add(String.format(Locale.ROOT, "шаг %3d мс: t=%.2f с, ошибка положения %.3f м, скорости %.4f м/с",
+                    CONVERGENCE_DELAYS[i], states[i][0], positionError, velocityError));
+            withinTolerance &= positionError <= CONVERGENCE_TOLERANCE;
+            if (withinTolerance) {
+                largestStep = CONVERGENCE_DELAYS[i];
+            }
+            if (i == 0 && !(positionError <= CONVERGENCE_LIMIT)) {
+                result.fail(String.format(Locale.ROOT, "нет сходимости: ошибка на шаге %d мс %.3f м > %.1f м",
+                        CONVERGENCE_DELAYS[0], positionError, CONVERGENCE_LIMIT));
+            }
+        }
+        result.messages.add(String.format(Locale.ROOT, "наибольший шаг с ошибкой положения ≤ %.1f м: %d мс", CONVERGENCE_TOLERANCE, largestStep));
+        result.wallMillis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    // Состояние {t, x, y, vx, vy} после целого числа шагов, ближайшего к time, или в момент падения, если оно раньше
+    private static double[] stateAt(FlightConfig config, double time) {
+        RocketModel model = new RocketModel();
+        double stopTime = Math.round(time * 1000 / config.getCycleDelay()) * config.getCycleDelay() / 1000.0;
+        double[] state = new double[5];
+        model.addObserver(new RocketObserver() {
+            @Override
+            public void onStageSeparation(int stageNumber) {
+            }
+
+            @Override
+            public double nextUpdateTime() {
+                return stopTime;
+            }
+
+            @Override
+            public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses) {
+                if (model.getSimulationTime() <= stopTime + 1e-9) {
+                    state[0] = model.getSimulationTime();
+                    state[1] = x;
+                    state[2] = y;
+                    state[3] = model.getSpeedX();
+                    state[4] = model.getSpeedY();
+                }
+            }
+        });
+        config.applyTo(model);
+        model.runHeadless(time + 1);
+        return state;
+    }
+
+    private static void compare(List<double[]> golden, TrajectoryRecorder actual, double[] tolerances, Result result) {
+        int common = Math.min(golden.size(), actual.size());
+        for (int i = 0; i < common; i++) {
+            double[] expected = golden.get(i);
+            for (int channel = 0; channel < TrajectoryRecorder.CHANNELS.length; channel++) {
+                double value = actual.get(channel, i);
+                double delta = Math.abs(value - expected[channel]);
+                if (!(delta <= tolerances[channel])) {
+                    result.fail(String.format(Locale.ROOT,
+                            "первое расхождение: точка %d, t=%.3f с, канал %s: ожидалось %.9g, получено %.9g (Δ=%.3g, допуск %.3g)",
+                            i, expected[0], TrajectoryRecorder.CHANNELS[channel], expected[channel], value, delta,
+                            tolerances[channel]));
+                    return;
+                }
+            }
+        }
+        if (golden.size() != actual.size()) {
+            result.fail(String.format(Locale.ROOT, "длина траектории: ожидалось %d точек, получено %d (первое расхождение в точке %d)",
+                    golden.size(), actual.size(), common));
+        }
+    }
+
+    private static final String[] DEBRIS_CHANNELS = {"stage", "t", "x", "y", "orbiting"};
+
+    private static List<double[]> impactRows(List<DebrisScene.Impact> impacts) {
+        List<double[]> rows = new ArrayList<>();
+        for (DebrisScene.Impact impact : impacts) {
+            rows.add(new double[]{impact.getStageNumber(), impact.getTime(), impact.getX(), impact.getY(), impact.isOrbiting() ? 1 : 0});
+        }
+        return rows;
+    }
+
+    private static void compareImpacts(List<double[]> golden, List<double[]> actual, Result result) {
+        if (golden.size() != actual.size()) {
+            result.fail(String.format(Locale.ROOT, "ступеней упало: ожидалось %d, получено %d", golden.size(), actual.size()));
+            return;
+        }
+        for (int i = 0; i < golden.size(); i++) {
+            for (int channel = 0; channel < DEBRIS_CHANNELS.length; channel++) {
+                double delta = Math.abs(actual.get(i)[channel] - golden.get(i)[channel]);
+                if (!(delta <= DEBRIS_TOLERANCES[channel])) {
+                    result.fail(String.format(Locale.ROOT, "падение %d, канал %s: ожидалось %.9g, получено %.9g (Δ=%.3g)",
+                            i, DEBRIS_CHANNELS[channel], golden.get(i)[channel], actual.get(i)[channel], delta));
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void writeRows(Path path, String[] header, List<double[]> rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(String.join(",", header));
+            writer.newLine();
+            for (double[] row : rows) {
+                StringBuilder line = new StringBuilder();
+                for (int channel = 0; channel < row.length; channel++) {
+                    if (channel > 0) line.append(',');
+                    line.append(row[channel]);
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void writeGolden(Path path, TrajectoryRecorder recorder) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(String.join(",", TrajectoryRecorder.CHANNELS));
+            writer.newLine();
+            for (int i = 0; i < recorder.size(); i++) {
+                StringBuilder line = new StringBuilder();
+                for (int channel = 0; channel < TrajectoryRecorder.CHANNELS.length; channel++) {
+                    if (channel > 0) line.append(',');
+                    line.append(recorder.get(channel, i));
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static List<double[]> readGolden(Path path) throws IOException {
+        List<double[]> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.split(",");
+                double[] row = new double[tokens.length];
+                for (int i = 0; i < tokens.length; i++) {
+                    row[i] = Double.parseDouble(tokens[i]);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Кэш завершённых полётов на диске. Ключ — SHA-256 от канонической формы настроек, горизонта и версии движка,
+// поэтому одинаковые настройки всегда попадают в один файл, а изменение физики делает старые записи недостижимыми.
+// Размер каталога ограничен; при переполнении удаляются записи, к которым дольше всего не обращались.
+// Запуск: java ResultCache [--dir каталог] [--clear] — печатает размер каталога, с --clear предварительно очищает его
+public class ResultCache {
+
+    public static final Path DEFAULT_DIRECTORY = Path.of("cache");
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+    public static final double DEFAULT_MAX_SIMULATION_TIME = 3000;
+
+    private static final double SAMPLE_INTERVAL = 0.5;
+    private static final int MAGIC = 0x52434631;
+    private static final String EXTENSION = ".flight";
+
+    private static final ExecutorService RUNNER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "result-cache-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path directory;
+    private final long maxBytes;
+    private final boolean storeTrajectories;
+    private final Map<String, CompletableFuture<CachedFlight>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResultCache(Path directory, long maxBytes, boolean storeTrajectories) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.storeTrajectories = storeTrajectories;
+    }
+
+    public ResultCache(Path directory) {
+        this(directory, DEFAULT_MAX_BYTES, true);
+    }
+
+    public static String key(FlightConfig config, double maxSimulationTime) {
+        String canonical = config.canonicalForm() + ";maxTime=" + maxSimulationTime + ";engine=" + RocketModel.ENGINE_VERSION;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // null при промахе; повреждённая запись удаляется и тоже считается промахом
+    public CachedFlight lookup(FlightConfig config, double maxSimulationTime) {
+        String key = key(config, maxSimulationTime);
+        Path file = directory.resolve(key + EXTENSION);
+        if (Files.exists(file)) {
+            try {
+                CachedFlight flight = read(file, key);
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                hits.incrementAndGet();
+                return flight;
+            } catch (IOException e) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // Для запусков без UI: при промахе полёт считается в вызывающем потоке и сохраняется
+    public CachedFlight getOrRun(FlightConfig config, double maxSimulationTime) {
+        CachedFlight flight = lookup(config, maxSimulationTime);
+        if (flight == null) {
+            flight = run(config, maxSimulationTime, key(config, maxSimulationTime), storeTrajectories);
+            store(flight);
+        }
+        return flight;
+    }
+
+    // Фоновый расчёт для заполнения кэша; повторный запрос того же ключа получает уже запущенную задачу
+    public CompletableFuture<CachedFlight> computeAsync(FlightConfig config, double maxSimulationTime) {
+        FlightConfig copy = config.copy();
+        String key = key(copy, maxSimulationTime);
+        return pending.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> {
+            try {
+                CachedFlight flight = run(copy, maxSimulationTime, k, storeTrajectories);
+                store(flight);
+                return flight;
+            } finally {
+                pending.remove(k);
+            }
+        }, RUNNER));
+    }
+
+    // Прогон без кэша и без траектории, только сводка: для процессов распределённого перебора
+    static CachedFlight simulate(FlightConfig config, double maxSimulationTime) {
+        return run(config, maxSimulationTime, key(config, maxSimulationTime), false);
+    }
+
+    private static CachedFlight run(FlightConfig config, double maxSimulationTime, String key, boolean withTrajectory) {
+        RocketModel model = new RocketModel();
+        TrajectoryRecorder recorder = withTrajectory ? new TrajectoryRecorder(model, SAMPLE_INTERVAL) : null;
+        PeakTracker peaks = new PeakTracker();
+        if (recorder != null) {
+            model.addObserver(recorder);
+        }
+        model.addObserver(peaks);
+        config.applyTo(model);
+        model.runHeadless(maxSimulationTime);
+
+        double[][] channels = null;
+        if (recorder != null) {
+            recorder.recordFinal();
+            channels = new double[TrajectoryRecorder.CHANNELS.length][];
+            for (int channel = 0; channel < channels.length; channel++) {
+                channels[channel] = recorder.getChannel(channel);
+            }
+        }
+        return new CachedFlight(key, model.getSimulationTime(), peaks.maxAltitude, peaks.maxSpeed, model.getMaxDynamicPressure(),
+                model.getCurrentMass(), model.getRemainingStages(), model.getSimulationTime() < maxSimulationTime, channels);
+    }
+
+    // Максимумы высоты и скорости за полёт; используется и пакетным прогоном сценариев
+    static final class PeakTracker implements RocketObserver {
+        double maxAltitude;
+        double maxSpeed;
+
+        @Override
+        public void onStageSeparation(int stageNumber) {
+        }
+
+        @Override
+        public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses) {
+            maxAltitude = Math.max(maxAltitude, Math.sqrt(x * x + y * y) - RocketModel.EARTH_RADIUS);
+            maxSpeed = Math.max(maxSpeed, speed);
+        }
+    }
+
+    public void store(CachedFlight flight) {
+        try {
+            Files.createDirectories(directory);
+            // Пишем во временный файл и переименовываем, чтобы читатель не увидел запись наполовину
+            Path temp = Files.createTempFile(directory, flight.getKey(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(out, flight);
+            }
+            Files.move(temp, directory.resolve(flight.getKey() + EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            stores.incrementAndGet();
+            evict();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(DataOutputStream out, CachedFlight flight) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeUTF(flight.getKey());
+        out.writeDouble(flight.getFinalTime());
+        out.writeDouble(flight.getMaxAltitude());
+        out.writeDouble(flight.getMaxSpeed());
+        out.writeDouble(flight.getMaxDynamicPressure());
+        out.writeDouble(flight.getFinalMass());
+        out.writeInt(flight.getFinalRemainingStages());
+        out.writeBoolean(flight.isLanded());
+        out.writeBoolean(flight.hasTrajectory());
+        if (flight.hasTrajectory()) {
+            out.writeInt(TrajectoryRecorder.CHANNELS.length);
+            out.writeInt(flight.size());
+            for (int channel = 0; channel < TrajectoryRecorder.CHANNELS.length; channel++) {
+                for (int i = 0; i < flight.size(); i++) {
+                    out.writeDouble(flight.get(channel, i));
+                }
+            }
+        }
+    }
+
+    private static CachedFlight read(Path file, String key) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(key)) {
+                throw new IOException("не запись кэша: " + file);
+            }
+            double finalTime = in.readDouble();
+            double maxAltitude = in.readDouble();
+            double maxSpeed = in.readDouble();
+            double maxDynamicPressure = in.readDouble();
+            double finalMass = in.readDouble();
+            int finalRemainingStages = in.readInt();
+            boolean landed = in.readBoolean();
+            double[][] channels = null;
+            if (in.readBoolean()) {
+                int channelCount = in.readInt();
+                int size = in.readInt();
+                if (channelCount != TrajectoryRecorder.CHANNELS.length) {
+                    throw new IOException("другой набор каналов: " + file);
+                }
+                channels = new double[channelCount][size];
+                for (int channel = 0; channel < channelCount; channel++) {
+                    for (int i = 0; i < size; i++) {
+                        channels[channel][i] = in.readDouble();
+                    }
+                }
+            }
+            return new CachedFlight(key, finalTime, maxAltitude, maxSpeed, maxDynamicPressure, finalMass, finalRemainingStages, landed, channels);
+        }
+    }
+
+    private synchronized void evict() throws IOException {
+        List<Path> files = entries();
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        files.sort(Comparator.comparing(ResultCache::lastAccess));
+        for (Path file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                total -= size;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static FileTime lastAccess(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private List<Path> entries() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.list(directory)) {
+            return new ArrayList<>(stream.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).toList());
+        }
+    }
+
+    public void clear() throws IOException {
+        for (Path file : entries()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getStores() {
+        return stores.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public String formatStatistics() {
+        return String.format(Locale.ROOT, "кэш: %d попаданий, %d промахов (%.0f%%), %d записей, %d вытеснений",
+                hits.get(), misses.get(), getHitRate() * 100, stores.get(), evictions.get());
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = DEFAULT_DIRECTORY;
+        boolean clear = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--dir") && i + 1 < args.length) {
+                directory = Path.of(args[++i]);
+            } else if (args[i].equals("--clear")) {
+                clear = true;
+            }
+        }
+        ResultCache cache = new ResultCache(directory);
+        if (clear) {
+            cache.clear();
+        }
+        List<Path> files = cache.entries();
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        System.out.printf(Locale.ROOT, "%s: %d записей, %.1f МБ из %.1f МБ%n", directory, files.size(),
+                total / (1024.0 * 1024.0), cache.maxBytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+public final class RocketCommand {
+
+    public enum Type {
+        ENGINE_ON, TOGGLE_ENGINE, ROCKET_ANGLE, AUTOPILOT_MODE, CYCLE_DELAY, TIME_WARP, FUEL_CONSUMPTION,
+        ROCKET_PARAMETERS, TARGET_ORBIT_ALTITUDE, AERODYNAMICS, USE_NATIVE_CODE, USE_GUIDANCE_TABLE, GRAVITY_MODEL, PROPULSION,
+        TASK_RATES, GUIDANCE_TABLE
+    }
+
+    private final Type type;
+    private final long timestamp;
+    private final double[] values;
+    // Массивы по ступеням: массы конструкции и топлива для ROCKET_PARAMETERS, расходы и скорости истечения для PROPULSION
+    private final double[] firstStageArray;
+    private final double[] secondStageArray;
+    private final RocketController.AutopilotMode mode;
+    private final String name;
+
+    private RocketCommand(Type type, long timestamp, double[] values, double[] firstStageArray, double[] secondStageArray, RocketController.AutopilotMode mode) {
+        this(type, timestamp, values, firstStageArray, secondStageArray, mode, null);
+    }
+
+    private RocketCommand(Type type, long timestamp, double[] values, double[] firstStageArray, double[] secondStageArray, RocketController.AutopilotMode mode, String name) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.values = values;
+        this.firstStageArray = firstStageArray;
+        this.secondStageArray = secondStageArray;
+        this.mode = mode;
+        this.name = name;
+    }
+
+    private static RocketCommand of(Type type, double... values) {
+        return new RocketCommand(type, System.nanoTime(), values, null, null, null);
+    }
+
+    public static RocketCommand engineOn(boolean engineOn) {
+        return of(Type.ENGINE_ON, engineOn ? 1 : 0);
+    }
+
+    public static RocketCommand toggleEngine() {
+        return of(Type.TOGGLE_ENGINE);
+    }
+
+    public static RocketCommand rocketAngle(double angle) {
+        return of(Type.ROCKET_ANGLE, angle);
+    }
+
+    public static RocketCommand autopilotMode(RocketController.AutopilotMode mode) {
+        return new RocketCommand(Type.AUTOPILOT_MODE, System.nanoTime(), new double[0], null, null, mode);
+    }
+
+    public static RocketCommand cycleDelay(int delay) {
+        return of(Type.CYCLE_DELAY, delay);
+    }
+
+    public static RocketCommand timeWarp(double timeWarp) {
+        return of(Type.TIME_WARP, timeWarp);
+    }
+
+    // Старые единицы: топливо за такт. Создаётся только при чтении старых журналов, модель пересчитывает его в расход
+    public static RocketCommand fuelConsumption(double fuelConsumption) {
+        return of(Type.FUEL_CONSUMPTION, fuelConsumption);
+    }
+
+    // Тяга на кг топлива — старая форма скорости истечения; NaN оставляет двигатели ступеней как есть
+    public static RocketCommand rocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses, double thrustPerKgFuel) {
+        return new RocketCommand(Type.ROCKET_PARAMETERS, System.nanoTime(), new double[]{payloadMass, thrustPerKgFuel},
+                stageMasses.clone(), fuelMasses.clone(), null);
+    }
+
+    public static RocketCommand rocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses) {
+        return rocketParameters(payloadMass, stageMasses, fuelMasses, Double.NaN);
+    }
+
+    public static RocketCommand propulsion(double[] massFlowRates, double[] exhaustVelocities) {
+        return new RocketCommand(Type.PROPULSION, System.nanoTime(), new double[0], massFlowRates.clone(), exhaustVelocities.clone(), null);
+    }
+
+    public static RocketCommand targetOrbitAltitude(double altitude) {
+        return of(Type.TARGET_ORBIT_ALTITUDE, altitude);
+    }
+
+    public static RocketCommand aerodynamics(double dragCoefficient, double referenceArea, double nozzleExitArea) {
+        return of(Type.AERODYNAMICS, dragCoefficient, referenceArea, nozzleExitArea);
+    }
+
+    public static RocketCommand useNativeCode(boolean useNativeCode) {
+        return of(Type.USE_NATIVE_CODE, useNativeCode ? 1 : 0);
+    }
+
+    public static RocketCommand useGuidanceTable(boolean useGuidanceTable) {
+        return of(Type.USE_GUIDANCE_TABLE, useGuidanceTable ? 1 : 0);
+    }
+
+    // Ставит построенную таблицу наведения для целевой высоты; подаёт сама модель, когда таблица готова
+    public static RocketCommand guidanceTable(double targetOrbitAltitude) {
+        return of(Type.GUIDANCE_TABLE, targetOrbitAltitude);
+    }
+
+    // Частоты наведения, наблюдателей и публикации снимков в Гц, 0 — на каждом шаге
+    public static RocketCommand taskRates(double guidanceRate, double observerRate, double publicationRate) {
+        return of(Type.TASK_RATES, guidanceRate, observerRate, publicationRate);
+    }
+
+    public static RocketCommand gravityModel(String name) {
+        return new RocketCommand(Type.GRAVITY_MODEL, System.nanoTime(), new double[0], null, null, null, name);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public boolean getFlag() {
+        return values[0] > 0.5;
+    }
+
+    public double[] getStageMasses() {
+        return firstStageArray.clone();
+    }
+
+    public double[] getFuelMasses() {
+        return secondStageArray.clone();
+    }
+
+    public double[] getMassFlowRates() {
+        return firstStageArray.clone();
+    }
+
+    public double[] getExhaustVelocities() {
+        return secondStageArray.clone();
+    }
+
+    public RocketController.AutopilotMode getMode() {
+        return mode;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Текстовая форма для журнала команд: тип, метка времени и аргументы через пробел
+    public String format() {
+        StringBuilder line = new StringBuilder(type.name()).append(' ').append(timestamp);
+        if (mode != null) {
+            line.append(' ').append(mode.name());
+        }
+        if (name != null) {
+            line.append(' ').append(name);
+        }
+        for (double value : values) {
+            line.append(' ').append(value);
+        }
+        if (firstStageArray != null) {
+            line.append(' ').append(formatArray(firstStageArray)).append(' ').append(formatArray(secondStageArray));
+        }
+        return line.toString();
+    }
+
+    public static RocketCommand parse(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        Type type = Type.valueOf(tokens[0].toUpperCase(Locale.ROOT));
+        long timestamp = Long.parseLong(tokens[1]);
+        switch (type) {
+            case AUTOPILOT_MODE:
+                return new RocketCommand(type, timestamp, new double[0], null, null, RocketController.AutopilotMode.valueOf(tokens[2]));
+            case GRAVITY_MODEL:
+                return new RocketCommand(type, timestamp, new double[0], null, null, null, tokens[2]);
+            case ROCKET_PARAMETERS:
+                return new RocketCommand(type, timestamp, new double[]{Double.parseDouble(tokens[2]), Double.parseDouble(tokens[3])},
+                        parseArray(tokens[4]), parseArray(tokens[5]), null);
+            case PROPULSION:
+                return new RocketCommand(type, timestamp, new double[0], parseArray(tokens[2]), parseArray(tokens[3]), null);
+            default:
+                double[] values = new double[tokens.length - 2];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = Double.parseDouble(tokens[i + 2]);
+                }
+                return new RocketCommand(type, timestamp, values, null, null, null);
+        }
+    }
+
+    private static String formatArray(double[] array) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) text.append(',');
+            text.append(array[i]);
+        }
+        return text.toString();
+    }
+
+    private static double[] parseArray(String text) {
+        return Arrays.stream(text.split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
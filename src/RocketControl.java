@@ -1,8 +1,10 @@
 public interface RocketControl {
     void startSimulation();
     void stopSimulation();
-    void setRocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses, double thrustPerKgFuel);
+    void setRocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses);
     void setCycleDelay(int delay);
-    void setFuelConsumptionPerCycle(double fuelConsumption);
+    void setTimeWarp(double timeWarp);
+    void setPropulsion(double[] massFlowRates, double[] exhaustVelocities);
     void setAutopilotMode(RocketController.AutopilotMode mode);
+    void setAerodynamics(double dragCoefficient, double referenceArea, double nozzleExitArea);
 }
@@ -1,7 +1,14 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class RocketController implements RocketControl {
     private final RocketModel model;
     private boolean settingsConfirmed = false;
-    private boolean engineOn = true;
+    private Path commandLogPath;
+    private CommandLog commandLog;
+    private FlightConfig appliedConfig;
+    private ResultCache resultCache;
+    private ScenarioDriver scenarioDriver;
 
     public enum AutopilotMode { MANUAL, MAX_DISTANCE, STABLE_ORBIT }
     private AutopilotMode autopilotMode = AutopilotMode.MANUAL;
@@ -22,11 +29,81 @@ public class RocketController implements RocketControl {
     @Override
     public void stopSimulation() {
         model.stopSimulation();
+        if (commandLog != null) {
+            try {
+                commandLog.save(commandLogPath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public void recordCommands(Path path) {
+        commandLogPath = path;
+        commandLog = new CommandLog();
+        model.setCommandLog(commandLog);
+    }
+
+    public void replayCommands(Path path) throws IOException {
+        model.replay(CommandLog.load(path));
+        appliedConfig = null;
+        settingsConfirmed = true;
+    }
+
+    // Настройки из окна заменяют сценарий: его расписание больше не исполняется
+    public void applyConfig(FlightConfig config) {
+        stopScenario();
+        config.applyTo(model);
+        autopilotMode = config.getAutopilotMode();
+        appliedConfig = config.copy();
+    }
+
+    // Настройки и расписание команд берутся из сценария; подключать, пока симуляция остановлена
+    public void playScenario(Scenario scenario) {
+        applyConfig(scenario.getConfig());
+        scenarioDriver = new ScenarioDriver(scenario, model);
+        scenarioDriver.attach();
+        settingsConfirmed = true;
+    }
+
+    public void stopScenario() {
+        if (scenarioDriver != null) {
+            scenarioDriver.detach();
+            scenarioDriver = null;
+        }
+    }
+
+    public Scenario getScenario() {
+        return scenarioDriver == null ? null : scenarioDriver.getScenario();
+    }
+
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    // Готовый полёт для последних применённых настроек или null. Ручной режим и сценарии не кэшируются:
+    // их результат определяют действия пользователя или расписание команд, а не только настройки
+    public CachedFlight findCachedFlight() {
+        if (resultCache == null || appliedConfig == null || scenarioDriver != null
+                || appliedConfig.getAutopilotMode() == AutopilotMode.MANUAL) {
+            return null;
+        }
+        CachedFlight flight = resultCache.lookup(appliedConfig, ResultCache.DEFAULT_MAX_SIMULATION_TIME);
+        if (flight != null && flight.hasTrajectory()) {
+            return flight;
+        }
+        // Пока пользователь смотрит живой полёт, результат считается в фоне для следующего запуска
+        resultCache.computeAsync(appliedConfig, ResultCache.DEFAULT_MAX_SIMULATION_TIME);
+        return null;
     }
 
     @Override
-    public void setRocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses, double thrustPerKgFuel) {
-        model.setRocketParameters(payloadMass, stageMasses, fuelMasses, thrustPerKgFuel);
+    public void setRocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses) {
+        model.setRocketParameters(payloadMass, stageMasses, fuelMasses);
     }
 
     @Override
@@ -35,14 +112,27 @@ public class RocketController implements RocketControl {
     }
 
     @Override
-    public void setFuelConsumptionPerCycle(double fuelConsumption) {
-        model.setFuelConsumptionPerCycle(fuelConsumption);
+    public void setTimeWarp(double timeWarp) {
+        model.setTimeWarp(timeWarp);
+    }
+
+    @Override
+    public void setPropulsion(double[] massFlowRates, double[] exhaustVelocities) {
+        model.setPropulsion(massFlowRates, exhaustVelocities);
+    }
+
+    @Override
+    public void setAerodynamics(double dragCoefficient, double referenceArea, double nozzleExitArea) {
+        model.setAerodynamics(dragCoefficient, referenceArea, nozzleExitArea);
     }
 
     @Override
     public void setAutopilotMode(AutopilotMode mode) {
         this.autopilotMode = mode;
         model.setAutopilotMode(mode);
+        if (appliedConfig != null) {
+            appliedConfig.setAutopilotMode(mode);
+        }
     }
 
     public AutopilotMode getAutopilotMode() {
@@ -62,12 +152,11 @@ public class RocketController implements RocketControl {
     }
 
     public void toggleEngine() {
-        engineOn = !engineOn;
-        model.setEngineOn(engineOn);
+        model.toggleEngine();
     }
 
     public boolean isEngineOn() {
-        return engineOn;
+        return model.isEngineOn();
     }
 
 }
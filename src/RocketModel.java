@@ -1,18 +1,28 @@
 import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 public class RocketModel {
 
     public static final double EARTH_RADIUS = 6_371_000;
     public static final double GRAVITATIONAL_CONSTANT = 6.67430e-11;
     public static final double EARTH_MASS = 5.972e24;
+    // Увеличивать при любом изменении, которое меняет результат полёта при тех же настройках: входит в ключ кэша результатов
+    public static final int ENGINE_VERSION = 3;
 
     private double payloadMass;
     private double[] stageMasses;
     private double[] fuelMasses;
     private double[] initialFuelMasses;
-    private double thrustPerKgFuel;
+    // Двигатель каждой ступени: массовый расход (кг/с) и скорость истечения в вакууме (м/с). Если массив короче
+    // числа ступеней, верхние ступени берут последнее значение
+    private double[] massFlowRates = {0.1};
+    private double[] exhaustVelocities = {3500};
+    // Расход, заданный старой командой FUEL_CONSUMPTION в кг за такт; NaN, если расход задан в кг/с
+    private double legacyFuelPerCycle = Double.NaN;
 
     private double currentMass;
     private double speed;
@@ -22,60 +32,406 @@ public class RocketModel {
     private double y;
 
     private double rocketAngle = 90;
-    private boolean engineOn = true;
+    private volatile boolean engineOn = true;
 
     private int remainingStages;
 
     private int cycleDelay = 100;
-    private double fuelConsumptionPerCycle = 0.01;
     private double deltaTime = cycleDelay / 1000.0;
     private double targetOrbitAltitude = 200000;
 
-    private static final double MAX_ANGLE_CHANGE_RATE = 10.0;
-    private RocketController.AutopilotMode autopilotMode = RocketController.AutopilotMode.MANUAL;
+    // Сколько секунд симуляции проходит за секунду реального времени; шаг физики не меняется
+    private double timeWarp = 1;
+    private volatile double effectiveTimeWarp = 1;
+    private static final double WARP_EVENT_FRAMES = 2;
+    private double simulationTime;
+
+    private double dragCoefficient = 0.5;
+    private double referenceArea = 0.01;
+    private double nozzleExitArea = 0.0001;
+    private double dynamicPressure;
+    private double maxDynamicPressure;
+    private double maxDynamicPressureAltitude;
 
-    private final List<RocketObserver> observers = new ArrayList<>();
-    private boolean running = false;
+    private static final double MAX_ANGLE_CHANGE_RATE = 10.0;
+    // Выше этой высоты без тяги полёт считается по коническому сечению сразу на много шагов вперёд
+    private static final double COAST_RADIUS = EARTH_RADIUS + Atmosphere.DRAG_FREE_ALTITUDE;
+    private final double[] coastState = new double[4];
+    private double debrisCoastLimit;
+    private long coastedTicks;
+    // Ракета упала на землю в последнем прогоне
+    private boolean landed;
+    // Сколько секунд после падения ракеты в фоновом прогоне ещё доводятся отделившиеся ступени
+    private static final double DEBRIS_SETTLE_TIME = 3600;
+    private volatile RocketController.AutopilotMode autopilotMode = RocketController.AutopilotMode.MANUAL;
+
+    // Сценарий может подключаться из потока интерфейса, пока поток симуляции рассылает уведомления
+    private final List<RocketObserver> observers = new CopyOnWriteArrayList<>();
+    // Получают каждый такт (или конец баллистического участка) независимо от частоты уведомлений и ускорения времени
+    private final List<RocketObserver> stepObservers = new CopyOnWriteArrayList<>();
+    private volatile boolean running = false;
+
+    private final CommandQueue commands = new CommandQueue();
+    private final Consumer<RocketCommand> commandApplier = this::applyCommand;
+    private long tick;
+    private CommandLog commandLog;
+    private CommandLog replayLog;
+
+    private volatile TelemetrySnapshot latestSnapshot;
+    private long snapshotSequence;
+
+    // Библиотека грузится при первом обращении к флагу, то есть только когда нативный режим действительно запрошен.
+    // -Drocket.native=false отключает её совсем
+    private static final class NativeLibrary {
+        static final boolean AVAILABLE = load();
+
+        private static boolean load() {
+            if (!Boolean.parseBoolean(System.getProperty("rocket.native", "true"))) {
+                return false;
+            }
+            try {
+                System.loadLibrary("RocketModelNative");
+                return true;
+            } catch (UnsatisfiedLinkError e) {
+                return false;
+            }
+        }
+    }
 
-    static {
-        System.loadLibrary("RocketModelNative");
+    public static boolean isNativeAvailable() {
+        return NativeLibrary.AVAILABLE;
     }
 
     private boolean useNativeCode = false;
 
+    // Нативный шаг считает только точечную гравитацию, поэтому с другими моделями используется Java
+    private volatile GravityModel gravityModel = PointMassGravity.INSTANCE;
+    private final double[] gravityOutput = new double[2];
+
+    private final DebrisScene debrisScene = new DebrisScene();
+    private int publishedDebrisVersion = -1;
+    private List<DebrisScene.Impact> publishedImpacts = List.of();
+    private static final double[] NO_DATA = new double[0];
+    // Каналы, которые сейчас кому-то нужны; выставляется из потока интерфейса
+    private volatile int publishedChannels = TelemetrySnapshot.ALL_CHANNELS;
+
+    private boolean useGuidanceTable = false;
+    private GuidanceTable guidanceTable;
+    // Настройки табличного наведения на стороне тех, кто подаёт команды: по ним таблица заранее строится в фоне
+    private volatile boolean guidanceTableRequested;
+    private volatile double requestedTargetAltitude = 200000;
+    // Построение последней запрошенной таблицы вместе с подачей команды, которая её ставит
+    private volatile CompletableFuture<Void> guidanceTableInstall = CompletableFuture.completedFuture(null);
+
+    // Наведение, уведомление наблюдателей и публикация снимков идут со своими частотами; физика — с шагом deltaTime
+    private final MultiRateScheduler scheduler = new MultiRateScheduler();
+    // Последний выход наведения, который держится до следующего его срабатывания
+    private double guidanceTargetAngle;
+
     public native double[] nativeUpdateRocketState(double currentMass, double vx, double vy, double x, double y, double thrust, double nx, double ny, double tx, double ty, double rocketAngle, double deltaTime);
 
     private native double[] nativeCalculateOrbitAngle(double x, double y, double vx, double vy, double speed, double targetOrbitAltitude);
 
     private Thread simulationThread;
 
+    // Всё, что нужно другой модели, чтобы продолжить полёт с этого места: для прогнозов «что если».
+    // Обломки и журналы команд не переносятся
+    public static final class State {
+        private final double payloadMass;
+        private final double[] stageMasses;
+        private final double[] fuelMasses;
+        private final double[] initialFuelMasses;
+        private final double[] massFlowRates;
+        private final double[] exhaustVelocities;
+        private final double currentMass;
+        private final double x;
+        private final double y;
+        private final double vx;
+        private final double vy;
+        private final double rocketAngle;
+        private final boolean engineOn;
+        private final int remainingStages;
+        private final int cycleDelay;
+        private final double targetOrbitAltitude;
+        private final double dragCoefficient;
+        private final double referenceArea;
+        private final double nozzleExitArea;
+        private final double maxDynamicPressure;
+        private final double maxDynamicPressureAltitude;
+        private final RocketController.AutopilotMode autopilotMode;
+        private final boolean useNativeCode;
+        private final GravityModel gravityModel;
+        private final boolean useGuidanceTable;
+        private final GuidanceTable guidanceTable;
+        private final double guidanceRate;
+        private final double simulationTime;
+
+        private State(RocketModel model) {
+            payloadMass = model.payloadMass;
+            stageMasses = model.stageMasses.clone();
+            fuelMasses = model.fuelMasses.clone();
+            initialFuelMasses = model.initialFuelMasses.clone();
+            massFlowRates = model.massFlowRates.clone();
+            exhaustVelocities = model.exhaustVelocities.clone();
+            currentMass = model.currentMass;
+            x = model.x;
+            y = model.y;
+            vx = model.vx;
+            vy = model.vy;
+            rocketAngle = model.rocketAngle;
+            engineOn = model.engineOn;
+            remainingStages = model.remainingStages;
+            cycleDelay = model.cycleDelay;
+            targetOrbitAltitude = model.targetOrbitAltitude;
+            dragCoefficient = model.dragCoefficient;
+            referenceArea = model.referenceArea;
+            nozzleExitArea = model.nozzleExitArea;
+            maxDynamicPressure = model.maxDynamicPressure;
+            maxDynamicPressureAltitude = model.maxDynamicPressureAltitude;
+            autopilotMode = model.autopilotMode;
+            useNativeCode = model.useNativeCode;
+            gravityModel = model.gravityModel;
+            useGuidanceTable = model.useGuidanceTable;
+            guidanceTable = model.guidanceTable;
+            guidanceRate = model.scheduler.getRate(MultiRateScheduler.Task.GUIDANCE);
+            simulationTime = model.simulationTime;
+        }
+
+        public double getSimulationTime() {
+            return simulationTime;
+        }
+
+        public double getRocketAngle() {
+            return rocketAngle;
+        }
+
+        public int getCycleDelay() {
+            return cycleDelay;
+        }
+    }
+
+    private State forkState;
+
+    // Модель, которая при запуске продолжает полёт из state; команды, поданные до запуска, применяются поверх него
+    public static RocketModel fork(State state) {
+        RocketModel model = new RocketModel();
+        model.forkState = state;
+        return model;
+    }
+
     public void startSimulation() {
-        resetSimulationVariables();
         if (simulationThread != null && simulationThread.isAlive()) {
             return;
         }
+        // Поток симуляции не запущен, поэтому здесь можно безопасно разобрать очередь настроек
+        prepareRun();
 
         simulationThread = new Thread(() -> {
-            running = true;
-            while (running && y >= 0) {
-                long lastUpdateTime = System.nanoTime();
-                updateRocketState();
-                notifyObservers();
-
-                long currentUpdateTime = System.nanoTime();
-                double realDeltaTime = (currentUpdateTime - lastUpdateTime);
-                try {
-                    Thread.sleep(cycleDelay);
-                } catch (InterruptedException e) {
-                    running = false;
-                    break;
+            long deadline = System.nanoTime();
+            double pendingSteps = 0;
+            while (running) {
+                // Кадр длится один шаг физики или период публикации, если он задан; за кадр выполняется
+                // timeWarp кадров шагов физики с неизменным deltaTime
+                double frameSeconds = scheduler.hasRate(MultiRateScheduler.Task.PUBLICATION)
+                        ? 1 / scheduler.getRate(MultiRateScheduler.Task.PUBLICATION) : deltaTime;
+                double stepsPerFrame = frameSeconds / deltaTime;
+                pendingSteps += limitTimeWarp(stepsPerFrame);
+                while (pendingSteps >= 1 && running) {
+                    long ticks = step((long) pendingSteps);
+                    pendingSteps = Math.min(pendingSteps - ticks, limitTimeWarp(stepsPerFrame));
+                    if (scheduler.hasRate(MultiRateScheduler.Task.OBSERVERS)) {
+                        notifyObserversIfDue();
+                    }
+                }
+                long start = scheduler.start(MultiRateScheduler.Task.PUBLICATION);
+                publishSnapshot();
+                scheduler.finish(MultiRateScheduler.Task.PUBLICATION, start);
+                if (!scheduler.hasRate(MultiRateScheduler.Task.OBSERVERS)) {
+                    notifyObserversIfDue();
+                }
+
+                // Абсолютные дедлайны не накапливают дрейф; при сильном отставании догонять не пытаемся
+                long frameNanos = (long) (frameSeconds * 1e9);
+                deadline += frameNanos;
+                long now = System.nanoTime();
+                if (deadline - now < -frameNanos) {
+                    deadline = now;
+                }
+                while (running && deadline - now > 0) {
+                    LockSupport.parkNanos(deadline - now);
+                    if (Thread.interrupted()) {
+                        running = false;
+                    }
+                    now = System.nanoTime();
                 }
             }
             running = false;
+            // Ракета упала, а отделившиеся ступени ещё летят: доводим их до земли сразу, чтобы UI показал все точки
+            // падения. Остановка пользователем (прерывание потока) этого не делает и прерывает доводку
+            if (landed) {
+                finishDebris(simulationTime + DEBRIS_SETTLE_TIME);
+                publishSnapshot();
+            }
         });
         simulationThread.start();
     }
 
+    private void prepareRun() {
+        for (RocketObserver observer : observers) {
+            observer.onSimulationStart();
+        }
+        for (RocketObserver observer : stepObservers) {
+            observer.onSimulationStart();
+        }
+        tick = -1;
+        if (forkState != null) {
+            restoreState(forkState);
+            applyPendingCommands();
+        } else {
+            applyPendingCommands();
+            resetSimulationVariables();
+        }
+        tick = 0;
+        coastedTicks = 0;
+        landed = false;
+        scheduler.reset();
+        running = true;
+    }
+
+    // Один шаг интегрирования или участок баллистического полёта не длиннее maxTicks тактов; возвращает число тактов
+    private long step(long maxTicks) {
+        applyPendingCommands();
+        long ticks = coastTicks(maxTicks);
+        long start = scheduler.start(MultiRateScheduler.Task.PHYSICS);
+        if (ticks > 0) {
+            coast(ticks);
+        } else {
+            updateRocketState();
+            ticks = 1;
+        }
+        scheduler.finish(MultiRateScheduler.Task.PHYSICS, start);
+        tick += ticks;
+        for (RocketObserver observer : stepObservers) {
+            observer.onUpdateStatus(currentMass, speed, x, y, rocketAngle, remainingStages, fuelMasses, initialFuelMasses);
+        }
+        return ticks;
+    }
+
+    // Сколько тактов можно пройти аналитически: тяги нет и не будет, гравитация точечная, атмосферы нет.
+    // Участок заканчивается у апсиды, перед входом в атмосферу ракеты или обломка, перед следующей командой журнала
+    // и к моменту, когда наблюдателю нужен очередной отсчёт. 0 — шаг нужно интегрировать численно
+    private long coastTicks(long maxTicks) {
+        if (gravityModel != PointMassGravity.INSTANCE) {
+            return 0;
+        }
+        boolean canThrust = remainingStages > 0 && massFlowRate(remainingStages - 1) > 0
+                && (engineOn || autopilotMode != RocketController.AutopilotMode.MANUAL);
+        if (canThrust || x * x + y * y <= COAST_RADIUS * COAST_RADIUS) {
+            return 0;
+        }
+        long ticks = Math.max(1, maxTicks);
+        if (debrisScene.getActiveCount() > 0) {
+            // Отделившиеся ступени летят тем же участком, пока все они выше атмосферы; если кто-то из них в ней,
+            // его приходится интегрировать по шагам, и ракета идёт по коническому сечению по одному такту
+            debrisCoastLimit = debrisScene.coastLimit(COAST_RADIUS);
+            ticks = Math.max(1, Math.min(ticks, (long) Math.min(Long.MAX_VALUE, debrisCoastLimit / deltaTime)));
+        }
+        KeplerOrbit orbit = new KeplerOrbit(x, y, vx, vy, PointMassGravity.MU);
+        if (orbit.descendingCrossing(x, y, COAST_RADIUS, coastState)) {
+            ticks = Math.min(ticks, (long) (coastState[2] / deltaTime));
+            if (ticks == 0) {
+                return 0;
+            }
+        } else if (Double.isNaN(coastState[2])) {
+            // Не знаем, где траектория войдёт в атмосферу: лучше честно интегрировать по шагам
+            return 0;
+        }
+        ticks = Math.min(ticks, ticksUntil(simulationTime + orbit.timeToNextApsis(x, y)));
+        if (replayLog != null) {
+            ticks = Math.min(ticks, Math.max(1, replayLog.nextTick() - tick));
+        }
+        for (RocketObserver observer : observers) {
+            ticks = Math.min(ticks, ticksUntil(observer.nextUpdateTime()));
+        }
+        for (RocketObserver observer : stepObservers) {
+            ticks = Math.min(ticks, ticksUntil(observer.nextUpdateTime()));
+        }
+        return ticks;
+    }
+
+    // Число тактов, после которого время симуляции дойдёт до time (не меньше одного)
+    private long ticksUntil(double time) {
+        double steps = Math.ceil((time - simulationTime) / deltaTime - 1e-9);
+        return steps >= Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, (long) steps);
+    }
+
+    private void coast(long ticks) {
+        double duration = ticks * deltaTime;
+        simulationTime += duration;
+        coastedTicks += ticks;
+        if (debrisScene.getActiveCount() > 0) {
+            if (debrisCoastLimit >= duration) {
+                debrisScene.coast(duration);
+            } else {
+                debrisScene.advance(deltaTime, simulationTime, gravityModel);
+            }
+        }
+        if (remainingStages == 0 && engineOn) {
+            engineOn = false;
+        }
+        coastState[0] = x;
+        coastState[1] = y;
+        coastState[2] = vx;
+        coastState[3] = vy;
+        KeplerOrbit.propagate(coastState, duration, PointMassGravity.MU);
+        x = coastState[0];
+        y = coastState[1];
+        vx = coastState[2];
+        vy = coastState[3];
+        speed = Math.sqrt(vx * vx + vy * vy);
+        dynamicPressure = 0.5 * Atmosphere.density(Math.sqrt(x * x + y * y) - EARTH_RADIUS) * speed * speed;
+        // Угол ни на что не влияет без тяги, автопилот доворачивает его за весь участок сразу
+        updateRocketAngle(duration);
+    }
+
+    // Синхронный прогон в вызывающем потоке без пауз и без снимков для UI; наблюдатели получают каждый шаг,
+    // если для них не задана своя частота
+    public void runHeadless(double maxSimulationTime) {
+        if (simulationThread != null && simulationThread.isAlive()) {
+            throw new IllegalStateException("Симуляция уже запущена в фоновом потоке.");
+        }
+        // Без темпа реального времени такт, на котором успела бы встать таблица наведения, зависел бы от фонового
+        // потока, а пакетные прогоны и кэш результатов должны повторяться. Поэтому прогон ждёт команду установки
+        // до первого такта, и она применяется вместе с настройками
+        guidanceTableInstall.join();
+        prepareRun();
+        while (running && simulationTime < maxSimulationTime) {
+            step(ticksUntil(maxSimulationTime));
+            notifyObserversIfDue();
+        }
+        running = false;
+        // Ракета упала или время вышло: доводим до земли ещё летящие ступени
+        finishDebris(maxSimulationTime);
+    }
+
+    // Интегрирует ещё летящие ступени до падения, но не дальше until, не трогая время самой ракеты
+    private void finishDebris(double until) {
+        double debrisTime = simulationTime;
+        while (debrisScene.getActiveCount() > 0 && debrisTime < until && !Thread.currentThread().isInterrupted()) {
+            debrisTime += deltaTime;
+            debrisScene.advance(deltaTime, debrisTime, gravityModel);
+        }
+    }
+
+    // Сколько тактов последнего прогона пройдено по коническим сечениям, а не интегрированием
+    public long getCoastedTicks() {
+        return coastedTicks;
+    }
+
+    public DebrisScene getDebrisScene() {
+        return debrisScene;
+    }
+
     public void stopSimulation() {
         running = false;
         if (simulationThread != null) {
@@ -97,34 +453,58 @@ public class RocketModel {
         currentMass = payloadMass + Arrays.stream(stageMasses).sum() + Arrays.stream(fuelMasses).sum();
         remainingStages = stageMasses.length;
         fuelMasses = initialFuelMasses.clone();
-        running = false;
+        dynamicPressure = 0;
+        maxDynamicPressure = 0;
+        maxDynamicPressureAltitude = 0;
+        simulationTime = 0;
+        debrisScene.clear();
+    }
+
+    private void restoreState(State state) {
+        payloadMass = state.payloadMass;
+        stageMasses = state.stageMasses.clone();
+        fuelMasses = state.fuelMasses.clone();
+        initialFuelMasses = state.initialFuelMasses.clone();
+        massFlowRates = state.massFlowRates;
+        exhaustVelocities = state.exhaustVelocities;
+        legacyFuelPerCycle = Double.NaN;
+        currentMass = state.currentMass;
+        x = state.x;
+        y = state.y;
+        vx = state.vx;
+        vy = state.vy;
+        speed = Math.sqrt(vx * vx + vy * vy);
+        rocketAngle = state.rocketAngle;
+        engineOn = state.engineOn;
+        remainingStages = state.remainingStages;
+        cycleDelay = state.cycleDelay;
+        deltaTime = cycleDelay / 1000.0;
+        targetOrbitAltitude = state.targetOrbitAltitude;
+        dragCoefficient = state.dragCoefficient;
+        referenceArea = state.referenceArea;
+        nozzleExitArea = state.nozzleExitArea;
+        dynamicPressure = 0.5 * Atmosphere.density(Math.sqrt(x * x + y * y) - EARTH_RADIUS) * speed * speed;
+        maxDynamicPressure = state.maxDynamicPressure;
+        maxDynamicPressureAltitude = state.maxDynamicPressureAltitude;
+        autopilotMode = state.autopilotMode;
+        useNativeCode = state.useNativeCode;
+        gravityModel = state.gravityModel;
+        useGuidanceTable = state.useGuidanceTable;
+        guidanceTable = state.guidanceTable;
+        scheduler.setRate(MultiRateScheduler.Task.GUIDANCE, state.guidanceRate);
+        simulationTime = state.simulationTime;
+        debrisScene.clear();
     }
 
     private void updateRocketState() {
+        simulationTime += deltaTime;
+        if (debrisScene.getActiveCount() > 0) {
+            debrisScene.advance(deltaTime, simulationTime, gravityModel);
+        }
         if (remainingStages == 0 && engineOn) {
             engineOn = false;
-            setEngineOn(false);
         }
 
-        int currentStage = remainingStages - 1;
-
-        double thrust = 0;
-        if (engineOn && remainingStages > 0) {
-            double fuelNeeded = fuelConsumptionPerCycle;
-            if (fuelMasses[currentStage] < fuelNeeded) {
-                fuelNeeded = fuelMasses[currentStage];
-            }
-
-            fuelMasses[currentStage] -= fuelNeeded;
-
-            thrust = fuelNeeded / deltaTime * thrustPerKgFuel;
-
-            if (fuelMasses[currentStage] <= 0) {
-                fuelMasses[currentStage] = 0;
-                separateStage();
-                return;
-            }
-        }
         currentMass = payloadMass;
         for (int i = 0; i < remainingStages; i++) {
             currentMass += stageMasses[i] + fuelMasses[i];
@@ -137,9 +517,31 @@ public class RocketModel {
         double tx = -ny;
         double ty = nx;
 
-        updateRocketAngle();
+        double altitude = r - EARTH_RADIUS;
+        double thrustDeltaV = engineOn && remainingStages > 0 ? burn(altitude) : 0;
+        // Среднее за шаг ускорение от тяги, выраженное как сила при конечной массе шага
+        double thrust = thrustDeltaV / deltaTime * currentMass;
 
-        if (useNativeCode) {
+        double speedSquared = vx * vx + vy * vy;
+        dynamicPressure = 0.5 * Atmosphere.density(altitude) * speedSquared;
+        if (dynamicPressure > maxDynamicPressure) {
+            maxDynamicPressure = dynamicPressure;
+            maxDynamicPressureAltitude = altitude;
+        }
+        double dragAx = 0;
+        double dragAy = 0;
+        if (speedSquared > 0) {
+            double dragPerSpeed = dynamicPressure * dragCoefficient * referenceArea / (currentMass * Math.sqrt(speedSquared));
+            dragAx = -dragPerSpeed * vx;
+            dragAy = -dragPerSpeed * vy;
+        }
+
+        updateRocketAngle(deltaTime);
+
+        if (useNativeCode && gravityModel == PointMassGravity.INSTANCE) {
+            // Нативный шаг не знает о сопротивлении: полуявный Эйлер позволяет добавить его к скорости заранее
+            vx += dragAx * deltaTime;
+            vy += dragAy * deltaTime;
             double[] result = nativeUpdateRocketState(currentMass, vx, vy, x, y, thrust, nx, ny, tx, ty, rocketAngle, deltaTime);
             vx = result[0];
             vy = result[1];
@@ -154,12 +556,12 @@ public class RocketModel {
             double thrustX = thrust * (cosAngle * nx + sinAngle * tx);
             double thrustY = thrust * (cosAngle * ny + sinAngle * ty);
 
-            double gravityMagnitude = GRAVITATIONAL_CONSTANT * EARTH_MASS / (r * r);
-            double gx = -gravityMagnitude * nx;
-            double gy = -gravityMagnitude * ny;
+            gravityModel.acceleration(x, y, simulationTime, gravityOutput);
+            double gx = gravityOutput[0];
+            double gy = gravityOutput[1];
 
-            double ax = (thrustX / currentMass) + gx;
-            double ay = (thrustY / currentMass) + gy;
+            double ax = (thrustX / currentMass) + gx + dragAx;
+            double ay = (thrustY / currentMass) + gy + dragAy;
 
             vx += ax * deltaTime;
             vy += ay * deltaTime;
@@ -179,10 +581,50 @@ public class RocketModel {
 
             vx = 0;
             vy = 0;
+            landed = true;
             running = false;
             return;
         }
-        System.out.println(speed);
+    }
+
+    // Сжигает топливо за шаг deltaTime и возвращает приращение скорости от тяги. Внутри шага расход постоянен, поэтому
+    // приращение считается по формуле Циолковского точно; если ступень выгорает посреди шага, она отделяется и
+    // остаток шага работает следующая. Так результат не зависит от размера шага, кроме ошибки самого интегратора
+    private double burn(double altitude) {
+        // Тяга задана для вакуума, на высоте теряется противодавление на срезе сопла
+        double pressureForce = Atmosphere.pressure(altitude) * nozzleExitArea;
+        double deltaV = 0;
+        double timeLeft = deltaTime;
+        while (timeLeft > 0 && remainingStages > 0) {
+            int stage = remainingStages - 1;
+            double massFlowRate = massFlowRate(stage);
+            if (massFlowRate <= 0) {
+                break;
+            }
+            double burnTime = Math.min(timeLeft, fuelMasses[stage] / massFlowRate);
+            double burned = Math.min(fuelMasses[stage], massFlowRate * burnTime);
+            double massBefore = currentMass;
+            fuelMasses[stage] -= burned;
+            currentMass -= burned;
+            double effectiveExhaustVelocity = Math.max(0, exhaustVelocity(stage) - pressureForce / massFlowRate);
+            deltaV += effectiveExhaustVelocity * Math.log(massBefore / currentMass);
+            timeLeft -= burnTime;
+            if (fuelMasses[stage] > 0) {
+                break;
+            }
+            fuelMasses[stage] = 0;
+            separateStage();
+            currentMass -= stageMasses[stage];
+        }
+        return deltaV;
+    }
+
+    private double massFlowRate(int stage) {
+        return massFlowRates[Math.min(stage, massFlowRates.length - 1)];
+    }
+
+    private double exhaustVelocity(int stage) {
+        return exhaustVelocities[Math.min(stage, exhaustVelocities.length - 1)];
     }
 
     public void addObserver(RocketObserver observer) {
@@ -193,49 +635,283 @@ public class RocketModel {
         observers.remove(observer);
     }
 
-    private void notifyObservers() {
+    // Для наблюдателей, которые управляют полётом (расписание сценария): уведомляются в потоке симуляции сразу
+    // после каждого шага, поэтому не опаздывают ни при редких уведомлениях интерфейса, ни при ускорении времени
+    public void addStepObserver(RocketObserver observer) {
+        stepObservers.add(observer);
+    }
+
+    public void removeStepObserver(RocketObserver observer) {
+        stepObservers.remove(observer);
+    }
+
+    private void publishSnapshot() {
+        int channels = publishedChannels;
+        double[] fuel = NO_DATA;
+        double[] initialFuel = NO_DATA;
+        if ((channels & TelemetrySnapshot.CHANNEL_FUEL) != 0) {
+            fuel = fuelMasses.clone();
+            initialFuel = initialFuelMasses.clone();
+        }
+        double[] debrisPositions = NO_DATA;
+        double[] debrisImpacts = NO_DATA;
+        List<DebrisScene.Impact> impacts = List.of();
+        if ((channels & TelemetrySnapshot.CHANNEL_DEBRIS) != 0) {
+            if (debrisScene.getVersion() != publishedDebrisVersion) {
+                publishedDebrisVersion = debrisScene.getVersion();
+                publishedImpacts = List.copyOf(debrisScene.getImpacts());
+            }
+            impacts = publishedImpacts;
+            if (debrisScene.getActiveCount() > 0) {
+                debrisPositions = debrisScene.copyActivePositions();
+                debrisImpacts = debrisScene.copyPredictedImpacts();
+            }
+        }
+        State state = (channels & TelemetrySnapshot.CHANNEL_STATE) != 0 ? new State(this) : null;
+        latestSnapshot = new TelemetrySnapshot(++snapshotSequence, simulationTime, currentMass, speed, x, y, vx, vy, rocketAngle,
+                remainingStages, fuel, initialFuel, engineOn, effectiveTimeWarp, dynamicPressure, maxDynamicPressure,
+                debrisPositions, debrisImpacts, impacts, state);
+    }
+
+    // Объединение каналов всех подписчиков; основное состояние публикуется независимо от него
+    public void setPublishedChannels(int channels) {
+        publishedChannels = channels;
+    }
+
+    private void notifyObserversIfDue() {
+        if (!scheduler.isDue(MultiRateScheduler.Task.OBSERVERS, simulationTime)) {
+            return;
+        }
+        long start = scheduler.start(MultiRateScheduler.Task.OBSERVERS);
         for (RocketObserver observer : observers) {
             observer.onUpdateStatus(currentMass, speed, x, y, rocketAngle, remainingStages, fuelMasses, initialFuelMasses);
         }
+        scheduler.finish(MultiRateScheduler.Task.OBSERVERS, start);
     }
 
     private void separateStage() {
+        int stage = remainingStages - 1;
+        debrisScene.add(stage + 1, stageMasses[stage] + fuelMasses[stage], x, y, vx, vy, dragCoefficient * referenceArea, simulationTime);
         remainingStages--;
+        for (RocketObserver observer : stepObservers) {
+            observer.onStageSeparation(remainingStages + 1);
+        }
         for (RocketObserver observer : observers) {
             observer.onStageSeparation(remainingStages + 1);
         }
     }
 
-    public void setEngineOn(boolean engineOn) {
-        this.engineOn = engineOn;
-    }
-
-    private void updateRocketAngle() {
-        switch (autopilotMode) {
-            case STABLE_ORBIT:
-                double targetAngle;
-                if (useNativeCode) {
-                    double[] result = nativeCalculateOrbitAngle(x, y, vx, vy, speed, targetOrbitAltitude);
-                    targetAngle = result[0];
-                    boolean newEngineOn = result[1] > 0.5;
-                    if (engineOn != newEngineOn) {
-                        engineOn = newEngineOn;
-                        setEngineOn(engineOn);
-                    }
-                } else {
-                    targetAngle = calculateOrbitAngle();
+    // Ускорение снижается, если отделение ступени или падение ожидаются в ближайшие кадры; возвращает число шагов
+    // физики на кадр
+    private double limitTimeWarp(double stepsPerFrame) {
+        double warp = timeWarp;
+        if (engineOn && remainingStages > 0 && massFlowRate(remainingStages - 1) > 0) {
+            double stepsToBurnout = fuelMasses[remainingStages - 1] / (massFlowRate(remainingStages - 1) * deltaTime);
+            warp = Math.min(warp, Math.max(1, stepsToBurnout / (WARP_EVENT_FRAMES * stepsPerFrame)));
+        }
+        double r = Math.sqrt(x * x + y * y);
+        double radialSpeed = (vx * x + vy * y) / r;
+        if (radialSpeed < 0) {
+            double stepsToImpact = (r - EARTH_RADIUS) / -radialSpeed / deltaTime;
+            warp = Math.min(warp, Math.max(1, stepsToImpact / (WARP_EVENT_FRAMES * stepsPerFrame)));
+        }
+        warp = Math.min(warp, timeWarp);
+        effectiveTimeWarp = warp;
+        return warp * stepsPerFrame;
+    }
+
+    private void applyPendingCommands() {
+        if (replayLog != null) {
+            // При воспроизведении живой ввод отбрасывается, команды берутся из журнала
+            commands.clear();
+            replayLog.replayUpTo(tick, commandApplier);
+        } else {
+            commands.drain(commandApplier);
+        }
+    }
+
+    private void applyCommand(RocketCommand command) {
+        if (commandLog != null) {
+            commandLog.record(tick, command);
+        }
+        switch (command.getType()) {
+            case ENGINE_ON:
+                engineOn = command.getFlag();
+                break;
+            case TOGGLE_ENGINE:
+                engineOn = !engineOn;
+                break;
+            case ROCKET_ANGLE:
+                if (autopilotMode == RocketController.AutopilotMode.MANUAL) {
+                    rocketAngle = command.getValue(0);
+                }
+                break;
+            case AUTOPILOT_MODE:
+                autopilotMode = command.getMode();
+                scheduler.trigger(MultiRateScheduler.Task.GUIDANCE);
+                break;
+            case CYCLE_DELAY:
+                cycleDelay = (int) command.getValue(0);
+                deltaTime = cycleDelay / 1000.0;
+                if (!Double.isNaN(legacyFuelPerCycle)) {
+                    massFlowRates = new double[]{legacyFuelPerCycle / deltaTime};
+                }
+                break;
+            case TIME_WARP:
+                timeWarp = command.getValue(0);
+                break;
+            case FUEL_CONSUMPTION:
+                // Старые журналы: расход за такт следует за шагом, как и раньше
+                legacyFuelPerCycle = command.getValue(0);
+                massFlowRates = new double[]{legacyFuelPerCycle / deltaTime};
+                break;
+            case ROCKET_PARAMETERS:
+                applyRocketParameters(command.getValue(0), command.getStageMasses(), command.getFuelMasses());
+                if (!Double.isNaN(command.getValue(1))) {
+                    // Тяга на кг сжигаемого топлива в секунду численно равна скорости истечения
+                    exhaustVelocities = new double[]{command.getValue(1)};
                 }
-                rocketAngle = approachTargetAngle(rocketAngle, targetAngle, deltaTime);
                 break;
-            case MAX_DISTANCE:
-                rocketAngle = approachTargetAngle(rocketAngle, 45, deltaTime);
+            case PROPULSION:
+                massFlowRates = command.getMassFlowRates();
+                exhaustVelocities = command.getExhaustVelocities();
+                legacyFuelPerCycle = Double.NaN;
+                break;
+            case TARGET_ORBIT_ALTITUDE:
+                targetOrbitAltitude = command.getValue(0);
+                break;
+            case AERODYNAMICS:
+                dragCoefficient = command.getValue(0);
+                referenceArea = command.getValue(1);
+                nozzleExitArea = command.getValue(2);
+                break;
+            case USE_NATIVE_CODE:
+                useNativeCode = command.getFlag() && isNativeAvailable();
+                break;
+            case GRAVITY_MODEL:
+                gravityModel = GravityModel.forName(command.getName());
+                break;
+            case USE_GUIDANCE_TABLE:
+                useGuidanceTable = command.getFlag();
+                break;
+            case GUIDANCE_TABLE: {
+                // Живая команда подаётся, когда таблица уже построена, а для воспроизведения её строит replay()
+                GuidanceTable table = GuidanceTable.ready(command.getValue(0));
+                if (table != null) {
+                    guidanceTable = table;
+                }
                 break;
-            case MANUAL:
-            default:
+            }
+            case TASK_RATES:
+                scheduler.setRate(MultiRateScheduler.Task.GUIDANCE, command.getValue(0));
+                scheduler.setRate(MultiRateScheduler.Task.OBSERVERS, command.getValue(1));
+                scheduler.setRate(MultiRateScheduler.Task.PUBLICATION, command.getValue(2));
                 break;
         }
     }
 
+    public void submitCommand(RocketCommand command) {
+        commands.offer(command);
+    }
+
+    public void setEngineOn(boolean engineOn) {
+        submitCommand(RocketCommand.engineOn(engineOn));
+    }
+
+    public void toggleEngine() {
+        submitCommand(RocketCommand.toggleEngine());
+    }
+
+    public boolean isEngineOn() {
+        return engineOn;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Журнал и воспроизведение задаются до запуска симуляции
+    public void setCommandLog(CommandLog commandLog) {
+        this.commandLog = commandLog;
+    }
+
+    // Таблицы наведения, которые ставит журнал, строятся здесь, до запуска: команда применяется без ожидания
+    public void replay(CommandLog log) {
+        this.replayLog = log;
+        if (log != null) {
+            log.rewind();
+            for (CommandLog.Entry entry : log.getEntries()) {
+                if (entry.getCommand().getType() == RocketCommand.Type.GUIDANCE_TABLE) {
+                    GuidanceTable.request(entry.getCommand().getValue(0)).join();
+                }
+            }
+        }
+    }
+
+    // Наведение выдаёт целевой угол (и решение о двигателе) со своей частотой, между срабатываниями они держатся;
+    // поворот к целевому углу с ограниченной скоростью идёт на каждом шаге физики
+    private void updateRocketAngle(double dt) {
+        if (autopilotMode == RocketController.AutopilotMode.MANUAL) {
+            return;
+        }
+        if (scheduler.isDue(MultiRateScheduler.Task.GUIDANCE, simulationTime)) {
+            long start = scheduler.start(MultiRateScheduler.Task.GUIDANCE);
+            guidanceTargetAngle = guidanceTargetAngle();
+            scheduler.finish(MultiRateScheduler.Task.GUIDANCE, start);
+        }
+        rocketAngle = approachTargetAngle(rocketAngle, guidanceTargetAngle, dt);
+    }
+
+    private double guidanceTargetAngle() {
+        if (autopilotMode == RocketController.AutopilotMode.MAX_DISTANCE) {
+            return 45;
+        }
+        double tableAngle = tableOrbitAngle();
+        if (!Double.isNaN(tableAngle)) {
+            return tableAngle;
+        }
+        if (useNativeCode) {
+            double[] result = nativeCalculateOrbitAngle(x, y, vx, vy, speed, targetOrbitAltitude);
+            boolean newEngineOn = result[1] > 0.5;
+            if (engineOn != newEngineOn) {
+                engineOn = newEngineOn;
+            }
+            return result[0];
+        }
+        return calculateOrbitAngle();
+    }
+
+    // NaN, если таблицы нет или состояние вне её сетки
+    private double tableOrbitAngle() {
+        GuidanceTable table = guidanceTable;
+        if (!useGuidanceTable || table == null || table.getTargetOrbitAltitude() != targetOrbitAltitude) {
+            return Double.NaN;
+        }
+        double r = Math.sqrt(x * x + y * y);
+        double altitude = r - EARTH_RADIUS;
+        double radialSpeed = (vx * x + vy * y) / r;
+        double pitch = table.pitch(altitude, radialSpeed * radialSpeed * r / y);
+        if (Double.isNaN(pitch)) {
+            return Double.NaN;
+        }
+        if (pitch >= 90) {
+            engineOn = table.engineOn(altitude, (vy * x - vx * y) / r);
+        }
+        return pitch + Math.toDegrees(-Math.atan2(x, y));
+    }
+
+    // Таблица строится в фоне, как только меняются настройки, и поток симуляции её не ждёт: готовую таблицу ставит
+    // команда GUIDANCE_TABLE. Она попадает в журнал с тактом, на котором применена, поэтому воспроизведение
+    // переключается на таблицу на том же такте
+    private void prefetchGuidanceTable() {
+        if (!guidanceTableRequested) {
+            return;
+        }
+        double altitude = requestedTargetAltitude;
+        guidanceTableInstall = GuidanceTable.request(altitude)
+                .thenRun(() -> submitCommand(RocketCommand.guidanceTable(altitude)));
+    }
+
     private double approachTargetAngle(double currentAngle, double targetAngle, double deltaTime) {
         double angleDifference = normalizeAngle(targetAngle - currentAngle);
         double maxAngleChange = MAX_ANGLE_CHANGE_RATE * deltaTime;
@@ -288,24 +964,28 @@ public class RocketModel {
             targetAngle = finalAngle * ratio + finalAngle + EarthAngle;
             if (currentVelocity >= requiredOrbitVelocity && currentVelocity <= requiredOrbitVelocity * 1.01) {
                 engineOn = false;
-                setEngineOn(false);
             } else {
                 if (!engineOn) {
                     engineOn = true;
-                    setEngineOn(true);
                 }
             }
         }
-        System.out.println(targetAngle - EarthAngle);
         return targetAngle;
     }
 
-    public void setRocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses, double thrustPerKgFuel) {
+    public void setRocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses) {
+        submitCommand(RocketCommand.rocketParameters(payloadMass, stageMasses, fuelMasses));
+    }
+
+    public void setPropulsion(double[] massFlowRates, double[] exhaustVelocities) {
+        submitCommand(RocketCommand.propulsion(massFlowRates, exhaustVelocities));
+    }
+
+    private void applyRocketParameters(double payloadMass, double[] stageMasses, double[] fuelMasses) {
         this.payloadMass = payloadMass;
         this.stageMasses = stageMasses;
         this.fuelMasses = fuelMasses;
         this.initialFuelMasses = fuelMasses.clone();
-        this.thrustPerKgFuel = thrustPerKgFuel;
         this.remainingStages = stageMasses.length;
         this.currentMass = payloadMass + Arrays.stream(stageMasses).sum() + Arrays.stream(fuelMasses).sum();
         this.x = 0;
@@ -317,22 +997,46 @@ public class RocketModel {
     }
 
     public void setCycleDelay(int delay) {
-        this.cycleDelay = delay;
-        this.deltaTime = delay / 1000.0;
-    }
-
-    public void setFuelConsumptionPerCycle(double fuelConsumption) {
-        this.fuelConsumptionPerCycle = fuelConsumption;
+        submitCommand(RocketCommand.cycleDelay(delay));
     }
 
     public void setRocketAngle(double angle) {
-        if (autopilotMode == RocketController.AutopilotMode.MANUAL) {
-            this.rocketAngle = angle;
-        }
+        submitCommand(RocketCommand.rocketAngle(angle));
     }
 
     public void setAutopilotMode(RocketController.AutopilotMode mode) {
-        this.autopilotMode = mode;
+        submitCommand(RocketCommand.autopilotMode(mode));
+    }
+
+    public void setTimeWarp(double timeWarp) {
+        submitCommand(RocketCommand.timeWarp(timeWarp));
+    }
+
+    // Частоты наведения, уведомления наблюдателей и публикации снимков (Гц); 0 — на каждом шаге физики,
+    // а для наблюдателей в реальном времени — раз в кадр
+    public void setTaskRates(double guidanceRate, double observerRate, double publicationRate) {
+        submitCommand(RocketCommand.taskRates(guidanceRate, observerRate, publicationRate));
+    }
+
+    // Замер времени каждой задачи; выключен по умолчанию, чтобы не добавлять вызовы таймера в каждый шаг
+    public void setTaskTiming(boolean timing) {
+        scheduler.setTiming(timing);
+    }
+
+    public String getTaskReport() {
+        return scheduler.report();
+    }
+
+    public double getEffectiveTimeWarp() {
+        return effectiveTimeWarp;
+    }
+
+    public TelemetrySnapshot getLatestSnapshot() {
+        return latestSnapshot;
+    }
+
+    public double getSimulationTime() {
+        return simulationTime;
     }
 
     public double getDeltaTime() {
@@ -351,16 +1055,64 @@ public class RocketModel {
         return vy;
     }
 
+    public double getPositionX() {
+        return x;
+    }
+
+    public double getPositionY() {
+        return y;
+    }
+
+    public double getCurrentMass() {
+        return currentMass;
+    }
+
+    public int getRemainingStages() {
+        return remainingStages;
+    }
+
     public RocketController.AutopilotMode getAutopilotMode() {
         return autopilotMode;
     }
 
+    public void setGravityModel(String name) {
+        submitCommand(RocketCommand.gravityModel(name));
+    }
+
+    public GravityModel getGravityModel() {
+        return gravityModel;
+    }
+
     public void setUseNativeCode(boolean useNativeCode) {
-        this.useNativeCode = useNativeCode;
+        submitCommand(RocketCommand.useNativeCode(useNativeCode));
     }
 
     public void setTargetOrbitAltitude(double targetOrbitAltitude) {
-        this.targetOrbitAltitude = targetOrbitAltitude;
+        submitCommand(RocketCommand.targetOrbitAltitude(targetOrbitAltitude));
+        requestedTargetAltitude = targetOrbitAltitude;
+        prefetchGuidanceTable();
+    }
+
+    public void setUseGuidanceTable(boolean useGuidanceTable) {
+        submitCommand(RocketCommand.useGuidanceTable(useGuidanceTable));
+        guidanceTableRequested = useGuidanceTable;
+        prefetchGuidanceTable();
+    }
+
+    public void setAerodynamics(double dragCoefficient, double referenceArea, double nozzleExitArea) {
+        submitCommand(RocketCommand.aerodynamics(dragCoefficient, referenceArea, nozzleExitArea));
+    }
+
+    public double getDynamicPressure() {
+        return dynamicPressure;
+    }
+
+    public double getMaxDynamicPressure() {
+        return maxDynamicPressure;
+    }
+
+    public double getMaxDynamicPressureAltitude() {
+        return maxDynamicPressureAltitude;
     }
 
 }
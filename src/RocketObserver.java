@@ -1,4 +1,15 @@
 public interface RocketObserver {
     void onStageSeparation(int stageNumber);
     void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses);
+
+    // Время симуляции, к которому наблюдателю нужно следующее уведомление. На баллистическом участке модель
+    // проходит много тактов за раз и уведомляет только в его конце; 0 — уведомлять на каждом такте
+    default double nextUpdateTime() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    // Вызывается при каждом запуске модели до применения накопленных команд: поданные здесь команды
+    // действуют с самого начала полёта
+    default void onSimulationStart() {
+    }
 }
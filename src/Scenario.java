@@ -0,0 +1,245 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Сценарий полёта: настройки ракеты и расписание команд по времени симуляции или по событиям.
+// Текстовый формат, по одной директиве в строке, # — комментарий:
+//
+//   name орбита-200
+//   max-time 900
+//   payload 10
+//   stages 5,5,5
+//   fuel 3,3,3
+//   mass-flow 0.1,0.1,0.1
+//   exhaust-velocity 3500,3500,3500
+//   delay 100
+//   autopilot MANUAL
+//   target-altitude 200000
+//   aerodynamics 0.5 0.01 0.0001
+//   gravity point-mass
+//   guidance-table false
+//   rates 20 0 30
+//
+//   at 0 angle 5
+//   at 12.5 warp 10
+//   when altitude above 30000 angle 30
+//   when altitude below 1000 engine off
+//   when speed above 2000 autopilot STABLE_ORBIT
+//   when separation 3 engine on
+//
+// Действия: engine on|off|toggle, angle градусы от вертикали, autopilot режим, warp множитель.
+// altitude below срабатывает на снижении, после того как ракета побывала выше порога.
+// separation N — отделилась ступень N (первой уходит ступень с наибольшим номером).
+// rates — частоты наведения, наблюдателей и публикации снимков в Гц (0 — на каждом шаге физики).
+// Каждое событие срабатывает один раз, команда применяется на следующем такте.
+public final class Scenario {
+
+    public static final String EXTENSION = ".scenario";
+
+    public enum Trigger { TIME, ALTITUDE_ABOVE, ALTITUDE_BELOW, SPEED_ABOVE, SEPARATION }
+
+    public static final class Event {
+        private final Trigger trigger;
+        private final double threshold;
+        private final RocketCommand command;
+        private final String text;
+
+        Event(Trigger trigger, double threshold, RocketCommand command, String text) {
+            this.trigger = trigger;
+            this.threshold = threshold;
+            this.command = command;
+            this.text = text;
+        }
+
+        public Trigger getTrigger() {
+            return trigger;
+        }
+
+        // Время (с), высота (м), скорость (м/с) или номер отделившейся ступени
+        public double getThreshold() {
+            return threshold;
+        }
+
+        public RocketCommand getCommand() {
+            return command;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static final double DEFAULT_MAX_TIME = 600;
+
+    private final String name;
+    private final FlightConfig config;
+    private final double maxSimulationTime;
+    private final List<Event> events;
+
+    private Scenario(String name, FlightConfig config, double maxSimulationTime, List<Event> events) {
+        this.name = name;
+        this.config = config;
+        this.maxSimulationTime = maxSimulationTime;
+        this.events = List.copyOf(events);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public FlightConfig getConfig() {
+        return config.copy();
+    }
+
+    public double getMaxSimulationTime() {
+        return maxSimulationTime;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public static Scenario load(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        String name = fileName.endsWith(EXTENSION) ? fileName.substring(0, fileName.length() - EXTENSION.length()) : fileName;
+        FlightConfig config = new FlightConfig();
+        double maxTime = DEFAULT_MAX_TIME;
+        List<Event> events = new ArrayList<>();
+        double[] stageMasses = config.getStageMasses();
+        double[] fuelMasses = config.getFuelMasses();
+        double payload = config.getPayloadMass();
+        double[] massFlowRates = config.getMassFlowRates();
+        double[] exhaustVelocities = config.getExhaustVelocities();
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String[] tokens = line.split("\\s+");
+                try {
+                    switch (tokens[0].toLowerCase(Locale.ROOT)) {
+                        case "name" -> name = line.substring(tokens[0].length()).trim();
+                        case "max-time" -> maxTime = number(tokens, 1);
+                        case "payload" -> payload = number(tokens, 1);
+                        case "stages" -> stageMasses = array(tokens, 1);
+                        case "fuel" -> fuelMasses = array(tokens, 1);
+                        case "mass-flow" -> massFlowRates = array(tokens, 1);
+                        case "exhaust-velocity" -> exhaustVelocities = array(tokens, 1);
+                        case "delay" -> config.setCycleDelay((int) number(tokens, 1));
+                        case "autopilot" -> config.setAutopilotMode(mode(tokens, 1));
+                        case "target-altitude" -> config.setTargetOrbitAltitude(number(tokens, 1));
+                        case "aerodynamics" -> config.setAerodynamics(number(tokens, 1), number(tokens, 2), number(tokens, 3));
+                        case "gravity" -> {
+                            GravityModel.forName(token(tokens, 1));
+                            config.setGravityModel(token(tokens, 1));
+                        }
+                        case "native" -> config.setUseNativeCode(flag(tokens, 1));
+                        case "guidance-table" -> config.setUseGuidanceTable(flag(tokens, 1));
+                        case "rates" -> config.setTaskRates(number(tokens, 1), number(tokens, 2), number(tokens, 3));
+                        case "at" -> events.add(new Event(Trigger.TIME, number(tokens, 1), action(tokens, 2), line));
+                        case "when" -> events.add(parseWhen(tokens, line));
+                        default -> throw new IllegalArgumentException("неизвестная директива " + tokens[0]);
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        if (stageMasses.length != fuelMasses.length) {
+            throw new IOException(path + ": число ступеней в stages и fuel различается");
+        }
+        config.setRocketParameters(payload, stageMasses, fuelMasses);
+        config.setPropulsion(massFlowRates, exhaustVelocities);
+        return new Scenario(name, config, maxTime, events);
+    }
+
+    private static Event parseWhen(String[] tokens, String line) {
+        switch (token(tokens, 1).toLowerCase(Locale.ROOT)) {
+            case "altitude":
+            case "speed": {
+                String direction = token(tokens, 2).toLowerCase(Locale.ROOT);
+                Trigger trigger;
+                if (tokens[1].equalsIgnoreCase("speed") && direction.equals("above")) {
+                    trigger = Trigger.SPEED_ABOVE;
+                } else if (tokens[1].equalsIgnoreCase("altitude") && direction.equals("above")) {
+                    trigger = Trigger.ALTITUDE_ABOVE;
+                } else if (tokens[1].equalsIgnoreCase("altitude") && direction.equals("below")) {
+                    trigger = Trigger.ALTITUDE_BELOW;
+                } else {
+                    throw new IllegalArgumentException("ожидалось above или below: " + line);
+                }
+                return new Event(trigger, number(tokens, 3), action(tokens, 4), line);
+            }
+            case "separation":
+                return new Event(Trigger.SEPARATION, number(tokens, 2), action(tokens, 3), line);
+            default:
+                throw new IllegalArgumentException("неизвестное событие " + tokens[1]);
+        }
+    }
+
+    private static RocketCommand action(String[] tokens, int index) {
+        String argument = token(tokens, index + 1);
+        switch (token(tokens, index).toLowerCase(Locale.ROOT)) {
+            case "engine":
+                switch (argument.toLowerCase(Locale.ROOT)) {
+                    case "on":
+                        return RocketCommand.engineOn(true);
+                    case "off":
+                        return RocketCommand.engineOn(false);
+                    case "toggle":
+                        return RocketCommand.toggleEngine();
+                    default:
+                        throw new IllegalArgumentException("ожидалось on, off или toggle: " + argument);
+                }
+            case "angle":
+                return RocketCommand.rocketAngle(number(tokens, index + 1));
+            case "autopilot":
+                return RocketCommand.autopilotMode(mode(tokens, index + 1));
+            case "warp":
+                return RocketCommand.timeWarp(number(tokens, index + 1));
+            default:
+                throw new IllegalArgumentException("неизвестное действие " + tokens[index]);
+        }
+    }
+
+    private static String token(String[] tokens, int index) {
+        if (index >= tokens.length) {
+            throw new IllegalArgumentException("не хватает аргументов");
+        }
+        return tokens[index];
+    }
+
+    private static double number(String[] tokens, int index) {
+        return Double.parseDouble(token(tokens, index));
+    }
+
+    private static double[] array(String[] tokens, int index) {
+        return Arrays.stream(token(tokens, index).split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    private static boolean flag(String[] tokens, int index) {
+        String value = token(tokens, index).toLowerCase(Locale.ROOT);
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("ожидалось true или false: " + value);
+        }
+        return value.equals("true");
+    }
+
+    private static RocketController.AutopilotMode mode(String[] tokens, int index) {
+        return RocketController.AutopilotMode.valueOf(token(tokens, index).toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.List;
+
+// Исполняет расписание сценария: следит за полётом как наблюдатель модели и отправляет команды в её очередь.
+// Подключается и отключается, пока симуляция остановлена; события проверяются в потоке симуляции на каждом такте
+// и заново взводятся при каждом запуске модели, так что повторный полёт проходит расписание сначала.
+public class ScenarioDriver implements RocketObserver {
+
+    private final Scenario scenario;
+    private final RocketModel model;
+    private final List<Scenario.Event> events;
+    private final boolean[] fired;
+    // altitude below срабатывает только на снижении: сначала ракета должна подняться выше порога
+    private final boolean[] armed;
+    private volatile int firedCount;
+
+    public ScenarioDriver(Scenario scenario, RocketModel model) {
+        this.scenario = scenario;
+        this.model = model;
+        this.events = scenario.getEvents();
+        this.fired = new boolean[events.size()];
+        this.armed = new boolean[events.size()];
+    }
+
+    // Начинает следить за полётом; настройки сценария к этому времени уже должны быть применены.
+    // Вызывать до запуска симуляции
+    public void attach() {
+        model.addStepObserver(this);
+    }
+
+    public void detach() {
+        model.removeStepObserver(this);
+    }
+
+    // Отправляет команды на нулевой момент; модель применит их вместе с настройками перед первым шагом
+    @Override
+    public void onSimulationStart() {
+        // Новая модель стартует с включённым двигателем; повторный полёт в окне начинается так же
+        model.submitCommand(RocketCommand.engineOn(true));
+        firedCount = 0;
+        for (int i = 0; i < events.size(); i++) {
+            Scenario.Event event = events.get(i);
+            armed[i] = false;
+            fired[i] = event.getTrigger() == Scenario.Trigger.TIME && event.getThreshold() <= 0;
+            if (fired[i]) {
+                fire(event);
+            }
+        }
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    public int getFiredCount() {
+        return firedCount;
+    }
+
+    @Override
+    public void onStageSeparation(int stageNumber) {
+        for (int i = 0; i < events.size(); i++) {
+            Scenario.Event event = events.get(i);
+            if (!fired[i] && event.getTrigger() == Scenario.Trigger.SEPARATION && event.getThreshold() == stageNumber) {
+                fired[i] = true;
+                fire(event);
+            }
+        }
+    }
+
+    @Override
+    public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses) {
+        double time = model.getSimulationTime();
+        double altitude = Math.sqrt(x * x + y * y) - RocketModel.EARTH_RADIUS;
+        for (int i = 0; i < events.size(); i++) {
+            if (fired[i]) continue;
+            Scenario.Event event = events.get(i);
+            boolean due = switch (event.getTrigger()) {
+                case TIME -> time >= event.getThreshold();
+                case ALTITUDE_ABOVE -> altitude >= event.getThreshold();
+                case ALTITUDE_BELOW -> {
+                    boolean below = altitude <= event.getThreshold();
+                    boolean descended = armed[i] && below;
+                    armed[i] |= !below;
+                    yield descended;
+                }
+                case SPEED_ABOVE -> speed >= event.getThreshold();
+                case SEPARATION -> false;
+            };
+            if (due) {
+                fired[i] = true;
+                fire(event);
+            }
+        }
+    }
+
+    // Ближайшее событие по времени. Баллистический участок идёт только выше атмосферы и обрывается перед входом в неё,
+    // поэтому пороги высоты ниже неё он не перескочит; более высокие пороги и скорость проверяются на каждом такте
+    @Override
+    public double nextUpdateTime() {
+        double next = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < events.size(); i++) {
+            if (fired[i]) continue;
+            Scenario.Event event = events.get(i);
+            switch (event.getTrigger()) {
+                case TIME -> next = Math.min(next, event.getThreshold());
+                case SPEED_ABOVE -> next = 0;
+                case ALTITUDE_ABOVE, ALTITUDE_BELOW -> {
+                    if (event.getThreshold() >= Atmosphere.DRAG_FREE_ALTITUDE) {
+                        next = 0;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return next;
+    }
+
+    private void fire(Scenario.Event event) {
+        model.submitCommand(event.getCommand());
+        firedCount++;
+    }
+}
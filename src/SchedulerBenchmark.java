@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// Сценарий выведения на орбиту с шагом физики 1 мс (1 кГц) при разной частоте наведения: время каждой задачи
+// и отличие конечного состояния от наведения на каждом шаге.
+// Параметры: --scenario файл (по умолчанию scenarios/orbit-200km.scenario), --delay мс (по умолчанию 1),
+// --max-time с (по умолчанию 400), --rates 0,50,20,10
+public class SchedulerBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of("scenarios", "orbit-200km" + Scenario.EXTENSION);
+        int delay = 1;
+        double maxTime = 400;
+        String rates = "0,50,20,10";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--scenario" -> file = Path.of(args[++i]);
+                case "--delay" -> delay = Integer.parseInt(args[++i]);
+                case "--max-time" -> maxTime = Double.parseDouble(args[++i]);
+                case "--rates" -> rates = args[++i];
+                default -> System.err.println("Неизвестный параметр: " + args[i]);
+            }
+        }
+
+        Scenario scenario = Scenario.load(file);
+        FlightConfig base = scenario.getConfig().setCycleDelay(delay);
+        // Первый прогон прогревает JIT и не печатается
+        run(scenario, base, maxTime);
+
+        double[] reference = null;
+        for (String rate : rates.split(",")) {
+            double guidanceRate = Double.parseDouble(rate);
+            RocketModel model = run(scenario, base.copy().setTaskRates(guidanceRate, 0, 0), maxTime);
+            double[] state = {model.getPositionX(), model.getPositionY(), model.getSpeedX(), model.getSpeedY()};
+            if (reference == null) {
+                reference = state;
+            }
+            double r = Math.hypot(state[0], state[1]);
+            System.out.printf(Locale.ROOT, "Наведение %s: t=%.1f с, высота %.1f км, отличие положения %.1f м, скорости %.2f м/с%n",
+                    guidanceRate > 0 ? guidanceRate + " Гц" : "на каждом шаге", model.getSimulationTime(),
+                    (r - RocketModel.EARTH_RADIUS) / 1000, Math.hypot(state[0] - reference[0], state[1] - reference[1]),
+                    Math.hypot(state[2] - reference[2], state[3] - reference[3]));
+            System.out.print(model.getTaskReport());
+        }
+    }
+
+    private static RocketModel run(Scenario scenario, FlightConfig config, double maxTime) {
+        RocketModel model = new RocketModel();
+        config.applyTo(model);
+        ScenarioDriver driver = new ScenarioDriver(scenario, model);
+        driver.attach();
+        model.setTaskTiming(true);
+        model.runHeadless(maxTime);
+        driver.detach();
+        return model;
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Чувствительность итога полёта (апсиды, остаток топлива) к параметрам ракеты за один прогон на дуальных числах.
+// С --check то же считается центральными разностями (2N прогонов) и сверяется, а значение — с RocketModel.
+// Параметры: --scenario файл (берутся только настройки ракеты, по умолчанию scenarios/orbit-200km.scenario),
+// --autopilot режим, --params payload,stage0,fuel2,... (по умолчанию все), --max-time с, --check.
+// Расписание сценария не исполняется; сценарий по умолчанию переводит ракету на автопилот орбиты событием,
+// поэтому без --scenario автопилот по умолчанию STABLE_ORBIT, а не ручной режим из его настроек.
+// Если автопилот переключал двигатель или ступень выгорела на границе такта, градиент не печатается и не сверяется
+public class SensitivityReport {
+
+    private static final double RELATIVE_STEP = 1e-6;
+    private static final String DEFAULT_AUTOPILOT = "STABLE_ORBIT";
+    // Производная и разность считаются совпавшими при таком относительном отличии
+    private static final double AGREEMENT_TOLERANCE = 1e-2;
+
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of("scenarios", "orbit-200km" + Scenario.EXTENSION);
+        String autopilot = null;
+        boolean defaultScenario = true;
+        String parameterList = null;
+        double maxTime = Double.NaN;
+        boolean check = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--scenario" -> {
+                    file = Path.of(args[++i]);
+                    defaultScenario = false;
+                }
+                case "--autopilot" -> autopilot = args[++i];
+                case "--params" -> parameterList = args[++i];
+                case "--max-time" -> maxTime = Double.parseDouble(args[++i]);
+                case "--check" -> check = true;
+                default -> System.err.println("Неизвестный параметр: " + args[i]);
+            }
+        }
+
+        Scenario scenario = Scenario.load(file);
+        FlightConfig config = scenario.getConfig();
+        if (autopilot == null && defaultScenario) {
+            autopilot = DEFAULT_AUTOPILOT;
+        }
+        if (autopilot != null) {
+            config.setAutopilotMode(RocketController.AutopilotMode.valueOf(autopilot.toUpperCase(Locale.ROOT)));
+        }
+        if (Double.isNaN(maxTime)) {
+            maxTime = scenario.getMaxSimulationTime();
+        }
+        List<String> parameters = parameterList != null ? Arrays.asList(parameterList.split(",")) : DualFlight.allParameters(config);
+
+        // Первый прогон прогревает JIT и не учитывается
+        new DualFlight(config, parameters).run(maxTime);
+        long start = System.nanoTime();
+        DualFlight.Outcome outcome = new DualFlight(config, parameters).run(maxTime);
+        long dualNanos = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT, "%s, автопилот %s, %d параметров, %.0f мс%n", scenario.getName(), config.getAutopilotMode(),
+                parameters.size(), dualNanos / 1e6);
+        System.out.print(DualFlight.format(outcome));
+        if (check) {
+            checkValue(config, outcome);
+            if (outcome.isDifferentiable()) {
+                checkDerivatives(config, parameters, outcome, maxTime, dualNanos);
+            } else {
+                System.out.println("Сверка производных пропущена: разность через переключение двигателя или выгорание "
+                        + "на границе такта показывает скачок, а не производную");
+            }
+        }
+    }
+
+    // Значение дуального прогона должно совпасть с RocketModel в тот же момент
+    private static void checkValue(FlightConfig config, DualFlight.Outcome outcome) {
+        RocketModel model = new RocketModel();
+        config.applyTo(model);
+        model.runHeadless(outcome.getTime());
+        Dual[] state = outcome.getState();
+        if (outcome.isLanded()) {
+            System.out.printf(Locale.ROOT, "RocketModel: упала в t=%.1f с (дуальный прогон: %.1f с)%n", model.getSimulationTime(), outcome.getTime());
+        } else {
+            System.out.printf(Locale.ROOT, "Отличие от RocketModel в t=%.1f с: положение %.3e м, скорость %.3e м/с%n", outcome.getTime(),
+                    Math.hypot(model.getPositionX() - state[0].value(), model.getPositionY() - state[1].value()),
+                    Math.hypot(model.getSpeedX() - state[2].value(), model.getSpeedY() - state[3].value()));
+        }
+    }
+
+    private static void checkDerivatives(FlightConfig config, List<String> parameters, DualFlight.Outcome outcome, double maxTime, long dualNanos) {
+        long start = System.nanoTime();
+        int unusable = 0;
+        int disagreeing = 0;
+        System.out.println("Параметр       производная    разность       (апоцентр, перицентр, топливо)  сверка");
+        for (int p = 0; p < parameters.size(); p++) {
+            String name = parameters.get(p);
+            double[] difference = centralDifference(config, name, maxTime);
+            Dual[] exact = {outcome.getApoapsis(), outcome.getPeriapsis(), outcome.getRemainingFuel()};
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-12s", name));
+            boolean agrees = true;
+            for (int i = 0; i < exact.length; i++) {
+                double derivative = exact[i].derivative(p);
+                line.append(difference != null
+                        ? String.format(Locale.ROOT, "  %12.5g %12.5g", derivative, difference[i])
+                        : String.format(Locale.ROOT, "  %12.5g %12s", derivative, "—"));
+                agrees &= difference != null && agrees(derivative, difference[i]);
+            }
+            if (difference == null) {
+                line.append("  разность непригодна *");
+                unusable++;
+            } else if (agrees) {
+                line.append("  совпадает");
+            } else {
+                line.append("  РАСХОДИТСЯ");
+                disagreeing++;
+            }
+            System.out.println(line);
+        }
+        long differenceNanos = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT, "Дуальный прогон %.0f мс, конечные разности (%d прогонов) %.0f мс%n",
+                dualNanos / 1e6, 2 * parameters.size(), differenceNanos / 1e6);
+        if (unusable > 0) {
+            // Отделение ступени или импульс автопилота перешёл на другой шаг: апсиды меняются скачком,
+            // и разность показывает этот скачок, а не производную
+            System.out.printf(Locale.ROOT, "* %d из %d строк непригодны для сверки: в прогонах разности ступени отделились или двигатель "
+                    + "переключился на разных шагах, и разность в них — скачок на границе шага, а не производная. "
+                    + "Производные этих параметров не проверены%n",
+                    unusable, parameters.size());
+        }
+        if (disagreeing > 0) {
+            System.out.printf(Locale.ROOT, "%d строк расходятся больше чем на %.0f%% при одинаковом числе шагов%n",
+                    disagreeing, AGREEMENT_TOLERANCE * 100);
+        }
+    }
+
+    // Центральная разность апоцентра, перицентра и остатка топлива по параметру; null, если прогоны разности
+    // закончились в разное время или с разными тактами событий: тогда разность — скачок на границе шага
+    static double[] centralDifference(FlightConfig config, String name, double maxTime) {
+        double value = valueOf(config, name);
+        double step = RELATIVE_STEP * Math.max(Math.abs(value), 1);
+        DualFlight.Outcome plus = new DualFlight(perturb(config, name, value + step), List.of()).run(maxTime);
+        DualFlight.Outcome minus = new DualFlight(perturb(config, name, value - step), List.of()).run(maxTime);
+        if (plus.getTime() != minus.getTime() || plus.getEventSignature() != minus.getEventSignature()) {
+            return null;
+        }
+        return new double[]{
+                (plus.getApoapsis().value() - minus.getApoapsis().value()) / (2 * step),
+                (plus.getPeriapsis().value() - minus.getPeriapsis().value()) / (2 * step),
+                (plus.getRemainingFuel().value() - minus.getRemainingFuel().value()) / (2 * step),
+        };
+    }
+
+    static boolean agrees(double derivative, double difference) {
+        return Math.abs(derivative - difference) <= AGREEMENT_TOLERANCE * Math.max(Math.abs(derivative), Math.abs(difference)) + 1e-9;
+    }
+
+    private static double valueOf(FlightConfig config, String name) {
+        return switch (name.replaceAll("\\d+$", "")) {
+            case "payload" -> config.getPayloadMass();
+            case "target" -> config.getTargetOrbitAltitude();
+            case "stage" -> config.getStageMasses()[index(name)];
+            case "fuel" -> config.getFuelMasses()[index(name)];
+            case "flow" -> config.getMassFlowRates()[index(name)];
+            case "exhaust" -> config.getExhaustVelocities()[index(name)];
+            default -> throw new IllegalArgumentException("Неизвестный параметр: " + name);
+        };
+    }
+
+    private static FlightConfig perturb(FlightConfig config, String name, double value) {
+        FlightConfig copy = config.copy();
+        double[] stages = copy.getStageMasses();
+        double[] fuel = copy.getFuelMasses();
+        double[] flows = copy.getMassFlowRates();
+        double[] velocities = copy.getExhaustVelocities();
+        double payload = copy.getPayloadMass();
+        switch (name.replaceAll("\\d+$", "")) {
+            case "payload" -> payload = value;
+            case "target" -> copy.setTargetOrbitAltitude(value);
+            case "stage" -> stages[index(name)] = value;
+            case "fuel" -> fuel[index(name)] = value;
+            case "flow" -> flows[index(name)] = value;
+            case "exhaust" -> velocities[index(name)] = value;
+            default -> throw new IllegalArgumentException("Неизвестный параметр: " + name);
+        }
+        return copy.setRocketParameters(payload, stages, fuel).setPropulsion(flows, velocities);
+    }
+
+    private static int index(String name) {
+        return Integer.parseInt(name.replaceAll("^\\D+", ""));
+    }
+}
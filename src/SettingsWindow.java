@@ -1,17 +1,35 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class SettingsWindow extends JFrame {
+    // Прогноз запускается, когда ввод затих на это время
+    private static final int PREVIEW_DEBOUNCE_MILLIS = 40;
+    private static final double PREVIEW_BUDGET_MILLIS = 60;
+
     private final RocketController controller;
 
     private JTextField payloadMassField;
     private JTextField[] stageMassFields;
     private JTextField[] fuelMassFields;
-    private JTextField thrustField;
+    private JTextField[] massFlowFields;
+    private JTextField[] exhaustVelocityFields;
 
     private JTextField cycleDelayField;
-    private JTextField fuelConsumptionField;
+    private JTextField dragCoefficientField;
+    private JTextField referenceAreaField;
+    private JTextField nozzleExitAreaField;
+    private JComboBox<String> gravityModelBox;
     private JSpinner orbitAltitudeSpinner;
+    private JCheckBox guidanceTableCheckBox;
+
+    private JTextArea budgetArea;
+    private JLabel previewLabel;
+    private FlightPreview preview;
+    private Timer previewTimer;
 
     public SettingsWindow(RocketController controller) {
         this.controller = controller;
@@ -32,29 +50,51 @@ public class SettingsWindow extends JFrame {
 
         stageMassFields = new JTextField[3];
         fuelMassFields = new JTextField[3];
+        massFlowFields = new JTextField[3];
+        exhaustVelocityFields = new JTextField[3];
 
         for (int i = 0; i < 3; i++) {
             stageMassFields[i] = new JTextField("5");
             fuelMassFields[i] = new JTextField("3");
+            massFlowFields[i] = new JTextField("0.1");
+            exhaustVelocityFields[i] = new JTextField("3500");
 
             contentPanel.add(new JLabel("Масса ступени " + (i + 1) + " (кг):"));
             contentPanel.add(stageMassFields[i]);
 
             contentPanel.add(new JLabel("Масса топлива ступени " + (i + 1) + " (кг):"));
             contentPanel.add(fuelMassFields[i]);
+
+            contentPanel.add(new JLabel("Расход топлива ступени " + (i + 1) + " (кг/с):"));
+            contentPanel.add(massFlowFields[i]);
+
+            contentPanel.add(new JLabel("Скорость истечения ступени " + (i + 1) + " (м/с, удельный импульс × 9.81):"));
+            contentPanel.add(exhaustVelocityFields[i]);
         }
 
-        thrustField = new JTextField("3500");
-        contentPanel.add(new JLabel("Тяга на кг топлива:"));
-        contentPanel.add(thrustField);
+        JButton legacyButton = new JButton("Пересчитать из старых единиц…");
+        legacyButton.addActionListener(e -> convertLegacyPropulsion());
+        contentPanel.add(legacyButton);
 
         cycleDelayField = new JTextField("100");
         contentPanel.add(new JLabel("Задержка цикла симуляции (мс):"));
         contentPanel.add(cycleDelayField);
 
-        fuelConsumptionField = new JTextField("0.01");
-        contentPanel.add(new JLabel("Сжигаемое топливо за цикл (кг):"));
-        contentPanel.add(fuelConsumptionField);
+        dragCoefficientField = new JTextField("0.5");
+        contentPanel.add(new JLabel("Коэффициент лобового сопротивления Cd:"));
+        contentPanel.add(dragCoefficientField);
+
+        referenceAreaField = new JTextField("0.01");
+        contentPanel.add(new JLabel("Площадь миделя (м²):"));
+        contentPanel.add(referenceAreaField);
+
+        nozzleExitAreaField = new JTextField("0.0001");
+        contentPanel.add(new JLabel("Площадь среза сопла (м²):"));
+        contentPanel.add(nozzleExitAreaField);
+
+        gravityModelBox = new JComboBox<>(new String[]{GravityModel.POINT_MASS, GravityModel.J2, GravityModel.J2_MOON_SUN});
+        contentPanel.add(new JLabel("Модель гравитации:"));
+        contentPanel.add(gravityModelBox);
 
         JButton manualButton = new JButton("Вручную");
         JButton maxDistanceButton = new JButton("Строго вертикальный взлёт");
@@ -79,10 +119,6 @@ public class SettingsWindow extends JFrame {
 
         applyButton.addActionListener(e -> {
             if (applySettings()) {
-                if (controller.getAutopilotMode() == RocketController.AutopilotMode.STABLE_ORBIT) {
-                    double targetOrbitAltitude = ((Number) orbitAltitudeSpinner.getValue()).doubleValue();
-                    controller.getModel().setTargetOrbitAltitude(targetOrbitAltitude);
-                }
                 JOptionPane.showMessageDialog(this, "Настройки успешно применены.", "Информация", JOptionPane.INFORMATION_MESSAGE);
                 controller.setSettingsConfirmed(true);
             }
@@ -90,48 +126,173 @@ public class SettingsWindow extends JFrame {
         JLabel orbitAltitudeLabel = new JLabel("Целевая высота орбиты (м):");
         orbitAltitudeSpinner = new JSpinner(new SpinnerNumberModel(200000, 100000, 10000000, 10000));
         orbitAltitudeSpinner.setEnabled(false);
+        guidanceTableCheckBox = new JCheckBox("Табличное наведение");
+        guidanceTableCheckBox.setEnabled(false);
 
         JPanel orbitPanel = new JPanel();
         orbitPanel.add(orbitAltitudeLabel);
         orbitPanel.add(orbitAltitudeSpinner);
+        orbitPanel.add(guidanceTableCheckBox);
         contentPanel.add(orbitPanel);
 
+        contentPanel.add(new JLabel("Оценка конфигурации:"));
+        budgetArea = new JTextArea(5, 40);
+        budgetArea.setEditable(false);
+        budgetArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        budgetArea.setAlignmentX(Component.LEFT_ALIGNMENT);
+        contentPanel.add(budgetArea);
+        previewLabel = new JLabel(" ");
+        contentPanel.add(previewLabel);
+
         manualButton.addActionListener(e -> {
             controller.setAutopilotMode(RocketController.AutopilotMode.MANUAL);
             orbitAltitudeSpinner.setEnabled(false);
+            guidanceTableCheckBox.setEnabled(false);
+            configChanged();
         });
         maxDistanceButton.addActionListener(e -> {
             controller.setAutopilotMode(RocketController.AutopilotMode.MAX_DISTANCE);
             orbitAltitudeSpinner.setEnabled(false);
+            guidanceTableCheckBox.setEnabled(false);
+            configChanged();
         });
         stableOrbitButton.addActionListener(e -> {
             controller.setAutopilotMode(RocketController.AutopilotMode.STABLE_ORBIT);
             orbitAltitudeSpinner.setEnabled(true); // Включаем ввод высоты орбиты
+            guidanceTableCheckBox.setEnabled(true);
+            configChanged();
+        });
+
+        // Бюджет пересчитывается на каждое изменение, грубый прогон — после паузы во вводе
+        preview = new FlightPreview(result -> previewLabel.setText(result.describe()));
+        preview.setBudgetMillis(PREVIEW_BUDGET_MILLIS);
+        previewTimer = new Timer(PREVIEW_DEBOUNCE_MILLIS, e -> startPreview());
+        previewTimer.setRepeats(false);
+        watch(payloadMassField);
+        for (int i = 0; i < 3; i++) {
+            watch(stageMassFields[i]);
+            watch(fuelMassFields[i]);
+            watch(massFlowFields[i]);
+            watch(exhaustVelocityFields[i]);
+        }
+        watch(cycleDelayField);
+        watch(dragCoefficientField);
+        watch(referenceAreaField);
+        watch(nozzleExitAreaField);
+        gravityModelBox.addActionListener(e -> configChanged());
+        orbitAltitudeSpinner.addChangeListener(e -> configChanged());
+        guidanceTableCheckBox.addActionListener(e -> configChanged());
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                previewTimer.stop();
+                preview.cancel();
+            }
         });
-        setVisible(true);
+        configChanged();
     }
 
-    private boolean applySettings() {
-        try {
-            double payloadMass = Double.parseDouble(payloadMassField.getText());
-            double[] stageMasses = new double[3];
-            double[] fuelMasses = new double[3];
-            for (int i = 0; i < 3; i++) {
-                stageMasses[i] = Double.parseDouble(stageMassFields[i].getText());
-                fuelMasses[i] = Double.parseDouble(fuelMassFields[i].getText());
+    private void watch(JTextField field) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                configChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                configChanged();
             }
-            double thrustPerKgFuel = Double.parseDouble(thrustField.getText());
-            int cycleDelay = Integer.parseInt(cycleDelayField.getText());
-            double fuelConsumptionPerCycle = Double.parseDouble(fuelConsumptionField.getText());
 
-            controller.setRocketParameters(payloadMass, stageMasses, fuelMasses, thrustPerKgFuel);
-            controller.setCycleDelay(cycleDelay);
-            controller.setFuelConsumptionPerCycle(fuelConsumptionPerCycle);
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                configChanged();
+            }
+        });
+    }
 
+    private void configChanged() {
+        preview.cancel();
+        try {
+            budgetArea.setText(FlightBudget.of(readConfig()).format());
+            previewLabel.setText("Прогноз: расчёт…");
+            previewTimer.restart();
+        } catch (IllegalArgumentException ex) {
+            previewTimer.stop();
+            budgetArea.setText("Не все поля заполнены числами.");
+            previewLabel.setText(" ");
+        }
+    }
+
+    private void startPreview() {
+        try {
+            preview.submit(readConfig());
+        } catch (IllegalArgumentException ex) {
+            previewLabel.setText(" ");
+        }
+    }
+
+    private boolean applySettings() {
+        try {
+            controller.applyConfig(readConfig());
             return true;
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Ошибка ввода данных. Пожалуйста, введите корректные числовые значения.", "Ошибка", JOptionPane.ERROR_MESSAGE);
             return false;
         }
     }
+
+    // Все поля собираются в одну конфигурацию: по ней же контроллер ищет готовый полёт в кэше
+    private FlightConfig readConfig() {
+        double payloadMass = Double.parseDouble(payloadMassField.getText());
+        double[] stageMasses = new double[3];
+        double[] fuelMasses = new double[3];
+        for (int i = 0; i < 3; i++) {
+            stageMasses[i] = Double.parseDouble(stageMassFields[i].getText());
+            fuelMasses[i] = Double.parseDouble(fuelMassFields[i].getText());
+        }
+        double[] massFlowRates = new double[3];
+        double[] exhaustVelocities = new double[3];
+        for (int i = 0; i < 3; i++) {
+            massFlowRates[i] = Double.parseDouble(massFlowFields[i].getText());
+            exhaustVelocities[i] = Double.parseDouble(exhaustVelocityFields[i].getText());
+        }
+        int cycleDelay = Integer.parseInt(cycleDelayField.getText());
+        double dragCoefficient = Double.parseDouble(dragCoefficientField.getText());
+        double referenceArea = Double.parseDouble(referenceAreaField.getText());
+        double nozzleExitArea = Double.parseDouble(nozzleExitAreaField.getText());
+
+        boolean stableOrbit = controller.getAutopilotMode() == RocketController.AutopilotMode.STABLE_ORBIT;
+        return new FlightConfig()
+                .setRocketParameters(payloadMass, stageMasses, fuelMasses)
+                .setPropulsion(massFlowRates, exhaustVelocities)
+                .setCycleDelay(cycleDelay)
+                .setAerodynamics(dragCoefficient, referenceArea, nozzleExitArea)
+                .setGravityModel((String) gravityModelBox.getSelectedItem())
+                .setAutopilotMode(controller.getAutopilotMode())
+                .setTargetOrbitAltitude(((Number) orbitAltitudeSpinner.getValue()).doubleValue())
+                .setUseGuidanceTable(stableOrbit && guidanceTableCheckBox.isSelected());
+    }
+
+    // Заполняет поля двигателей по старым настройкам: тяга на кг топлива и топливо за цикл при текущей задержке цикла
+    private void convertLegacyPropulsion() {
+        JTextField thrustField = new JTextField("3500");
+        JTextField fuelConsumptionField = new JTextField("0.01");
+        Object[] message = {"Тяга на кг топлива:", thrustField, "Сжигаемое топливо за цикл (кг):", fuelConsumptionField};
+        if (JOptionPane.showConfirmDialog(this, message, "Старые единицы", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            FlightConfig legacy = new FlightConfig().setLegacyPropulsion(Double.parseDouble(thrustField.getText()),
+                    Double.parseDouble(fuelConsumptionField.getText()), Integer.parseInt(cycleDelayField.getText()));
+            double[] massFlowRates = legacy.getMassFlowRates();
+            double[] exhaustVelocities = legacy.getExhaustVelocities();
+            for (int i = 0; i < 3; i++) {
+                massFlowFields[i].setText(String.valueOf(massFlowRates[i]));
+                exhaustVelocityFields[i].setText(String.valueOf(exhaustVelocities[i]));
+            }
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Ошибка ввода данных. Пожалуйста, введите корректные числовые значения.", "Ошибка", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 }
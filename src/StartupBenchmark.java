@@ -0,0 +1,160 @@
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+// Холодный старт: запускает Main в отдельных JVM и меряет время от запуска процесса до первого такта симуляции
+// и до первого кадра UI, без архива CDS и с ним. Без дисплея GUI-режим пропускается.
+// Запуск: java StartupBenchmark [--runs N] [--archive cds/rocket.jsa] [--create-archive]
+// --create-archive записывает архив классов приложения тренировочным прогоном (-XX:ArchiveClassesAtExit);
+// готовый архив подключается к обычному запуску: java -XX:SharedArchiveFile=cds/rocket.jsa -cp cds/rocket.jar Main.
+// CDS не архивирует классы из каталогов, поэтому каталог классов упаковывается в cds/rocket.jar, и все прогоны идут из него
+public class StartupBenchmark {
+
+    private static final Path DEFAULT_ARCHIVE = Path.of("cds", "rocket.jsa");
+    private static final Path APPLICATION_JAR = Path.of("cds", "rocket.jar");
+    private static final String HEADLESS_TIME = "60";
+
+    private static String classPath;
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        Path archive = DEFAULT_ARCHIVE;
+        boolean createArchive = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--archive" -> archive = Path.of(args[++i]);
+                case "--create-archive" -> createArchive = true;
+                default -> System.err.println("Неизвестный параметр: " + args[i]);
+            }
+        }
+        boolean gui = !GraphicsEnvironment.isHeadless();
+        classPath = packClassPath(System.getProperty("java.class.path"));
+
+        if (createArchive) {
+            if (archive.getParent() != null) {
+                Files.createDirectories(archive.getParent());
+            }
+            // Дамп делается при выходе последней JVM, поэтому тренируем тем режимом, который грузит больше классов
+            List<String> options = List.of("-XX:ArchiveClassesAtExit=" + archive);
+            if (gui) {
+                launch(options, List.of("--autostart"), "first-frame");
+            } else {
+                launch(options, List.of("--headless", HEADLESS_TIME), null);
+            }
+            System.out.println("Архив записан: " + archive);
+        }
+
+        List<List<String>> profiles = new ArrayList<>();
+        List<String> profileNames = new ArrayList<>();
+        profiles.add(List.of());
+        profileNames.add("без CDS-архива");
+        if (Files.exists(archive)) {
+            profiles.add(List.of("-XX:SharedArchiveFile=" + archive));
+            profileNames.add("с архивом " + archive);
+        }
+
+        for (int p = 0; p < profiles.size(); p++) {
+            report(profileNames.get(p) + ", headless", runs, profiles.get(p), List.of("--headless", HEADLESS_TIME), null, "first-tick");
+            if (gui) {
+                report(profileNames.get(p) + ", GUI", runs, profiles.get(p), List.of("--autostart"), "first-frame", "first-tick", "first-frame");
+            }
+        }
+        if (!gui) {
+            System.out.println("Нет дисплея: GUI-режим не измерялся");
+        }
+    }
+
+    // Каталоги из пути классов пакуются в один jar; пути к jar-файлам сохраняются как есть
+    private static String packClassPath(String original) throws IOException {
+        List<String> entries = new ArrayList<>();
+        List<Path> directories = new ArrayList<>();
+        for (String entry : original.split(File.pathSeparator)) {
+            if (Files.isDirectory(Path.of(entry))) {
+                directories.add(Path.of(entry));
+            } else {
+                entries.add(entry);
+            }
+        }
+        if (directories.isEmpty()) {
+            return original;
+        }
+        Files.createDirectories(APPLICATION_JAR.getParent());
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(APPLICATION_JAR))) {
+            for (Path directory : directories) {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                        jar.putNextEntry(new JarEntry(directory.relativize(file).toString().replace(File.separatorChar, '/')));
+                        Files.copy(file, jar);
+                        jar.closeEntry();
+                    }
+                }
+            }
+        }
+        entries.add(0, APPLICATION_JAR.toString());
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static void report(String name, int runs, List<String> options, List<String> mainArgs, String exitAfter, String... events) throws Exception {
+        Map<String, long[]> samples = new HashMap<>();
+        for (String event : events) {
+            samples.put(event, new long[runs]);
+        }
+        for (int run = 0; run < runs; run++) {
+            Map<String, Long> marks = launch(options, mainArgs, exitAfter);
+            for (String event : events) {
+                samples.get(event)[run] = marks.getOrDefault(event, -1L);
+            }
+        }
+        for (String event : events) {
+            long[] values = samples.get(event);
+            Arrays.sort(values);
+            System.out.printf(Locale.ROOT, "%-40s %-12s медиана %5d мс, мин %5d мс, макс %5d мс%n",
+                    name, event, values[values.length / 2], values[0], values[values.length - 1]);
+        }
+    }
+
+    private static Map<String, Long> launch(List<String> options, List<String> mainArgs, String exitAfter) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options);
+        command.add("-cp");
+        command.add(classPath);
+        if (exitAfter != null) {
+            command.add("-Dstartup.exitAfter=" + exitAfter);
+        }
+        command.add("-Dstartup.launchMillis=" + System.currentTimeMillis());
+        command.add("Main");
+        command.addAll(mainArgs);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, Long> marks = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.split(" ");
+                if (tokens.length == 3 && tokens[0].equals("startup")) {
+                    marks.put(tokens[1], Long.parseLong(tokens[2]));
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("Main завершился с кодом " + process.exitValue() + ": " + command);
+        }
+        return marks;
+    }
+}
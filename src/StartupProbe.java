@@ -0,0 +1,26 @@
+// Отметки холодного старта для StartupBenchmark. Включаются свойством startup.launchMillis (момент запуска процесса);
+// без него mark() ничего не делает. Со свойством startup.exitAfter процесс завершается после указанной отметки
+final class StartupProbe {
+
+    private static final long LAUNCH_MILLIS = Long.getLong("startup.launchMillis", -1);
+    private static final String EXIT_AFTER = System.getProperty("startup.exitAfter");
+    private static final java.util.Set<String> MARKED = java.util.concurrent.ConcurrentHashMap.newKeySet();
+
+    private StartupProbe() {
+    }
+
+    static boolean isEnabled() {
+        return LAUNCH_MILLIS >= 0;
+    }
+
+    // Каждое событие печатается один раз: "startup <событие> <мс от запуска>"
+    static void mark(String event) {
+        if (LAUNCH_MILLIS < 0 || !MARKED.add(event)) {
+            return;
+        }
+        System.out.println("startup " + event + " " + (System.currentTimeMillis() - LAUNCH_MILLIS));
+        if (event.equals(EXIT_AFTER)) {
+            System.exit(0);
+        }
+    }
+}
@@ -0,0 +1,473 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Перебор настроек полёта в нескольких процессах. Координатор делит перебор на единицы работы и раздаёт их
+// рабочим процессам SweepWorker по TCP (SweepProtocol); локальные рабочие запускаются сами, рабочие на других
+// машинах подключаются к --listen. У каждого рабочего своя очередь единиц; освободившийся рабочий сначала
+// берёт из своей очереди, затем из общей, затем забирает хвост самой длинной чужой очереди. Если процесс
+// рабочего падает, его незавершённые единицы возвращаются в общую очередь и отдаются заново, не больше
+// MAX_ATTEMPTS раз, а локальный процесс перезапускается. Сводки пишутся в один CSV по мере поступления.
+// Очереди меняются под монитором координатора, а отправка в сокет идёт вне его, чтобы медленный рабочий
+// не задерживал остальных.
+//
+// Порт по умолчанию слушает только loopback; --bind адрес открывает его другим машинам. Рабочий должен прислать
+// токен: координатор берёт его из SWEEP_TOKEN или создаёт случайный и печатает, локальным рабочим он передаётся сам.
+//
+// Запуск: java SweepCoordinator [--workers N] [--listen порт] [--bind адрес] [--out sweep.csv] [--max-time с]
+//         [--autopilot A,B] [--gravity a,b] [--delay ...] [--payload ...] [--target ...] [--drag ...]
+// Числовые измерения задаются списком (10,20,30) или диапазоном от:до:шаг (10:30:10)
+public class SweepCoordinator {
+
+    private static final int PREFETCH = 2;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_RESTARTS_PER_WORKER = 3;
+    private static final Path DEFAULT_OUTPUT = Path.of("sweep.csv");
+    private static final String HEADER = "unit,autopilot,gravity,delay_ms,payload_kg,target_altitude_m,drag_coefficient,"
+            + "final_time_s,max_altitude_m,max_speed_mps,max_q_pa,final_mass_kg,remaining_stages,outcome,worker,attempts,wall_ms,error";
+
+    private static final class Unit {
+        final int id;
+        final FlightConfig config;
+        int attempts;
+
+        Unit(int id, FlightConfig config) {
+            this.id = id;
+            this.config = config;
+        }
+    }
+
+    // Единица, выбранная для рабочего под монитором; отправляется вне его
+    private static final class Assignment {
+        final Connection connection;
+        final Unit unit;
+
+        Assignment(Connection connection, Unit unit) {
+            this.connection = connection;
+            this.unit = unit;
+        }
+    }
+
+    private final class Connection {
+        final Socket socket;
+        final DataOutputStream out;
+        final Deque<Unit> queue = new ArrayDeque<>();
+        final Map<Integer, Unit> inFlight = new LinkedHashMap<>();
+        String name;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+    }
+
+    private final double maxSimulationTime;
+    private final Deque<Unit> shared = new ArrayDeque<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final BufferedWriter output;
+    private final ServerSocket server;
+    private final int localWorkers;
+    private final String token;
+    private final List<Process> processes = new ArrayList<>();
+    private int remaining;
+    private int connectedLocal;
+    private int restarts;
+    private int failed;
+    private int retried;
+    private int stolen;
+    private int crashes;
+    private boolean finished;
+
+    private SweepCoordinator(List<Unit> units, double maxSimulationTime, BufferedWriter output, ServerSocket server, int localWorkers,
+                             String token) {
+        this.maxSimulationTime = maxSimulationTime;
+        this.output = output;
+        this.server = server;
+        this.localWorkers = localWorkers;
+        this.token = token;
+        this.shared.addAll(units);
+        this.remaining = units.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int port = 0;
+        InetAddress bind = InetAddress.getLoopbackAddress();
+        Path outputPath = DEFAULT_OUTPUT;
+        double maxTime = ResultCache.DEFAULT_MAX_SIMULATION_TIME;
+        String autopilot = "STABLE_ORBIT";
+        String gravity = GravityModel.POINT_MASS;
+        String delay = "100";
+        String payload = "10";
+        String target = "200000";
+        String drag = "0.5";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--listen" -> port = Integer.parseInt(args[++i]);
+                case "--bind" -> bind = InetAddress.getByName(args[++i]);
+                case "--out" -> outputPath = Path.of(args[++i]);
+                case "--max-time" -> maxTime = Double.parseDouble(args[++i]);
+                case "--autopilot" -> autopilot = args[++i];
+                case "--gravity" -> gravity = args[++i];
+                case "--delay" -> delay = args[++i];
+                case "--payload" -> payload = args[++i];
+                case "--target" -> target = args[++i];
+                case "--drag" -> drag = args[++i];
+                default -> System.err.println("Неизвестный параметр: " + args[i]);
+            }
+        }
+
+        List<Unit> units = new ArrayList<>();
+        for (String mode : autopilot.split(",")) {
+            for (String gravityModel : gravity.split(",")) {
+                GravityModel.forName(gravityModel);
+                for (double cycleDelay : values(delay)) {
+                    for (double payloadMass : values(payload)) {
+                        for (double targetAltitude : values(target)) {
+                            for (double dragCoefficient : values(drag)) {
+                                FlightConfig base = new FlightConfig();
+                                FlightConfig config = base
+                                        .setAutopilotMode(RocketController.AutopilotMode.valueOf(mode.toUpperCase(Locale.ROOT)))
+                                        .setGravityModel(gravityModel)
+                                        .setCycleDelay((int) cycleDelay)
+                                        .setRocketParameters(payloadMass, base.getStageMasses(), base.getFuelMasses())
+                                        .setTargetOrbitAltitude(targetAltitude)
+                                        .setAerodynamics(dragCoefficient, base.getReferenceArea(), base.getNozzleExitArea());
+                                units.add(new Unit(units.size(), config));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        String token = System.getenv(SweepProtocol.TOKEN_VARIABLE);
+        boolean generatedToken = token == null || token.isEmpty();
+        if (generatedToken) {
+            byte[] secret = new byte[16];
+            new SecureRandom().nextBytes(secret);
+            token = HexFormat.of().formatHex(secret);
+        }
+
+        long start = System.nanoTime();
+        try (ServerSocket server = new ServerSocket(port, 50, bind);
+             BufferedWriter output = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+            output.write(HEADER);
+            output.newLine();
+            System.out.println(units.size() + " единиц работы, " + workers + " локальных рабочих, адрес "
+                    + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort());
+            if (generatedToken && port != 0) {
+                System.out.println("Токен для рабочих (" + SweepProtocol.TOKEN_VARIABLE + "): " + token);
+            }
+            SweepCoordinator coordinator = new SweepCoordinator(units, maxTime, output, server, workers, token);
+            coordinator.run();
+            System.out.printf(Locale.ROOT, "Готово за %.1f с: ошибок %d, повторов %d, перехвачено %d, падений рабочих %d; результаты: %s%n",
+                    (System.nanoTime() - start) / 1e9, coordinator.failed, coordinator.retried, coordinator.stolen,
+                    coordinator.crashes, outputPath);
+        }
+    }
+
+    private static double[] values(String text) {
+        if (text.contains(":")) {
+            double[] range = Arrays.stream(text.split(":")).mapToDouble(Double::parseDouble).toArray();
+            int count = (int) Math.floor((range[1] - range[0]) / range[2] + 1e-9) + 1;
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = range[0] + i * range[2];
+            }
+            return values;
+        }
+        return Arrays.stream(text.split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    private void run() throws Exception {
+        Thread acceptor = new Thread(this::acceptLoop, "sweep-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        for (int i = 0; i < localWorkers; i++) {
+            startLocalWorker("local-" + i);
+        }
+        List<Connection> open;
+        synchronized (this) {
+            while (remaining > 0) {
+                if (connections.isEmpty() && processes.stream().noneMatch(Process::isAlive) && localWorkers > 0
+                        && restarts >= localWorkers * MAX_RESTARTS_PER_WORKER) {
+                    // Локальных рабочих не осталось и перезапускать их больше нельзя
+                    failRemaining("нет живых рабочих");
+                    break;
+                }
+                wait(1000);
+            }
+            finished = true;
+            open = new ArrayList<>(connections);
+            output.flush();
+        }
+        for (Connection connection : open) {
+            try {
+                synchronized (connection.out) {
+                    SweepProtocol.writeShutdown(connection.out);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+        server.close();
+        for (Process process : processes) {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private void startLocalWorker(String name) throws IOException {
+        List<String> command = List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), "SweepWorker",
+                "--connect", "127.0.0.1:" + server.getLocalPort(), "--name", name);
+        ProcessBuilder builder = new ProcessBuilder(command).inheritIO();
+        builder.environment().put(SweepProtocol.TOKEN_VARIABLE, token);
+        Process process = builder.start();
+        synchronized (this) {
+            processes.add(process);
+        }
+        // Упавший локальный рабочий перезапускается под тем же именем, пока работа не кончилась
+        process.onExit().thenAccept(exited -> {
+            boolean restart;
+            synchronized (this) {
+                restart = !finished && remaining > 0 && exited.exitValue() != 0 && restarts < localWorkers * MAX_RESTARTS_PER_WORKER;
+                if (restart) {
+                    restarts++;
+                }
+                notifyAll();
+            }
+            if (restart) {
+                try {
+                    startLocalWorker(name);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread reader = new Thread(() -> serve(socket), "sweep-worker-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    // Поток чтения одного рабочего; конец потока до SHUTDOWN означает падение процесса
+    private void serve(Socket socket) {
+        Connection connection = null;
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readByte() != SweepProtocol.HELLO || in.readInt() != SweepProtocol.VERSION) {
+                throw new IOException("другая версия протокола");
+            }
+            if (!MessageDigest.isEqual(in.readUTF().getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+                System.err.println("Отклонён рабочий с неверным токеном: " + socket.getRemoteSocketAddress());
+                return;
+            }
+            connection = new Connection(socket);
+            connection.name = in.readUTF();
+            send(register(connection));
+            while (true) {
+                byte type = in.readByte();
+                int unitId = in.readInt();
+                if (type == SweepProtocol.RESULT) {
+                    CachedFlight flight = SweepProtocol.readResult(in);
+                    long wallNanos = in.readLong();
+                    send(complete(connection, unitId, flight, wallNanos, null));
+                } else if (type == SweepProtocol.FAILED) {
+                    send(complete(connection, unitId, null, 0, in.readUTF()));
+                } else {
+                    throw new IOException("неожиданное сообщение рабочего: " + type);
+                }
+            }
+        } catch (IOException e) {
+            if (connection != null) {
+                send(lost(connection));
+            }
+        }
+    }
+
+    // Запись в сокет одного рабочего идёт из потоков чтения разных рабочих, поэтому сериализуется на его потоке
+    private void send(List<Assignment> assignments) {
+        for (Assignment assignment : assignments) {
+            Connection connection = assignment.connection;
+            try {
+                synchronized (connection.out) {
+                    SweepProtocol.writeUnit(connection.out, assignment.unit.id, maxSimulationTime, assignment.unit.config);
+                }
+            } catch (IOException e) {
+                // Отправка не удалась: закрытый сокет прервёт поток чтения этого рабочего, и lost() вернёт его единицы
+                try {
+                    connection.socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private synchronized List<Assignment> register(Connection connection) {
+        connections.add(connection);
+        // Первые рабочие делят общую очередь поровну между собой и ещё не подключившимися локальными;
+        // подключившиеся позже начинают с перехвата чужой работы
+        int expected = Math.max(1, localWorkers - connectedLocal);
+        connectedLocal++;
+        int share = (shared.size() + expected - 1) / expected;
+        for (int i = 0; i < share && !shared.isEmpty(); i++) {
+            connection.queue.addLast(shared.pollFirst());
+        }
+        List<Assignment> assignments = new ArrayList<>();
+        refill(connection, assignments);
+        return assignments;
+    }
+
+    // Держит у рабочего PREFETCH выданных единиц, чтобы он не простаивал между сообщениями. Единица считается
+    // выданной сразу, до отправки: если отправка не удастся, lost() вернёт её в общую очередь
+    private void refill(Connection connection, List<Assignment> assignments) {
+        while (connection.inFlight.size() < PREFETCH) {
+            Unit unit = connection.queue.pollFirst();
+            if (unit == null) {
+                unit = shared.pollFirst();
+            }
+            if (unit == null) {
+                unit = steal(connection);
+            }
+            if (unit == null) {
+                return;
+            }
+            unit.attempts++;
+            connection.inFlight.put(unit.id, unit);
+            assignments.add(new Assignment(connection, unit));
+        }
+    }
+
+    private Unit steal(Connection thief) {
+        Connection victim = null;
+        for (Connection connection : connections) {
+            if (connection != thief && (victim == null || connection.queue.size() > victim.queue.size())) {
+                victim = connection;
+            }
+        }
+        if (victim == null || victim.queue.isEmpty()) {
+            return null;
+        }
+        stolen++;
+        return victim.queue.pollLast();
+    }
+
+    private synchronized List<Assignment> complete(Connection connection, int unitId, CachedFlight flight, long wallNanos, String error) {
+        Unit unit = connection.inFlight.remove(unitId);
+        if (unit == null) {
+            return List.of();
+        }
+        writeRow(unit, flight, connection.name, wallNanos, error);
+        if (error != null) {
+            failed++;
+        }
+        remaining--;
+        if (remaining == 0) {
+            notifyAll();
+            return List.of();
+        }
+        List<Assignment> assignments = new ArrayList<>();
+        refill(connection, assignments);
+        return assignments;
+    }
+
+    private synchronized List<Assignment> lost(Connection connection) {
+        if (!connections.remove(connection) || finished) {
+            return List.of();
+        }
+        crashes++;
+        System.err.println("Рабочий " + connection.name + " отключился, незавершённых единиц: " + connection.inFlight.size());
+        for (Unit unit : connection.inFlight.values()) {
+            if (unit.attempts >= MAX_ATTEMPTS) {
+                failUnit(unit, "рабочий падал " + unit.attempts + " раз");
+            } else {
+                retried++;
+                shared.addFirst(unit);
+            }
+        }
+        connection.inFlight.clear();
+        while (!connection.queue.isEmpty()) {
+            shared.addFirst(connection.queue.pollLast());
+        }
+        // Простаивающие рабочие сами за работой не придут: раздаём вернувшиеся единицы сразу
+        List<Assignment> assignments = new ArrayList<>();
+        for (Connection other : connections) {
+            refill(other, assignments);
+        }
+        notifyAll();
+        return assignments;
+    }
+
+    private void failRemaining(String reason) {
+        while (!shared.isEmpty()) {
+            failUnit(shared.pollFirst(), reason);
+        }
+    }
+
+    private void failUnit(Unit unit, String reason) {
+        writeRow(unit, null, "", 0, reason);
+        failed++;
+        remaining--;
+        if (remaining == 0) {
+            notifyAll();
+        }
+    }
+
+    private void writeRow(Unit unit, CachedFlight flight, String worker, long wallNanos, String error) {
+        FlightConfig config = unit.config;
+        StringBuilder row = new StringBuilder();
+        row.append(String.format(Locale.ROOT, "%d,%s,%s,%d,%s,%s,%s,", unit.id, config.getAutopilotMode(), config.getGravityModel(),
+                config.getCycleDelay(), config.getPayloadMass(), config.getTargetOrbitAltitude(), config.getDragCoefficient()));
+        if (flight != null) {
+            row.append(String.format(Locale.ROOT, "%.3f,%.1f,%.2f,%.1f,%.4f,%d,%s,", flight.getFinalTime(), flight.getMaxAltitude(),
+                    flight.getMaxSpeed(), flight.getMaxDynamicPressure(), flight.getFinalMass(), flight.getFinalRemainingStages(),
+                    flight.isLanded() ? "landed" : "timeout"));
+        } else {
+            row.append(",,,,,,failed,");
+        }
+        row.append(worker).append(',').append(unit.attempts).append(',').append(wallNanos / 1_000_000).append(',');
+        if (error != null) {
+            row.append('"').append(error.replace("\"", "\"\"")).append('"');
+        }
+        try {
+            output.write(row.toString());
+            output.newLine();
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Двоичный протокол между координатором перебора и рабочими процессами. Сообщение — байт типа и поля
+// в порядке DataOutputStream. Протокол не зависит от транспорта: локальные рабочие и рабочие на других машинах
+// подключаются к координатору по TCP одинаково. Токен — общий секрет координатора: без него рабочий не получит
+// настроек и не сможет записать в сводку свои строки.
+//
+//   рабочий → координатор: HELLO версия токен имя, RESULT номер сводка, FAILED номер текст
+//   координатор → рабочий: UNIT номер горизонт настройки, SHUTDOWN
+final class SweepProtocol {
+
+    static final int VERSION = 3;
+    // Переменная окружения с токеном; в командной строке он был бы виден другим пользователям машины
+    static final String TOKEN_VARIABLE = "SWEEP_TOKEN";
+
+    static final byte HELLO = 1;
+    static final byte UNIT = 2;
+    static final byte RESULT = 3;
+    static final byte FAILED = 4;
+    static final byte SHUTDOWN = 5;
+
+    private SweepProtocol() {
+    }
+
+    static void writeHello(DataOutputStream out, String token, String workerName) throws IOException {
+        out.writeByte(HELLO);
+        out.writeInt(VERSION);
+        out.writeUTF(token);
+        out.writeUTF(workerName);
+        out.flush();
+    }
+
+    static void writeUnit(DataOutputStream out, int unitId, double maxSimulationTime, FlightConfig config) throws IOException {
+        out.writeByte(UNIT);
+        out.writeInt(unitId);
+        out.writeDouble(maxSimulationTime);
+        writeConfig(out, config);
+        out.flush();
+    }
+
+    static void writeResult(DataOutputStream out, int unitId, CachedFlight flight, long wallNanos) throws IOException {
+        out.writeByte(RESULT);
+        out.writeInt(unitId);
+        out.writeDouble(flight.getFinalTime());
+        out.writeDouble(flight.getMaxAltitude());
+        out.writeDouble(flight.getMaxSpeed());
+        out.writeDouble(flight.getMaxDynamicPressure());
+        out.writeDouble(flight.getFinalMass());
+        out.writeInt(flight.getFinalRemainingStages());
+        out.writeBoolean(flight.isLanded());
+        out.writeLong(wallNanos);
+        out.flush();
+    }
+
+    static void writeFailed(DataOutputStream out, int unitId, String message) throws IOException {
+        out.writeByte(FAILED);
+        out.writeInt(unitId);
+        out.writeUTF(message == null ? "" : message);
+        out.flush();
+    }
+
+    static void writeShutdown(DataOutputStream out) throws IOException {
+        out.writeByte(SHUTDOWN);
+        out.flush();
+    }
+
+    // Сводка из сообщения RESULT после прочитанных типа и номера; ключ кэша не передаётся
+    static CachedFlight readResult(DataInputStream in) throws IOException {
+        double finalTime = in.readDouble();
+        double maxAltitude = in.readDouble();
+        double maxSpeed = in.readDouble();
+        double maxDynamicPressure = in.readDouble();
+        double finalMass = in.readDouble();
+        int finalRemainingStages = in.readInt();
+        boolean landed = in.readBoolean();
+        return new CachedFlight("", finalTime, maxAltitude, maxSpeed, maxDynamicPressure, finalMass, finalRemainingStages, landed, null);
+    }
+
+    static void writeConfig(DataOutputStream out, FlightConfig config) throws IOException {
+        out.writeDouble(config.getPayloadMass());
+        writeArray(out, config.getStageMasses());
+        writeArray(out, config.getFuelMasses());
+        writeArray(out, config.getMassFlowRates());
+        writeArray(out, config.getExhaustVelocities());
+        out.writeInt(config.getCycleDelay());
+        out.writeByte(config.getAutopilotMode().ordinal());
+        out.writeDouble(config.getTargetOrbitAltitude());
+        out.writeDouble(config.getDragCoefficient());
+        out.writeDouble(config.getReferenceArea());
+        out.writeDouble(config.getNozzleExitArea());
+        out.writeBoolean(config.isUseNativeCode());
+        out.writeUTF(config.getGravityModel());
+        out.writeBoolean(config.isUseGuidanceTable());
+        out.writeDouble(config.getGuidanceRate());
+        out.writeDouble(config.getObserverRate());
+        out.writeDouble(config.getPublicationRate());
+    }
+
+    static FlightConfig readConfig(DataInputStream in) throws IOException {
+        double payloadMass = in.readDouble();
+        double[] stageMasses = readArray(in);
+        double[] fuelMasses = readArray(in);
+        double[] massFlowRates = readArray(in);
+        double[] exhaustVelocities = readArray(in);
+        return new FlightConfig()
+                .setRocketParameters(payloadMass, stageMasses, fuelMasses)
+                .setPropulsion(massFlowRates, exhaustVelocities)
+                .setCycleDelay(in.readInt())
+                .setAutopilotMode(RocketController.AutopilotMode.values()[in.readByte()])
+                .setTargetOrbitAltitude(in.readDouble())
+                .setAerodynamics(in.readDouble(), in.readDouble(), in.readDouble())
+                .setUseNativeCode(in.readBoolean())
+                .setGravityModel(in.readUTF())
+                .setUseGuidanceTable(in.readBoolean())
+                .setTaskRates(in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    private static void writeArray(DataOutputStream out, double[] values) throws IOException {
+        out.writeByte(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readArray(DataInputStream in) throws IOException {
+        double[] values = new double[in.readUnsignedByte()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,73 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+// Рабочий процесс перебора: подключается к координатору, считает присланные настройки по одной и отправляет сводки.
+// Падение процесса (например, в нативном коде) не теряет работу: координатор раздаст его настройки заново.
+// Токен координатора берётся из переменной окружения SWEEP_TOKEN.
+// Запуск: java SweepWorker --connect хост:порт [--name имя]
+public class SweepWorker {
+
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = -1;
+        String name = InetAddress.getLocalHost().getHostName() + "/" + ProcessHandle.current().pid();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--connect" -> {
+                    String address = args[++i];
+                    int colon = address.lastIndexOf(':');
+                    host = address.substring(0, colon);
+                    port = Integer.parseInt(address.substring(colon + 1));
+                }
+                case "--name" -> name = args[++i];
+                default -> System.err.println("Неизвестный параметр: " + args[i]);
+            }
+        }
+        if (port < 0) {
+            System.err.println("Не указан адрес координатора: --connect хост:порт");
+            System.exit(2);
+        }
+        String token = System.getenv(SweepProtocol.TOKEN_VARIABLE);
+        if (token == null) {
+            System.err.println("Не задан токен координатора: переменная окружения " + SweepProtocol.TOKEN_VARIABLE);
+            System.exit(2);
+        }
+
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            SweepProtocol.writeHello(out, token, name);
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (type == SweepProtocol.SHUTDOWN) {
+                    return;
+                }
+                if (type != SweepProtocol.UNIT) {
+                    throw new IOException("Неожиданное сообщение координатора: " + type);
+                }
+                int unitId = in.readInt();
+                double maxSimulationTime = in.readDouble();
+                FlightConfig config = SweepProtocol.readConfig(in);
+                long start = System.nanoTime();
+                try {
+                    CachedFlight flight = ResultCache.simulate(config, maxSimulationTime);
+                    SweepProtocol.writeResult(out, unitId, flight, System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    SweepProtocol.writeFailed(out, unitId, e.toString());
+                }
+            }
+        }
+    }
+}
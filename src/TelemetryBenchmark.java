@@ -0,0 +1,64 @@
+import java.util.Locale;
+
+// Длительная запись телеметрии в TelemetryHistory с политикой хранения по умолчанию: через равные промежутки
+// времени полёта печатаются занятая куча после сборки мусора, память вне кучи и время записи отсчёта,
+// в конце — время перестроения прореженного графика. Куча не должна расти с длительностью полёта.
+// Параметры: --hours ч (по умолчанию 72), --rate Гц (по умолчанию 10), --report-every ч (по умолчанию 6)
+public class TelemetryBenchmark {
+
+    // Период низкой орбиты для правдоподобного изменения высоты и скорости
+    private static final double ORBIT_PERIOD = 5400;
+
+    public static void main(String[] args) {
+        double hours = 72;
+        double rate = 10;
+        double reportEvery = 6;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--hours" -> hours = Double.parseDouble(args[++i]);
+                case "--rate" -> rate = Double.parseDouble(args[++i]);
+                case "--report-every" -> reportEvery = Double.parseDouble(args[++i]);
+                default -> System.err.println("Неизвестный параметр: " + args[i]);
+            }
+        }
+
+        TelemetryHistory history = new TelemetryHistory(3);
+        double[] sample = new double[3];
+        long samples = (long) (hours * 3600 * rate);
+        long reportSamples = Math.max(1, (long) (reportEvery * 3600 * rate));
+        double firstHeap = Double.NaN;
+        double lastHeap = 0;
+        long chunkStart = System.nanoTime();
+        for (long i = 1; i <= samples; i++) {
+            double time = i / rate;
+            double phase = time / ORBIT_PERIOD * 2 * Math.PI;
+            sample[0] = 7800 + Math.sin(phase) * 5;
+            sample[1] = 400_000 + Math.sin(phase) * 10_000;
+            sample[2] = 11;
+            history.append(time, sample);
+            if (i % reportSamples == 0 || i == samples) {
+                double appendNanos = (double) (System.nanoTime() - chunkStart) / (i % reportSamples == 0 ? reportSamples : i % reportSamples);
+                lastHeap = usedHeap();
+                if (Double.isNaN(firstHeap)) {
+                    firstHeap = lastHeap;
+                }
+                System.out.printf(Locale.ROOT, "t=%5.1f ч: куча %6.2f МБ, вне кучи %6.2f МБ, отсчётов %d, запись %.0f нс%n",
+                        time / 3600, lastHeap / 1e6, history.getOffHeapBytes() / 1e6, history.getSampleCount(), appendNanos);
+                chunkStart = System.nanoTime();
+            }
+        }
+        System.out.printf(Locale.ROOT, "Рост кучи с первого отчёта: %.2f МБ%n", (lastHeap - firstHeap) / 1e6);
+
+        DecimatedSeries series = new DecimatedSeries(3, 4096);
+        long start = System.nanoTime();
+        series.rebuild(history);
+        System.out.printf(Locale.ROOT, "Перестроение графика: %.1f мс, %d точек, последняя t=%.1f с%n",
+                (System.nanoTime() - start) / 1e6, series.size(), series.getTime(series.size() - 1));
+    }
+
+    private static double usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,404 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+// История телеметрии вне кучи: отсчёты (время + несколько каналов) сжимаются блоками по схеме Gorilla —
+// время как разность разностей в миллисекундах, значения как XOR с предыдущим значением канала. Закрытые блоки
+// лежат в direct-буферах точно по размеру. Политика хранения: последние fullResolutionWindow секунд в полном
+// разрешении, более старые отсчёты прореживаются до одного на downsampleInterval секунд. В куче остаются только
+// заголовки блоков, поэтому её расход не растёт с длительностью полёта.
+public final class TelemetryHistory {
+
+    public interface SampleVisitor {
+        // Массив values переиспользуется между вызовами
+        void visit(double time, double[] values);
+    }
+
+    public static final double DEFAULT_FULL_RESOLUTION_WINDOW = 3600;
+    public static final double DEFAULT_DOWNSAMPLE_INTERVAL = 10;
+
+    private static final int SAMPLES_PER_BLOCK = 512;
+
+    private static final class Block {
+        final ByteBuffer data;
+        final int count;
+        final double startTime;
+        final double endTime;
+
+        Block(ByteBuffer data, int count, double startTime, double endTime) {
+            this.data = data;
+            this.count = count;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+    }
+
+    private final int channelCount;
+    private final double fullResolutionWindow;
+    private final double downsampleInterval;
+
+    private final ArrayDeque<Block> archiveBlocks = new ArrayDeque<>();
+    private final ArrayDeque<Block> fullBlocks = new ArrayDeque<>();
+    private final BlockEncoder archiveEncoder;
+    private final BlockEncoder fullEncoder;
+    private long lastArchivedBucket = Long.MIN_VALUE;
+
+    private final double[] latest;
+    private double latestTime = Double.NaN;
+    private long sampleCount;
+    private final double[] decodeBuffer;
+
+    public TelemetryHistory(int channelCount, double fullResolutionWindow, double downsampleInterval) {
+        this.channelCount = channelCount;
+        this.fullResolutionWindow = fullResolutionWindow;
+        this.downsampleInterval = downsampleInterval;
+        this.archiveEncoder = new BlockEncoder(channelCount);
+        this.fullEncoder = new BlockEncoder(channelCount);
+        this.latest = new double[channelCount];
+        this.decodeBuffer = new double[channelCount];
+    }
+
+    public TelemetryHistory(int channelCount) {
+        this(channelCount, DEFAULT_FULL_RESOLUTION_WINDOW, DEFAULT_DOWNSAMPLE_INTERVAL);
+    }
+
+    // Время хранится с точностью до миллисекунды, и всё, что возвращает история (getLatestTime, getFirstTime,
+    // время отсчётов при чтении), — это уже округлённое время. Оно должно возрастать: отсчёт, который
+    // после округления не позже предыдущего, пропускается, тогда возвращается false
+    public boolean append(double time, double... values) {
+        time = quantize(time);
+        if (time <= latestTime) {
+            return false;
+        }
+        fullEncoder.append(time, values);
+        if (fullEncoder.count == SAMPLES_PER_BLOCK) {
+            fullBlocks.addLast(fullEncoder.seal());
+        }
+        System.arraycopy(values, 0, latest, 0, channelCount);
+        latestTime = time;
+        sampleCount++;
+        applyRetention();
+        return true;
+    }
+
+    private void applyRetention() {
+        while (!fullBlocks.isEmpty() && fullBlocks.peekFirst().endTime < latestTime - fullResolutionWindow) {
+            decode(fullBlocks.pollFirst(), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, (time, values) -> {
+                long bucket = (long) Math.floor(time / downsampleInterval);
+                if (bucket != lastArchivedBucket) {
+                    lastArchivedBucket = bucket;
+                    archiveEncoder.append(time, values);
+                    if (archiveEncoder.count == SAMPLES_PER_BLOCK) {
+                        archiveBlocks.addLast(archiveEncoder.seal());
+                    }
+                }
+            });
+        }
+    }
+
+    static double quantize(double time) {
+        return Math.round(time * 1000) / 1000.0;
+    }
+
+    public void clear() {
+        archiveBlocks.clear();
+        fullBlocks.clear();
+        archiveEncoder.reset();
+        fullEncoder.reset();
+        lastArchivedBucket = Long.MIN_VALUE;
+        latestTime = Double.NaN;
+        sampleCount = 0;
+    }
+
+    // Все хранимые отсчёты с from <= t <= to в порядке времени
+    public void forEach(double from, double to, SampleVisitor visitor) {
+        for (Block block : archiveBlocks) {
+            decode(block, from, to, visitor);
+        }
+        decode(archiveEncoder.view(), from, to, visitor);
+        for (Block block : fullBlocks) {
+            decode(block, from, to, visitor);
+        }
+        decode(fullEncoder.view(), from, to, visitor);
+    }
+
+    // Не больше maxPoints отсчётов на диапазон: первый отсчёт каждого из maxPoints равных интервалов времени
+    // плюс последний отсчёт диапазона
+    public void forEachDecimated(double from, double to, int maxPoints, SampleVisitor visitor) {
+        double step = (to - from) / Math.max(1, maxPoints - 1);
+        if (!(step > 0)) {
+            step = Double.POSITIVE_INFINITY;
+        }
+        double finalStep = step;
+        double[] held = new double[channelCount];
+        double[] heldTime = {Double.NaN};
+        boolean[] heldEmitted = {true};
+        double[] nextTime = {Double.NEGATIVE_INFINITY};
+        forEach(from, to, (time, values) -> {
+            if (time >= nextTime[0]) {
+                visitor.visit(time, values);
+                nextTime[0] = from + (Math.floor((time - from) / finalStep) + 1) * finalStep;
+                heldEmitted[0] = true;
+            } else {
+                System.arraycopy(values, 0, held, 0, channelCount);
+                heldTime[0] = time;
+                heldEmitted[0] = false;
+            }
+        });
+        if (!heldEmitted[0]) {
+            visitor.visit(heldTime[0], held);
+        }
+    }
+
+    private void decode(Block block, double from, double to, SampleVisitor visitor) {
+        if (block == null || block.count == 0 || block.endTime < from || block.startTime > to) {
+            return;
+        }
+        BlockDecoder decoder = new BlockDecoder(block.data, channelCount);
+        for (int i = 0; i < block.count; i++) {
+            double time = decoder.next(decodeBuffer);
+            if (time > to) {
+                return;
+            }
+            if (time >= from) {
+                visitor.visit(time, decodeBuffer);
+            }
+        }
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public double getFirstTime() {
+        Block first = !archiveBlocks.isEmpty() ? archiveBlocks.peekFirst()
+                : archiveEncoder.count > 0 ? archiveEncoder.view()
+                : !fullBlocks.isEmpty() ? fullBlocks.peekFirst() : fullEncoder.view();
+        return first != null && first.count > 0 ? first.startTime : Double.NaN;
+    }
+
+    public double getLatestTime() {
+        return latestTime;
+    }
+
+    public double getLatest(int channel) {
+        return latest[channel];
+    }
+
+    public boolean isEmpty() {
+        return sampleCount == 0;
+    }
+
+    // Всего принятых отсчётов, включая прореженные
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public long getOffHeapBytes() {
+        long bytes = archiveEncoder.buffer.capacity() + fullEncoder.buffer.capacity();
+        for (Block block : archiveBlocks) {
+            bytes += block.data.capacity();
+        }
+        for (Block block : fullBlocks) {
+            bytes += block.data.capacity();
+        }
+        return bytes;
+    }
+
+    private static final class BlockEncoder {
+        final int channelCount;
+        // Худший случай: время 4 + 64 бита, значение 2 + 5 + 6 + 64 бита
+        final ByteBuffer buffer;
+        long bitPosition;
+        int count;
+        double startTime;
+        double endTime;
+        long previousMillis;
+        long previousDelta;
+        final long[] previousBits;
+        final int[] previousLeading;
+        final int[] previousTrailing;
+
+        BlockEncoder(int channelCount) {
+            this.channelCount = channelCount;
+            this.buffer = ByteBuffer.allocateDirect((int) (((68L + 77L * channelCount) * SAMPLES_PER_BLOCK + 7) / 8));
+            this.previousBits = new long[channelCount];
+            this.previousLeading = new int[channelCount];
+            this.previousTrailing = new int[channelCount];
+            reset();
+        }
+
+        void reset() {
+            bitPosition = 0;
+            count = 0;
+            previousDelta = 0;
+            java.util.Arrays.fill(previousLeading, -1);
+        }
+
+        // startTime и endTime — то же время, которое вернёт декодер
+        void append(double time, double[] values) {
+            long millis = Math.round(time * 1000);
+            if (count == 0) {
+                startTime = millis / 1000.0;
+                writeBits(millis, 64);
+            } else {
+                long delta = millis - previousMillis;
+                long deltaOfDelta = delta - previousDelta;
+                if (deltaOfDelta == 0) {
+                    writeBits(0, 1);
+                } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+                    writeBits(0b10, 2);
+                    writeBits(deltaOfDelta + 63, 7);
+                } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+                    writeBits(0b110, 3);
+                    writeBits(deltaOfDelta + 255, 9);
+                } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+                    writeBits(0b1110, 4);
+                    writeBits(deltaOfDelta + 2047, 12);
+                } else {
+                    writeBits(0b1111, 4);
+                    writeBits(deltaOfDelta, 64);
+                }
+                previousDelta = delta;
+            }
+            previousMillis = millis;
+            endTime = millis / 1000.0;
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                long bits = Double.doubleToRawLongBits(values[channel]);
+                if (count == 0) {
+                    writeBits(bits, 64);
+                } else {
+                    long xor = bits ^ previousBits[channel];
+                    if (xor == 0) {
+                        writeBits(0, 1);
+                    } else {
+                        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                        int trailing = Long.numberOfTrailingZeros(xor);
+                        if (previousLeading[channel] >= 0 && leading >= previousLeading[channel] && trailing >= previousTrailing[channel]) {
+                            // Значимые биты помещаются в окно предыдущего значения
+                            writeBits(0b10, 2);
+                            writeBits(xor >>> previousTrailing[channel], 64 - previousLeading[channel] - previousTrailing[channel]);
+                        } else {
+                            int length = 64 - leading - trailing;
+                            writeBits(0b11, 2);
+                            writeBits(leading, 5);
+                            writeBits(length - 1, 6);
+                            writeBits(xor >>> trailing, length);
+                            previousLeading[channel] = leading;
+                            previousTrailing[channel] = trailing;
+                        }
+                    }
+                }
+                previousBits[channel] = bits;
+            }
+            count++;
+        }
+
+        private void writeBits(long value, int bits) {
+            while (bits > 0) {
+                int byteIndex = (int) (bitPosition >>> 3);
+                int bitOffset = (int) (bitPosition & 7);
+                int free = 8 - bitOffset;
+                int chunk = Math.min(free, bits);
+                int part = (int) ((value >>> (bits - chunk)) & ((1 << chunk) - 1));
+                int current = bitOffset == 0 ? 0 : buffer.get(byteIndex);
+                buffer.put(byteIndex, (byte) (current | (part << (free - chunk))));
+                bits -= chunk;
+                bitPosition += chunk;
+            }
+        }
+
+        // Копирует данные в буфер точного размера и начинает новый блок
+        Block seal() {
+            int length = (int) ((bitPosition + 7) >>> 3);
+            ByteBuffer data = ByteBuffer.allocateDirect(length);
+            data.put(0, buffer, 0, length);
+            Block block = new Block(data, count, startTime, endTime);
+            reset();
+            return block;
+        }
+
+        // Открытый блок для чтения без копирования
+        Block view() {
+            return count == 0 ? null : new Block(buffer, count, startTime, endTime);
+        }
+    }
+
+    private static final class BlockDecoder {
+        final ByteBuffer data;
+        final int channelCount;
+        long bitPosition;
+        int index;
+        long previousMillis;
+        long previousDelta;
+        final long[] previousBits;
+        final int[] previousLeading;
+        final int[] previousTrailing;
+
+        BlockDecoder(ByteBuffer data, int channelCount) {
+            this.data = data;
+            this.channelCount = channelCount;
+            this.previousBits = new long[channelCount];
+            this.previousLeading = new int[channelCount];
+            this.previousTrailing = new int[channelCount];
+        }
+
+        double next(double[] values) {
+            long millis;
+            if (index == 0) {
+                millis = readBits(64);
+            } else {
+                long deltaOfDelta;
+                if (readBits(1) == 0) {
+                    deltaOfDelta = 0;
+                } else if (readBits(1) == 0) {
+                    deltaOfDelta = readBits(7) - 63;
+                } else if (readBits(1) == 0) {
+                    deltaOfDelta = readBits(9) - 255;
+                } else if (readBits(1) == 0) {
+                    deltaOfDelta = readBits(12) - 2047;
+                } else {
+                    deltaOfDelta = readBits(64);
+                }
+                previousDelta += deltaOfDelta;
+                millis = previousMillis + previousDelta;
+            }
+            previousMillis = millis;
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                long bits;
+                if (index == 0) {
+                    bits = readBits(64);
+                } else if (readBits(1) == 0) {
+                    bits = previousBits[channel];
+                } else {
+                    if (readBits(1) == 1) {
+                        previousLeading[channel] = (int) readBits(5);
+                        previousTrailing[channel] = 64 - previousLeading[channel] - ((int) readBits(6) + 1);
+                    }
+                    int length = 64 - previousLeading[channel] - previousTrailing[channel];
+                    bits = previousBits[channel] ^ (readBits(length) << previousTrailing[channel]);
+                }
+                previousBits[channel] = bits;
+                values[channel] = Double.longBitsToDouble(bits);
+            }
+            index++;
+            return millis / 1000.0;
+        }
+
+        private long readBits(int bits) {
+            long value = 0;
+            while (bits > 0) {
+                int byteIndex = (int) (bitPosition >>> 3);
+                int bitOffset = (int) (bitPosition & 7);
+                int available = 8 - bitOffset;
+                int chunk = Math.min(available, bits);
+                int part = ((data.get(byteIndex) & 0xFF) >>> (available - chunk)) & ((1 << chunk) - 1);
+                value = (value << chunk) | part;
+                bits -= chunk;
+                bitPosition += chunk;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.List;
+
+// Неизменяемый срез состояния модели, который поток симуляции публикует раз в кадр
+public final class TelemetrySnapshot {
+    // Каналы среза. Основное состояние (время, масса, положение, скорость) публикуется всегда,
+    // остальные заполняются, только если их запросил хотя бы один подписчик; иначе массивы пустые
+    public static final int CHANNEL_FLIGHT = 1;
+    public static final int CHANNEL_FUEL = 1 << 1;
+    public static final int CHANNEL_DEBRIS = 1 << 2;
+    // Полное состояние модели, из которого можно продолжить полёт в другой модели
+    public static final int CHANNEL_STATE = 1 << 3;
+    public static final int ALL_CHANNELS = CHANNEL_FLIGHT | CHANNEL_FUEL | CHANNEL_DEBRIS | CHANNEL_STATE;
+
+    private final long sequence;
+    private final double time;
+    private final double mass;
+    private final double speed;
+    private final double x;
+    private final double y;
+    private final double vx;
+    private final double vy;
+    private final double angle;
+    private final int remainingStages;
+    private final double[] fuelMasses;
+    private final double[] initialFuelMasses;
+    private final boolean engineOn;
+    private final double timeWarp;
+    private final double dynamicPressure;
+    private final double maxDynamicPressure;
+    private final double[] debrisPositions;
+    private final double[] debrisPredictedImpacts;
+    private final List<DebrisScene.Impact> debrisImpacts;
+    private final RocketModel.State state;
+
+    public TelemetrySnapshot(long sequence, double time, double mass, double speed, double x, double y, double vx, double vy,
+                             double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses,
+                             boolean engineOn, double timeWarp, double dynamicPressure, double maxDynamicPressure,
+                             double[] debrisPositions, double[] debrisPredictedImpacts, List<DebrisScene.Impact> debrisImpacts,
+                             RocketModel.State state) {
+        this.sequence = sequence;
+        this.time = time;
+        this.mass = mass;
+        this.speed = speed;
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+        this.angle = angle;
+        this.remainingStages = remainingStages;
+        this.fuelMasses = fuelMasses;
+        this.initialFuelMasses = initialFuelMasses;
+        this.engineOn = engineOn;
+        this.timeWarp = timeWarp;
+        this.dynamicPressure = dynamicPressure;
+        this.maxDynamicPressure = maxDynamicPressure;
+        this.debrisPositions = debrisPositions;
+        this.debrisPredictedImpacts = debrisPredictedImpacts;
+        this.debrisImpacts = debrisImpacts;
+        this.state = state;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public double getMass() {
+        return mass;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getVx() {
+        return vx;
+    }
+
+    public double getVy() {
+        return vy;
+    }
+
+    public double getAltitude() {
+        return Math.sqrt(x * x + y * y) - RocketModel.EARTH_RADIUS;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    public int getRemainingStages() {
+        return remainingStages;
+    }
+
+    public double getFuelMass(int stage) {
+        return fuelMasses[stage];
+    }
+
+    public double getInitialFuelMass(int stage) {
+        return initialFuelMasses[stage];
+    }
+
+    public boolean isEngineOn() {
+        return engineOn;
+    }
+
+    public double getTimeWarp() {
+        return timeWarp;
+    }
+
+    public double getDynamicPressure() {
+        return dynamicPressure;
+    }
+
+    public double getMaxDynamicPressure() {
+        return maxDynamicPressure;
+    }
+
+    // Массивы пар координат не копируются: модель каждый раз создаёт новые и больше их не меняет
+    public double[] getDebrisPositions() {
+        return debrisPositions;
+    }
+
+    public double[] getDebrisPredictedImpacts() {
+        return debrisPredictedImpacts;
+    }
+
+    public List<DebrisScene.Impact> getDebrisImpacts() {
+        return debrisImpacts;
+    }
+
+    // null, если канал CHANNEL_STATE никто не запрашивал
+    public RocketModel.State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,37 @@
+// Приливные возмущения от Луны и Солнца поверх базовой модели; положения тел берутся из таблицы эфемерид
+public final class ThirdBodyGravity implements GravityModel {
+
+    public static final double MOON_MU = 4.9048695e12;
+    public static final double SUN_MU = 1.32712440018e20;
+
+    private final GravityModel base;
+    private final Ephemeris ephemeris;
+
+    public ThirdBodyGravity(GravityModel base, Ephemeris ephemeris) {
+        this.base = base;
+        this.ephemeris = ephemeris;
+    }
+
+    @Override
+    public void acceleration(double x, double y, double time, double[] out) {
+        base.acceleration(x, y, time, out);
+        addPerturbation(x, y, ephemeris.moonX(time), ephemeris.moonY(time), MOON_MU, out);
+        addPerturbation(x, y, ephemeris.sunX(time), ephemeris.sunY(time), SUN_MU, out);
+    }
+
+    private static void addPerturbation(double x, double y, double bx, double by, double mu, double[] out) {
+        double dx = bx - x;
+        double dy = by - y;
+        double d2 = dx * dx + dy * dy;
+        double d3 = d2 * Math.sqrt(d2);
+        double b2 = bx * bx + by * by;
+        double b3 = b2 * Math.sqrt(b2);
+        out[0] += mu * (dx / d3 - bx / b3);
+        out[1] += mu * (dy / d3 - by / b3);
+    }
+
+    @Override
+    public String getName() {
+        return J2_MOON_SUN;
+    }
+}
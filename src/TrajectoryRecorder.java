@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+// Наблюдатель, который с заданным шагом по времени симуляции пишет траекторию в примитивные массивы
+public class TrajectoryRecorder implements RocketObserver {
+
+    public static final String[] CHANNELS = {"t", "x", "y", "vx", "vy", "mass", "angle"};
+
+    private final RocketModel model;
+    private final double sampleInterval;
+    private double nextSampleTime;
+    private double[][] channels = new double[CHANNELS.length][256];
+    private int size;
+
+    public TrajectoryRecorder(RocketModel model, double sampleInterval) {
+        this.model = model;
+        this.sampleInterval = sampleInterval;
+    }
+
+    @Override
+    public void onStageSeparation(int stageNumber) {
+    }
+
+    @Override
+    public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages, double[] fuelMasses, double[] initialFuelMasses) {
+        if (model.getSimulationTime() + 1e-9 >= nextSampleTime) {
+            nextSampleTime += sampleInterval;
+            sample();
+        }
+    }
+
+    @Override
+    public double nextUpdateTime() {
+        return nextSampleTime;
+    }
+
+    // Дописывает конечное состояние (например, момент падения), если оно не попало на сетку
+    public void recordFinal() {
+        if (size == 0 || channels[0][size - 1] < model.getSimulationTime()) {
+            sample();
+        }
+    }
+
+    private void sample() {
+        if (size == channels[0].length) {
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] = Arrays.copyOf(channels[i], size * 2);
+            }
+        }
+        channels[0][size] = model.getSimulationTime();
+        channels[1][size] = model.getPositionX();
+        channels[2][size] = model.getPositionY();
+        channels[3][size] = model.getSpeedX();
+        channels[4][size] = model.getSpeedY();
+        channels[5][size] = model.getCurrentMass();
+        channels[6][size] = model.getRocketAngle();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double get(int channel, int index) {
+        return channels[channel][index];
+    }
+
+    public double[] getChannel(int channel) {
+        return Arrays.copyOf(channels[channel], size);
+    }
+}
@@ -0,0 +1,182 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+// Раз в кадр дисплея забирает последний срез телеметрии и за один проход EDT обновляет все окна
+public class UiFrameScheduler {
+
+    public interface FrameView {
+        void onFrame(TelemetrySnapshot snapshot);
+    }
+
+    // Подписка окна на срезы. Окно держится слабо: подписка, чьё окно больше никому не нужно, снимается сама
+    public final class Subscription implements AutoCloseable {
+        private final WeakReference<FrameView> view;
+        private int channels;
+        private final long minIntervalNanos;
+        private long lastSequence = -1;
+        private long lastDeliveryNanos;
+        private boolean closed;
+
+        private Subscription(FrameView view, int channels, double maxRate) {
+            this.view = new WeakReference<>(view);
+            this.channels = channels;
+            this.minIntervalNanos = maxRate > 0 && !Double.isInfinite(maxRate) ? (long) (1e9 / maxRate) : 0;
+        }
+
+        public int getChannels() {
+            return channels;
+        }
+
+        // Окно может начать или перестать читать канал, не переподписываясь
+        public void setChannels(int channels) {
+            this.channels = channels;
+            if (!closed) {
+                updateChannels();
+            }
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                subscriptions.remove(this);
+                updateChannels();
+            }
+        }
+    }
+
+    // Без ограничения: срез доставляется каждый кадр дисплея
+    public static final double DISPLAY_RATE = Double.POSITIVE_INFINITY;
+
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    private final RocketModel model;
+    private final Timer timer;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    private double averageFrameMillis;
+    private double maxFrameMillis;
+
+    public UiFrameScheduler(RocketModel model) {
+        this.model = model;
+        this.timer = new Timer(1000 / displayRefreshRate(), e -> runFrame());
+        this.timer.setCoalesce(true);
+        updateChannels();
+    }
+
+    private static int displayRefreshRate() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return DEFAULT_REFRESH_RATE;
+        }
+        int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN || rate <= 0 ? DEFAULT_REFRESH_RATE : rate;
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    // channels — маска каналов TelemetrySnapshot, maxRate — не больше стольких срезов в секунду
+    public Subscription subscribe(FrameView view, int channels, double maxRate) {
+        Subscription subscription = new Subscription(view, channels, maxRate);
+        subscriptions.add(subscription);
+        updateChannels();
+        return subscription;
+    }
+
+    // Подписка снимается, когда окно закрывают или уничтожают; при повторном показе окно подписывается заново
+    public Subscription subscribe(FrameView view, int channels, double maxRate, Window owner) {
+        Subscription subscription = subscribe(view, channels, maxRate);
+        owner.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                release();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                release();
+            }
+
+            private void release() {
+                subscription.close();
+                owner.removeWindowListener(this);
+            }
+        });
+        return subscription;
+    }
+
+    // Модели нужно считать только то, что читает хотя бы один подписчик
+    private void updateChannels() {
+        int channels = TelemetrySnapshot.CHANNEL_FLIGHT;
+        for (Subscription subscription : subscriptions) {
+            channels |= subscription.channels;
+        }
+        model.setPublishedChannels(channels);
+    }
+
+    // Текущий срез уже неактуален для окон (например, они показывают полёт из кэша) — не рассылать его повторно
+    public void skipCurrentSnapshot() {
+        TelemetrySnapshot snapshot = model.getLatestSnapshot();
+        if (snapshot != null) {
+            for (Subscription subscription : subscriptions) {
+                subscription.lastSequence = snapshot.getSequence();
+            }
+        }
+    }
+
+    private void runFrame() {
+        TelemetrySnapshot snapshot = model.getLatestSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean delivered = false;
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription subscription = subscriptions.get(i);
+            if (subscription.lastSequence == snapshot.getSequence()
+                    || start - subscription.lastDeliveryNanos < subscription.minIntervalNanos) {
+                continue;
+            }
+            FrameView view = subscription.view.get();
+            if (view == null) {
+                subscription.close();
+                i--;
+                continue;
+            }
+            subscription.lastSequence = snapshot.getSequence();
+            subscription.lastDeliveryNanos = start;
+            view.onFrame(snapshot);
+            delivered = true;
+        }
+        if (!delivered) {
+            return;
+        }
+        double frameMillis = (System.nanoTime() - start) / 1e6;
+        StartupProbe.mark("first-frame");
+        averageFrameMillis = averageFrameMillis == 0 ? frameMillis : averageFrameMillis * 0.9 + frameMillis * 0.1;
+        maxFrameMillis = Math.max(maxFrameMillis, frameMillis);
+    }
+
+    public double getAverageFrameMillis() {
+        return averageFrameMillis;
+    }
+
+    public double getMaxFrameMillis() {
+        return maxFrameMillis;
+    }
+}
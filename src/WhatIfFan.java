@@ -0,0 +1,238 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Веер прогнозов «что если»: из опубликованного состояния модели запускаются копии полёта с другими решениями
+// (выключить двигатель сейчас или позже, повернуть на ±5°) и считаются параллельно на ограниченном пуле потоков.
+// Каждое новое состояние отменяет ещё не досчитанное поколение; на поколение отводится заданное процессорное
+// время, поровну между вариантами, и вариант, не уложившийся в свою долю, показывается оборванным
+public class WhatIfFan {
+
+    public enum Variant {
+        CURRENT("как сейчас"),
+        CUT_NOW("выключить сейчас"),
+        CUT_IN_5("выключить через 5 с"),
+        CUT_IN_10("выключить через 10 с"),
+        PITCH_PLUS_5("угол +5°"),
+        PITCH_MINUS_5("угол −5°");
+
+        private final String title;
+
+        Variant(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    // Готовое поколение: дуги в порядке вариантов, координаты парами x, y
+    public static final class Result {
+        private final List<Variant> variants;
+        private final double[][] arcs;
+        private final boolean[] truncated;
+
+        private Result(List<Variant> variants, double[][] arcs, boolean[] truncated) {
+            this.variants = variants;
+            this.arcs = arcs;
+            this.truncated = truncated;
+        }
+
+        public int size() {
+            return variants.size();
+        }
+
+        public Variant getVariant(int index) {
+            return variants.get(index);
+        }
+
+        public double[] getArc(int index) {
+            return arcs[index];
+        }
+
+        // Вариант не уложился в свою долю времени и посчитан не до конца
+        public boolean isTruncated(int index) {
+            return truncated[index];
+        }
+    }
+
+    private static final double HORIZON = 10000;
+    private static final double SAMPLE_INTERVAL = 2;
+    private static final double PITCH_STEP = 5;
+    // Прогнозу не нужна точность шага живого полёта: при мелком шаге физики он считается с этим шагом
+    private static final int MAX_PREDICTION_DELAY = 100;
+
+    private final ExecutorService pool;
+    private final Consumer<Result> listener;
+    private final List<Future<?>> running = new ArrayList<>();
+    private volatile long generation;
+    private volatile List<Variant> variants = List.of(Variant.values());
+    private volatile long budgetNanos = 20_000_000;
+
+    // listener вызывается в EDT для каждого поколения, которое не успело устареть
+    public WhatIfFan(int threads, Consumer<Result> listener) {
+        this.listener = listener;
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "what-if-fan");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public void setVariantCount(int count) {
+        variants = List.of(Arrays.copyOf(Variant.values(), Math.max(1, Math.min(count, Variant.values().length))));
+    }
+
+    // Процессорное время на одно поколение, на все варианты вместе
+    public void setBudgetMillis(double millis) {
+        budgetNanos = (long) (millis * 1e6);
+    }
+
+    public double getBudgetMillis() {
+        return budgetNanos / 1e6;
+    }
+
+    // Вызывается из EDT на каждый новый кадр
+    public void submit(RocketModel.State state) {
+        cancel();
+        long current = ++generation;
+        List<Variant> chosen = variants;
+        long variantBudget = budgetNanos / chosen.size();
+        double[][] arcs = new double[chosen.size()][];
+        boolean[] truncated = new boolean[chosen.size()];
+        int[] remaining = {chosen.size()};
+        for (int i = 0; i < chosen.size(); i++) {
+            int index = i;
+            running.add(pool.submit(() -> {
+                Arc arc = new Arc(current, variantBudget);
+                arc.run(state, chosen.get(index));
+                synchronized (remaining) {
+                    arcs[index] = arc.points();
+                    truncated[index] = arc.truncated;
+                    if (--remaining[0] > 0 || current != generation) {
+                        return;
+                    }
+                }
+                Result result = new Result(chosen, arcs, truncated);
+                SwingUtilities.invokeLater(() -> {
+                    if (current == generation) {
+                        listener.accept(result);
+                    }
+                });
+            }));
+        }
+    }
+
+    // Отменяет текущее поколение: ещё не начатые варианты снимаются с очереди, начатые прерываются на ближайшем шаге
+    public void cancel() {
+        generation++;
+        for (Future<?> future : running) {
+            future.cancel(false);
+        }
+        running.clear();
+    }
+
+    public void shutdown() {
+        cancel();
+        pool.shutdownNow();
+    }
+
+    // Один вариант: копия модели с командами варианта, пишущая точки и прерывающаяся по бюджету или отмене
+    private final class Arc implements RocketObserver {
+        private final long generationAtStart;
+        private final long budgetNanos;
+        private RocketModel model;
+        private long deadline;
+        private double nextSampleTime;
+        private double commandTime = Double.POSITIVE_INFINITY;
+        private double[] points = new double[256];
+        private int size;
+        boolean truncated;
+
+        Arc(long generationAtStart, long budgetNanos) {
+            this.generationAtStart = generationAtStart;
+            this.budgetNanos = budgetNanos;
+        }
+
+        void run(RocketModel.State state, Variant variant) {
+            if (generationAtStart != generation) {
+                return;
+            }
+            deadline = System.nanoTime() + budgetNanos;
+            double start = state.getSimulationTime();
+            model = RocketModel.fork(state);
+            model.setCycleDelay(Math.max(state.getCycleDelay(), MAX_PREDICTION_DELAY));
+            switch (variant) {
+                case CUT_NOW -> cutEngine();
+                case CUT_IN_5 -> commandTime = start + 5;
+                case CUT_IN_10 -> commandTime = start + 10;
+                case PITCH_PLUS_5, PITCH_MINUS_5 -> {
+                    model.setAutopilotMode(RocketController.AutopilotMode.MANUAL);
+                    double delta = variant == Variant.PITCH_PLUS_5 ? PITCH_STEP : -PITCH_STEP;
+                    model.setRocketAngle(state.getRocketAngle() + delta);
+                }
+                default -> {
+                }
+            }
+            nextSampleTime = start;
+            model.addObserver(this);
+            model.runHeadless(start + HORIZON);
+            sample();
+        }
+
+        // Автопилот снова включил бы двигатель, поэтому вариант с выключением переходит на ручное управление
+        private void cutEngine() {
+            model.setAutopilotMode(RocketController.AutopilotMode.MANUAL);
+            model.setEngineOn(false);
+        }
+
+        @Override
+        public void onStageSeparation(int stageNumber) {
+        }
+
+        @Override
+        public void onUpdateStatus(double currentMass, double speed, double x, double y, double angle, int remainingStages,
+                                   double[] fuelMasses, double[] initialFuelMasses) {
+            double time = model.getSimulationTime();
+            if (time + 1e-9 >= commandTime) {
+                commandTime = Double.POSITIVE_INFINITY;
+                cutEngine();
+            }
+            if (time + 1e-9 >= nextSampleTime) {
+                nextSampleTime += SAMPLE_INTERVAL * Math.max(1, Math.floor((time - nextSampleTime) / SAMPLE_INTERVAL + 1e-9) + 1);
+                sample();
+            }
+            if (generationAtStart != generation) {
+                model.stopSimulation();
+            } else if (System.nanoTime() > deadline) {
+                truncated = true;
+                model.stopSimulation();
+            }
+        }
+
+        @Override
+        public double nextUpdateTime() {
+            return Math.min(nextSampleTime, commandTime);
+        }
+
+        private void sample() {
+            if (size + 2 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[size++] = model.getPositionX();
+            points[size++] = model.getPositionY();
+        }
+
+        double[] points() {
+            return Arrays.copyOf(points, size);
+        }
+    }
+}